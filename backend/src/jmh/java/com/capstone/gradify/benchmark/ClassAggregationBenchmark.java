@@ -0,0 +1,80 @@
+package com.capstone.gradify.benchmark;
+
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+import com.capstone.gradify.Service.RecordsService;
+import com.capstone.gradify.Service.grading.CompiledGradingScheme;
+import com.capstone.gradify.Service.grading.GradeMatrix;
+import com.capstone.gradify.Service.grading.GradeScale;
+import com.capstone.gradify.Service.grading.GradingSchemeCompiler;
+import com.capstone.gradify.Service.grading.ScoreDistribution;
+import com.capstone.gradify.Service.grading.ScoreSummary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-class aggregation: grading every record of a class the way the roster and class average did
+ * before the computed grade table ({@code perRecord}), the columnar path ComputedGradeService uses
+ * ({@code gradeMatrix}), and the assessment summary behind the performance endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassAggregationBenchmark {
+
+    @Param({"30", "300", "3000"})
+    public int students;
+
+    private List<GradeRecordsEntity> records;
+    private Map<String, Integer> maxValues;
+    private CompiledGradingScheme scheme;
+    private final RecordsService recordsService = new RecordsService();
+
+    @Setup
+    public void setUp() {
+        SyntheticClass syntheticClass = new SyntheticClass(students, 42);
+        records = syntheticClass.toGradeRecords();
+        maxValues = syntheticClass.maxValues;
+        scheme = new GradingSchemeCompiler().compile(SyntheticClass.SCHEME_JSON);
+    }
+
+    @Benchmark
+    public void perRecord(Blackhole blackhole) {
+        for (GradeRecordsEntity record : records) {
+            double grade = recordsService.calculateGrade(record.getGrades(), scheme, maxValues);
+            blackhole.consume(GradeScale.letterGrade(grade));
+        }
+    }
+
+    @Benchmark
+    public void gradeMatrix(Blackhole blackhole) {
+        double[] percentages = GradeMatrix.of(records).percentages(scheme);
+        for (double percentage : percentages) {
+            blackhole.consume(GradeScale.letterGrade(percentage));
+        }
+    }
+
+    @Benchmark
+    public void assessmentSummary(Blackhole blackhole) {
+        GradeMatrix matrix = GradeMatrix.of(records);
+        for (Map.Entry<String, Integer> assessment : matrix.getAssessmentMaxValues().entrySet()) {
+            int column = matrix.columnOf(assessment.getKey());
+            if (column < 0) continue;
+            ScoreDistribution scores = new ScoreDistribution();
+            for (int student = 0; student < matrix.getStudentCount(); student++) {
+                double score = matrix.getScore(student, column);
+                if (score >= 0) {
+                    scores.add(score / assessment.getValue() * 100);
+                }
+            }
+            ScoreSummary summary = scores.summarize();
+            blackhole.consume(summary);
+        }
+    }
+}
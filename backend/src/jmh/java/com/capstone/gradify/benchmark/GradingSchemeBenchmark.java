@@ -0,0 +1,60 @@
+package com.capstone.gradify.benchmark;
+
+import com.capstone.gradify.Service.grading.CompiledGradingScheme;
+import com.capstone.gradify.Service.grading.GradingSchemeCompiler;
+import com.capstone.gradify.Service.grading.HeaderCategoryBinding;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheme parsing and header-to-category matching. {@code compile} is the cost of a cache miss,
+ * {@code compileAndBind} adds classifying one spreadsheet's headers, and {@code bindCached} is the
+ * per-record lookup the grading paths pay after that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradingSchemeBenchmark {
+
+    private final List<List<String>> headerSets = new ArrayList<>();
+    private CompiledGradingScheme warmScheme;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // One header set per naming style
+        for (long seed = 0; seed < 4; seed++) {
+            headerSets.add(new SyntheticClass(0, seed).headers);
+        }
+        warmScheme = new GradingSchemeCompiler().compile(SyntheticClass.SCHEME_JSON);
+        for (List<String> headers : headerSets) {
+            warmScheme.bindingFor(headers);
+        }
+    }
+
+    @Benchmark
+    public CompiledGradingScheme compile() {
+        return new GradingSchemeCompiler().compile(SyntheticClass.SCHEME_JSON);
+    }
+
+    @Benchmark
+    public void compileAndBind(Blackhole blackhole) {
+        CompiledGradingScheme scheme = new GradingSchemeCompiler().compile(SyntheticClass.SCHEME_JSON);
+        for (List<String> headers : headerSets) {
+            blackhole.consume(scheme.bindingFor(headers));
+        }
+    }
+
+    @Benchmark
+    public HeaderCategoryBinding bindCached() {
+        next = (next + 1) % headerSets.size();
+        return warmScheme.bindingFor(headerSets.get(next));
+    }
+}
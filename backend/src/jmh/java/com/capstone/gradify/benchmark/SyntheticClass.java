@@ -0,0 +1,178 @@
+package com.capstone.gradify.benchmark;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Deterministic synthetic class record used by the benchmarks: a header set in one of several naming
+ * styles teachers actually use, per-assessment max values, student rows with a few blank and
+ * non-numeric cells, and a matching grading scheme. The same seed always yields the same class.
+ */
+final class SyntheticClass {
+
+    static final String SCHEME_JSON = "[" +
+            "{\"name\":\"Quizzes\",\"weight\":20}," +
+            "{\"name\":\"Assignments\",\"weight\":15}," +
+            "{\"name\":\"Labs\",\"weight\":15}," +
+            "{\"name\":\"Participation\",\"weight\":5}," +
+            "{\"name\":\"Prelim Exam\",\"weight\":10}," +
+            "{\"name\":\"Midterm Exam\",\"weight\":15}," +
+            "{\"name\":\"Final Exam\",\"weight\":20}]";
+
+    // Header naming styles: {quiz, assignment, lab, participation, prelim, midterm, final}
+    private static final String[][] STYLES = {
+            {"Q%d", "A%d", "Lab%d", "CP", "PE", "ME", "FE"},
+            {"Quiz %d", "Assignment %d", "Lab %d", "Participation", "Prelim", "Midterm", "Final"},
+            {"Quiz%d", "HW%d", "Laboratory %d", "Attendance", "Prelim Exam", "Midterm Exam", "Final Exam"},
+            {"SQ%d", "Task %d", "L%d", "Class Participation", "Preliminary Exam", "Mid-Term", "Finals"},
+    };
+
+    private static final String[] FIRST_NAMES = {"Ana", "Ben", "Carlo", "Dana", "Eli", "Fay", "Gio", "Hana"};
+    private static final String[] LAST_NAMES = {"Reyes", "Santos", "Cruz", "Garcia", "Lim", "Tan", "Dela Cruz"};
+
+    final List<String> headers = new ArrayList<>();
+    final Map<String, Integer> maxValues = new LinkedHashMap<>();
+    final List<Map<String, String>> rows = new ArrayList<>();
+
+    SyntheticClass(int students, long seed) {
+        Random random = new Random(seed);
+        String[] style = STYLES[(int) (seed % STYLES.length)];
+
+        headers.add("Student Number");
+        headers.add("First Name");
+        headers.add("Last Name");
+        addAssessments(style[0], 8 + random.nextInt(5), 10 + 5 * random.nextInt(3));
+        addAssessments(style[1], 4 + random.nextInt(4), 20 + 10 * random.nextInt(4));
+        addAssessments(style[2], 3 + random.nextInt(4), 50);
+        addAssessment(style[3], 100);
+        addAssessment(style[4], 60 + 10 * random.nextInt(5));
+        addAssessment(style[5], 60 + 10 * random.nextInt(5));
+        addAssessment(style[6], 80 + 10 * random.nextInt(3));
+
+        for (int s = 0; s < students; s++) {
+            Map<String, String> row = new HashMap<>();
+            row.put("Student Number", String.format("%02d-%04d-%03d", 20 + random.nextInt(5), random.nextInt(10000), s % 1000));
+            row.put("First Name", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+            row.put("Last Name", LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            double ability = 0.45 + 0.5 * random.nextDouble();
+            for (Map.Entry<String, Integer> assessment : maxValues.entrySet()) {
+                int roll = random.nextInt(100);
+                String value;
+                if (roll < 4) {
+                    value = ""; // Not yet graded
+                } else if (roll < 5) {
+                    value = "absent";
+                } else {
+                    double score = Math.min(1.0, Math.max(0.0, ability + random.nextGaussian() * 0.12));
+                    value = String.valueOf(Math.round(score * assessment.getValue()) * 1.0);
+                }
+                row.put(assessment.getKey(), value);
+            }
+            rows.add(row);
+        }
+    }
+
+    private void addAssessments(String pattern, int count, int maxValue) {
+        for (int i = 1; i <= count; i++) {
+            addAssessment(String.format(pattern, i), maxValue);
+        }
+    }
+
+    private void addAssessment(String header, int maxValue) {
+        headers.add(header);
+        maxValues.put(header, maxValue);
+    }
+
+    /**
+     * The class as grade record entities sharing one spreadsheet, as loaded by the repositories.
+     */
+    List<GradeRecordsEntity> toGradeRecords() {
+        ClassSpreadsheet spreadsheet = new ClassSpreadsheet();
+        spreadsheet.setAssessmentMaxValues(maxValues);
+        List<GradeRecordsEntity> records = new ArrayList<>(rows.size());
+        long id = 1;
+        for (Map<String, String> row : rows) {
+            GradeRecordsEntity record = new GradeRecordsEntity();
+            record.setId(id++);
+            record.setStudentNumber(row.get("Student Number"));
+            record.setGrades(row);
+            record.setClassRecord(spreadsheet);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * The class as an .xlsx upload: header row, max value row, then one row per student.
+     */
+    byte[] toXlsx() {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Class Record");
+            Row headerRow = sheet.createRow(0);
+            Row maxRow = sheet.createRow(1);
+            for (int c = 0; c < headers.size(); c++) {
+                headerRow.createCell(c).setCellValue(headers.get(c));
+                Integer max = maxValues.get(headers.get(c));
+                if (max != null) {
+                    maxRow.createCell(c).setCellValue(max);
+                }
+            }
+            for (int r = 0; r < rows.size(); r++) {
+                Row row = sheet.createRow(r + 2);
+                for (int c = 0; c < headers.size(); c++) {
+                    String value = rows.get(r).get(headers.get(c));
+                    if (value == null || value.isEmpty()) continue;
+                    if (maxValues.containsKey(headers.get(c)) && !value.equals("absent")) {
+                        row.createCell(c).setCellValue(Double.parseDouble(value));
+                    } else {
+                        row.createCell(c).setCellValue(value);
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The class record as a CSV export, quoting fields the way spreadsheet programs do.
+     */
+    byte[] toCsv() {
+        StringBuilder csv = new StringBuilder();
+        for (int c = 0; c < headers.size(); c++) {
+            csv.append(c == 0 ? "" : ",").append(csvField(headers.get(c)));
+        }
+        csv.append("\r\n");
+        for (int c = 0; c < headers.size(); c++) {
+            Integer max = maxValues.get(headers.get(c));
+            csv.append(c == 0 ? "" : ",").append(max != null ? max.toString() : "");
+        }
+        csv.append("\r\n");
+        for (Map<String, String> row : rows) {
+            for (int c = 0; c < headers.size(); c++) {
+                String value = row.get(headers.get(c));
+                csv.append(c == 0 ? "" : ",").append(value != null ? csvField(value) : "");
+            }
+            csv.append("\r\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,55 @@
+package com.capstone.gradify.benchmark;
+
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
+import com.capstone.gradify.Service.spreadsheet.ClassSpreadsheetService;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an uploaded class record into grade rows and max values, as the upload endpoint does, from an
+ * .xlsx workbook and from the same class exported as CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkbookParseBenchmark {
+
+    @Param({"30", "300", "3000"})
+    public int students;
+
+    @Param({"xlsx", "csv"})
+    public String format;
+
+    private MockMultipartFile file;
+    // Parsing only reads the upload, so the service needs none of its repositories
+    private final ClassSpreadsheetService classSpreadsheetService = new ClassSpreadsheetService();
+
+    @Setup
+    public void setUp() {
+        // No registry in the empty bean factory, so parsing runs unobserved
+        ReflectionTestUtils.setField(classSpreadsheetService, "hotPathMetrics",
+                new HotPathMetrics(new StaticListableBeanFactory().getBeanProvider(ObservationRegistry.class)));
+        SyntheticClass synthetic = new SyntheticClass(students, 7);
+        if (format.equals("csv")) {
+            file = new MockMultipartFile("file", "BSIT-3A-Benchmark.csv", "text/csv", synthetic.toCsv());
+        } else {
+            file = new MockMultipartFile("file", "BSIT-3A-Benchmark.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", synthetic.toXlsx());
+        }
+    }
+
+    @Benchmark
+    public void parseUpload(Blackhole blackhole) throws IOException {
+        blackhole.consume(classSpreadsheetService.parseSpreadsheet(file));
+    }
+}
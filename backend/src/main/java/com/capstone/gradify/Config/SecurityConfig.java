@@ -8,6 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -44,12 +51,46 @@ public class SecurityConfig {
 
     @Value("${jwt.secret}")
     private String jwtSecret;
+    @Value("${gradify.metrics.username:prometheus}")
+    private String metricsUsername;
+    @Value("${gradify.metrics.password:}")
+    private String metricsPassword;
 
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Actuator endpoints: health and info are open, metrics and the Prometheus scrape need HTTP Basic
+     * with the gradify.metrics account, and are closed altogether while it has no password.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        DaoAuthenticationProvider metricsAccount = new DaoAuthenticationProvider(passwordEncoder());
+        metricsAccount.setUserDetailsService(new InMemoryUserDetailsManager(User.withUsername(metricsUsername)
+                .password(passwordEncoder().encode(metricsPassword))
+                .authorities("METRICS")
+                .build()));
+        boolean metricsEnabled = !metricsPassword.isBlank();
+
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(new ProviderManager(metricsAccount))
+                .httpBasic(Customizer.withDefaults())
+                .authorizeHttpRequests(auth -> {
+                    auth.requestMatchers("/actuator/health/**", "/actuator/info").permitAll();
+                    if (metricsEnabled) {
+                        auth.requestMatchers("/actuator/metrics/**", "/actuator/prometheus").hasAuthority("METRICS");
+                    }
+                    auth.anyRequest().denyAll();
+                });
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 
@@ -1,8 +1,10 @@
 package com.capstone.gradify.Controller.records;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -16,11 +18,15 @@ import com.capstone.gradify.Repository.records.GradeRecordRepository;
 import com.capstone.gradify.Repository.user.StudentRepository;
 import com.capstone.gradify.Repository.user.TeacherRepository;
 import com.capstone.gradify.Service.RecordsService;
+import com.capstone.gradify.Service.GradebookExportService;
 import com.capstone.gradify.Service.ReportService;
 import com.capstone.gradify.dto.student.StudentDTO;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RestController;
@@ -36,6 +42,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/class")
@@ -55,6 +62,8 @@ public class ClassController {
     private ClassSpreadsheetRepository classSpreadsheetRepository;
     @Autowired
     private GradeRecordRepository gradeRecordRepository;
+    @Autowired
+    private GradebookExportService gradebookExportService;
 
     @PostMapping("/createclass")
     public ResponseEntity<Object> createClass(
@@ -216,6 +225,45 @@ public class ClassController {
         return ResponseEntity.ok(rosterData);
     }
 
+    /**
+     * Download a class's gradebook (every score column plus percentage, letter grade and status) or,
+     * with view=roster, just its students and their computed grade. The file is written to the response
+     * as the rows are read, so large classes download in constant memory.
+     *
+     * @param format xlsx or csv
+     * @param view   gradebook or roster
+     */
+    @GetMapping("/{classId}/export")
+    public ResponseEntity<StreamingResponseBody> exportGradebook(
+            @PathVariable int classId,
+            @RequestParam(value = "format", defaultValue = "xlsx") String format,
+            @RequestParam(value = "view", defaultValue = "gradebook") String view) {
+        GradebookExportService.Format exportFormat;
+        GradebookExportService.View exportView;
+        try {
+            exportFormat = GradebookExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            exportView = GradebookExportService.View.valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ClassEntity classEntity = classService.getClassById(classId);
+        if (classEntity == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        List<String> columns = gradebookExportService.prepare(classId, exportView);
+        String title = classEntity.getSection() != null
+                ? classEntity.getClassName() + " - " + classEntity.getSection()
+                : classEntity.getClassName();
+        String fileName = title + " " + exportView.name().toLowerCase(Locale.ROOT) + "." + exportFormat.getExtension();
+        StreamingResponseBody body = out -> gradebookExportService.write(classId, title, columns, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString())
+                .body(body);
+    }
+
     @GetMapping("/{classId}/students/{studentId}/grade")
     public ResponseEntity<Double> getStudentGrade(
             @PathVariable int classId,
@@ -4,29 +4,54 @@ import com.capstone.gradify.Entity.records.ClassEntity;
 import com.capstone.gradify.Entity.records.ClassSpreadsheet;
 import com.capstone.gradify.Entity.user.StudentEntity;
 import com.capstone.gradify.Entity.user.TeacherEntity;
+import com.capstone.gradify.Entity.user.UserEntity;
 import com.capstone.gradify.Repository.records.ClassRepository;
 import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository; // Ensure this is imported
+import com.capstone.gradify.Repository.records.GradeRecordRepository;
 import com.capstone.gradify.Repository.user.TeacherRepository;
 import com.capstone.gradify.Service.RecordsService;
 import com.capstone.gradify.Service.spreadsheet.ClassSpreadsheetService;
+import com.capstone.gradify.Service.spreadsheet.CloudImportGateway;
+import com.capstone.gradify.Service.spreadsheet.CloudProviderUnavailableException;
 import com.capstone.gradify.Service.spreadsheet.CloudSpreadsheetManager;
+import com.capstone.gradify.Service.spreadsheet.CloudSyncService;
+import com.capstone.gradify.Service.spreadsheet.ImportCoalescer;
+import com.capstone.gradify.Service.spreadsheet.ImportJob;
+import com.capstone.gradify.Service.spreadsheet.ImportJobService;
+import com.capstone.gradify.Service.spreadsheet.ParsedSpreadsheet;
+import com.capstone.gradify.Service.spreadsheet.SheetImportResult;
+import com.capstone.gradify.Service.spreadsheet.TempFileMultipartFile;
+import com.capstone.gradify.Service.spreadsheet.WorkbookImportService;
 import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors; // Required for stream operations
 
 @RestController
 @RequestMapping("api/spreadsheet")
 public class SpreadSheetController {
 
+    private static final Logger logger = LoggerFactory.getLogger(SpreadSheetController.class);
+
     private final ClassSpreadsheetService classSpreadsheetService;
     private final RecordsService recordsService;
 
@@ -38,6 +63,18 @@ public class SpreadSheetController {
     private CloudSpreadsheetManager cloudSpreadsheetManager;
     @Autowired
     private ClassSpreadsheetRepository classSpreadsheetRepository; // Added for check-exists
+    @Autowired
+    private ImportJobService importJobService;
+    @Autowired
+    private ImportCoalescer importCoalescer;
+    @Autowired
+    private WorkbookImportService workbookImportService;
+    @Autowired
+    private CloudSyncService cloudSyncService;
+    @Autowired
+    private CloudImportGateway cloudImportGateway;
+    @Autowired
+    private GradeRecordRepository gradeRecordRepository;
 
 
     @Autowired
@@ -46,64 +83,123 @@ public class SpreadSheetController {
         this.recordsService = recordsService;
     }
 
+    /**
+     * Create a class from an uploaded spreadsheet. With async=true the file is imported in the background
+     * and the response is 202 with a job ID to follow at /jobs/{jobId} or /jobs/{jobId}/events.
+     * Uploading a file the teacher already created a class from returns that class with duplicate=true.
+     * With allSheets=true every sheet of the workbook becomes its own class, and the response lists
+     * the outcome of each sheet.
+     */
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadSpreadsheet(@RequestParam("file") MultipartFile file, @RequestParam("teacherId") Integer teacherId) {
+    public ResponseEntity<?> uploadSpreadsheet(@RequestParam("file") MultipartFile file, @RequestParam("teacherId") Integer teacherId,
+                                               @RequestParam(value = "async", defaultValue = "false") boolean async,
+                                               @RequestParam(value = "allSheets", defaultValue = "false") boolean allSheets) {
         // Logic to handle spreadsheet upload
         try{
-            List<Map<String, String >> records = classSpreadsheetService.parseClassRecord(file);
-            Map<String, Integer> maxAssessmentValue = classSpreadsheetService.getMaxAssessmentValue(file);
             TeacherEntity teacher = teacherRepository.findById(teacherId)
                     .orElseThrow(() -> new RuntimeException("Teacher not found"));
-
-            ClassEntity classEntity = classSpreadsheetService.createClassEntityFromSpreadsheet(file, records, teacher);
-
-            // Save the ClassEntity
-            classEntity = classRepository.save(classEntity);
-            ClassSpreadsheet savedSpreadsheet = classSpreadsheetService.saveRecord(
-                    file.getOriginalFilename(),
-                    teacher,
-                    records,
-                    classEntity,
-                    maxAssessmentValue);
-
-            Set<StudentEntity> students = new HashSet<>();
-            savedSpreadsheet.getGradeRecords().forEach(record -> {
-                if (record.getStudent() != null) {
-                    students.add(record.getStudent());
+            if (allSheets) {
+                if (async) {
+                    return submitFileImport("upload-sheets", teacherId, file, upload -> uploadSheets(upload, teacher));
                 }
-            });
+                return ResponseEntity.ok(uploadSheets(file, teacher));
+            }
+            if (async) {
+                return submitFileImport("upload", teacherId, file, upload -> {
+                    Map<String, Object> response = uploadClass(upload, teacher);
+                    Map<String, Object> summary = importSummary((ClassSpreadsheet) response.get("spreadsheet"),
+                            (ClassEntity) response.get("class"));
+                    summary.put("duplicate", response.get("duplicate"));
+                    return summary;
+                });
+            }
+            return ResponseEntity.ok(uploadClass(file, teacher));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error processing file: " + e.getMessage());
+        }
+    }
 
+    // Identical uploads by the same teacher run one at a time, so a resubmission finds the first one's class
+    private Map<String, Object> uploadClass(MultipartFile file, TeacherEntity teacher) throws Exception {
+        String contentHash = classSpreadsheetService.contentHash(file);
+        return importCoalescer.run("upload:" + teacher.getUserId() + ":" + contentHash,
+                () -> uploadClass(file, teacher, contentHash));
+    }
 
-            classEntity.setStudents(students);
-            classEntity = classRepository.save(classEntity);
+    private Map<String, Object> uploadSheets(MultipartFile file, TeacherEntity teacher) throws Exception {
+        String contentHash = classSpreadsheetService.contentHash(file);
+        return importCoalescer.run("upload-sheets:" + teacher.getUserId() + ":" + contentHash,
+                () -> sheetsSummary(workbookImportService.importWorkbook(file, file.getOriginalFilename(), contentHash, teacher)));
+    }
 
+    private Map<String, Object> uploadClass(MultipartFile file, TeacherEntity teacher, String contentHash) throws IOException {
+        Optional<ClassSpreadsheet> existing = classSpreadsheetService.findImportedUpload(teacher, contentHash);
+        if (existing.isPresent()) {
             Map<String, Object> response = new HashMap<>();
-            response.put("spreadsheet", savedSpreadsheet);
-            response.put("class", classEntity);
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("Error processing file: " + e.getMessage());
+            response.put("spreadsheet", existing.get());
+            response.put("class", existing.get().getClassEntity());
+            response.put("diagnostics", List.of());
+            response.put("duplicate", true);
+            return response;
         }
+
+        ParsedSpreadsheet parsed = classSpreadsheetService.parseSpreadsheet(file);
+        List<Map<String, String >> records = parsed.getRecords();
+        Map<String, Integer> maxAssessmentValue = parsed.getMaxAssessmentValues();
+
+        ClassEntity classEntity = classSpreadsheetService.createClassEntityFromSpreadsheet(file, records, teacher);
+
+        // Save the ClassEntity
+        classEntity = classRepository.save(classEntity);
+        ClassSpreadsheet savedSpreadsheet = classSpreadsheetService.saveRecord(
+                file.getOriginalFilename(),
+                teacher,
+                records,
+                classEntity,
+                maxAssessmentValue,
+                contentHash);
+
+        Set<StudentEntity> students = new HashSet<>();
+        savedSpreadsheet.getGradeRecords().forEach(record -> {
+            if (record.getStudent() != null) {
+                students.add(record.getStudent());
+            }
+        });
+
+
+        classEntity.setStudents(students);
+        classEntity = classRepository.save(classEntity);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("spreadsheet", savedSpreadsheet);
+        response.put("class", classEntity);
+        response.put("diagnostics", parsed.getDiagnostics());
+        response.put("duplicate", false);
+
+        return response;
     }
 
     @PutMapping("/update/{classId}")
     public ResponseEntity<?> updateSpreadsheet(
             @PathVariable("classId") Integer classId,
             @RequestParam("file") MultipartFile file,
-            @RequestParam("teacherId") Integer teacherId) {
+            @RequestParam("teacherId") Integer teacherId,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
         try {
             // Get the teacher
             TeacherEntity teacher = teacherRepository.findById(teacherId)
                     .orElseThrow(() -> new RuntimeException("Teacher not found"));
             List<ClassSpreadsheet> spreadsheet = classSpreadsheetService.getClassSpreadSheetByClassId(classId);
+            Long spreadsheetId = spreadsheet.get(0).getId();
+            if (async) {
+                return submitFileImport("update", teacherId, file, upload -> {
+                    ClassSpreadsheet updated = updateSpreadsheet(spreadsheetId, upload, teacher);
+                    return importSummary(updated, updated.getClassEntity());
+                });
+            }
             // Update the spreadsheet using the existing service method
-            ClassSpreadsheet updatedSpreadsheet = classSpreadsheetService.updateSpreadsheet(
-                    spreadsheet.get(0).getId(),
-                    file,
-                    teacher
-            );
+            ClassSpreadsheet updatedSpreadsheet = updateSpreadsheet(spreadsheetId, file, teacher);
 
             // Create response
             Map<String, Object> response = new HashMap<>();
@@ -117,6 +213,13 @@ public class SpreadSheetController {
         }
     }
 
+    // Identical re-uploads to the same spreadsheet run one at a time; the later ones find it unchanged
+    private ClassSpreadsheet updateSpreadsheet(Long spreadsheetId, MultipartFile file, TeacherEntity teacher) throws Exception {
+        String contentHash = classSpreadsheetService.contentHash(file);
+        return importCoalescer.run("update:" + spreadsheetId + ":" + contentHash,
+                () -> classSpreadsheetService.updateSpreadsheet(spreadsheetId, file, teacher, contentHash));
+    }
+
     // DTO for receiving updated grade data
     @Data
     public static class UpdateGradesRequest {
@@ -137,10 +240,34 @@ public class SpreadSheetController {
         }
     }
 
+    // DTO for changing individual cells; a null value removes the cell
+    @Data
+    public static class GradePatchRequest {
+        private Long gradeRecordId;
+        private Map<String, String> cells;
+    }
+
+    @PatchMapping("/grades")
+    @PreAuthorize("hasAuthority('TEACHER')")
+    public ResponseEntity<Object> patchGrades(@RequestBody List<GradePatchRequest> patches) {
+        try {
+            int updated = recordsService.patchGrades(patches);
+            return ResponseEntity.ok(Map.of("requested", patches.size(), "updated", updated));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error patching {} grade records", patches.size(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error updating grades: " + e.getMessage()));
+        }
+    }
+
     @PostMapping("/process-url")
     public ResponseEntity<?> processSpreadsheetUrl(
             @RequestParam("url") String spreadsheetUrl,
-            @RequestParam("teacherId") Integer teacherId) {
+            @RequestParam("teacherId") Integer teacherId,
+            @RequestParam(value = "async", defaultValue = "false") boolean async,
+            @RequestParam(value = "allSheets", defaultValue = "false") boolean allSheets) {
         try {
             // Validate the URL is supported
             if (!cloudSpreadsheetManager.canProcessLink(spreadsheetUrl)) {
@@ -152,6 +279,24 @@ public class SpreadSheetController {
             TeacherEntity teacher = teacherRepository.findById(teacherId)
                     .orElseThrow(() -> new RuntimeException("Teacher not found"));
 
+            if (allSheets) {
+                Callable<Map<String, Object>> importSheets = () -> {
+                    Map<String, Object> summary = sheetsSummary(cloudSpreadsheetManager.processAllSheets(spreadsheetUrl, teacher));
+                    summary.put("provider", cloudSpreadsheetManager.getServiceNameForLink(spreadsheetUrl));
+                    return summary;
+                };
+                return async ? submitImport("process-url-sheets", teacherId, importSheets) : ResponseEntity.ok(importSheets.call());
+            }
+
+            if (async) {
+                return submitImport("process-url", teacherId, () -> {
+                    ClassSpreadsheet imported = cloudSpreadsheetManager.processSharedSpreadsheet(spreadsheetUrl, teacher);
+                    Map<String, Object> summary = importSummary(imported, imported.getClassEntity());
+                    summary.put("provider", cloudSpreadsheetManager.getServiceNameForLink(spreadsheetUrl));
+                    return summary;
+                });
+            }
+
             // Process the spreadsheet
             ClassSpreadsheet spreadsheet = cloudSpreadsheetManager.processSharedSpreadsheet(spreadsheetUrl, teacher);
 
@@ -162,11 +307,106 @@ public class SpreadSheetController {
             response.put("provider", cloudSpreadsheetManager.getServiceNameForLink(spreadsheetUrl));
 
             return ResponseEntity.ok(response);
+        } catch (CloudProviderUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error processing spreadsheet URL: " + e.getMessage());
         }
     }
 
+    /**
+     * Current state of a background import: phase, row progress, row errors, warnings and the result.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getImportJob(@PathVariable("jobId") String jobId, @AuthenticationPrincipal UserEntity user) {
+        Optional<ImportJob> job = ownImportJob(jobId, user);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Import job not found");
+        }
+        return ResponseEntity.ok(job.get().snapshot());
+    }
+
+    /**
+     * The same state as server-sent events: "progress" on every update, then "complete".
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportJob(@PathVariable("jobId") String jobId, @AuthenticationPrincipal UserEntity user) {
+        return ownImportJob(jobId, user)
+                .map(job -> ResponseEntity.ok(importJobService.subscribe(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Another teacher's job is reported as not found, so job ids can't be probed
+    private Optional<ImportJob> ownImportJob(String jobId, UserEntity user) {
+        return importJobService.getJob(jobId)
+                .filter(job -> user != null && Objects.equals(job.getTeacherId(), user.getUserId()));
+    }
+
+    @FunctionalInterface
+    private interface FileImport {
+        Map<String, Object> run(MultipartFile file) throws Exception;
+    }
+
+    // The request's multipart file is gone once the request ends, so the job works on its own copy
+    private ResponseEntity<?> submitFileImport(String type, Integer teacherId, MultipartFile file, FileImport task) throws IOException {
+        TempFileMultipartFile upload = TempFileMultipartFile.copyOf(file);
+        ResponseEntity<?> response = submitImport(type, teacherId, () -> {
+            try {
+                return task.run(upload);
+            } finally {
+                upload.delete();
+            }
+        });
+        if (response.getStatusCode() != HttpStatus.ACCEPTED) {
+            upload.delete();
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> submitImport(String type, Integer teacherId, Callable<Map<String, Object>> task) {
+        try {
+            // The job belongs to whoever submitted it, whatever teacherId the request named
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            Integer ownerId = authentication != null && authentication.getPrincipal() instanceof UserEntity user
+                    ? Integer.valueOf(user.getUserId()) : teacherId;
+            ImportJob job = importJobService.submit(type, ownerId, task);
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("statusUrl", "/api/spreadsheet/jobs/" + job.getId());
+            response.put("eventsUrl", "/api/spreadsheet/jobs/" + job.getId() + "/events");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Too many imports in progress, please try again shortly");
+        }
+    }
+
+    // Job results hold IDs rather than entities, which could not lazy-load once the job's session is closed.
+    // The spreadsheet may be detached with its records never loaded, e.g. when the file was already imported.
+    private Map<String, Object> importSummary(ClassSpreadsheet spreadsheet, ClassEntity classEntity) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("spreadsheetId", spreadsheet.getId());
+        summary.put("classId", classEntity != null ? classEntity.getClassId() : null);
+        summary.put("className", classEntity != null ? classEntity.getClassName() : spreadsheet.getClassName());
+        summary.put("records", gradeRecordRepository.countByClassRecord_Id(spreadsheet.getId()));
+        return summary;
+    }
+
+    private static Map<String, Object> sheetsSummary(List<SheetImportResult> sheets) {
+        Map<SheetImportResult.Status, Long> counts = sheets.stream()
+                .collect(Collectors.groupingBy(SheetImportResult::getStatus, Collectors.counting()));
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("sheets", sheets);
+        summary.put("imported", counts.getOrDefault(SheetImportResult.Status.IMPORTED, 0L));
+        summary.put("duplicates", counts.getOrDefault(SheetImportResult.Status.DUPLICATE, 0L));
+        summary.put("skipped", counts.getOrDefault(SheetImportResult.Status.SKIPPED, 0L));
+        summary.put("failed", counts.getOrDefault(SheetImportResult.Status.FAILED, 0L));
+        summary.put("unknown", counts.getOrDefault(SheetImportResult.Status.UNKNOWN, 0L));
+        return summary;
+    }
+
     /**
      * Check if the provided URL is supported by our cloud spreadsheet integrations
      *
@@ -210,6 +450,38 @@ public class SpreadSheetController {
         }
     }
 
+    /**
+     * Sync a spreadsheet imported from a cloud link with its source now, instead of waiting for its
+     * scheduled sync. Only pulls the sheet if the source changed since the last sync.
+     */
+    @PostMapping("/{id}/sync")
+    @PreAuthorize("hasAuthority('TEACHER')")
+    public ResponseEntity<?> syncSpreadsheet(@PathVariable("id") Long id) {
+        try {
+            boolean changed = cloudSyncService.syncNow(id);
+            Map<String, Object> response = new HashMap<>();
+            response.put("spreadsheetId", id);
+            response.put("changed", changed);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (CloudProviderUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error syncing spreadsheet: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Circuit state, calls in flight and turned-away calls of each cloud provider used since startup.
+     */
+    @GetMapping("/cloud-providers/status")
+    public ResponseEntity<List<Map<String, Object>>> getCloudProviderStatus() {
+        return ResponseEntity.ok(cloudImportGateway.getProviderStatus());
+    }
+
     @GetMapping("/check-google-sheets-config")
     public ResponseEntity<Map<String, Boolean>> checkGoogleSheetsConfig() {
         Resource resource = new ClassPathResource("credentials/google-sheets-credentials.json");
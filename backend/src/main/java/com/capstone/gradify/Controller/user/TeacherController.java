@@ -7,7 +7,9 @@ import com.capstone.gradify.Repository.user.TeacherRepository;
 import com.capstone.gradify.Service.AiServices.AiAnalysisService;
 import com.capstone.gradify.Service.ClassService;
 import com.capstone.gradify.Service.RecordsService;
+import com.capstone.gradify.Service.TeacherDashboardService;
 import com.capstone.gradify.Service.spreadsheet.ClassSpreadsheetService;
+import com.capstone.gradify.dto.records.TeacherDashboardDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,6 +35,8 @@ public class TeacherController {
     private RecordsService recordsService;
     @Autowired
     private AiAnalysisService aiAnalysisService;
+    @Autowired
+    private TeacherDashboardService teacherDashboardService;
 
     @Autowired
     public TeacherController(ClassSpreadsheetService classSpreadsheetService) {
@@ -140,6 +144,14 @@ public class TeacherController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+    @GetMapping("/{teacherId}/dashboard")
+    public ResponseEntity<TeacherDashboardDTO> getTeacherDashboard(@PathVariable int teacherId) {
+        try {
+            return ResponseEntity.ok(teacherDashboardService.getDashboard(teacherId));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
     @GetMapping("/class-ai-analytics/{classId}")
     public ResponseEntity<?> getClassAIAnalytics(@PathVariable int classId) {
         try {
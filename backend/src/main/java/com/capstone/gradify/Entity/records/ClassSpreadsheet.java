@@ -10,10 +10,15 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_class_spreadsheet_content_hash", columnList = "contentHash"),
+        @Index(name = "idx_class_spreadsheet_next_sync", columnList = "nextSyncAt")
+})
 @Getter
 @Setter
 public class ClassSpreadsheet {
@@ -23,6 +28,19 @@ public class ClassSpreadsheet {
     private String className;
     private String fileName;
 
+    // Hex SHA-256 of the file the grade records were last imported from; cleared when grades are edited in the app
+    @Column(length = 64)
+    private String contentHash;
+
+    // Cloud spreadsheet the records are kept in sync with, if any, and which of its sheets (null for the first)
+    @Column(length = 2048)
+    private String sourceUrl;
+    private String sourceSheet;
+    // Drive version or Graph eTag of the source as of the last sync
+    private String sourceVersion;
+    private Date lastSyncedAt;
+    private Date nextSyncAt;
+
     @ManyToOne
     @JoinColumn(name = "userId")
     @JsonBackReference
@@ -0,0 +1,65 @@
+package com.capstone.gradify.Entity.records;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialised final grade of a single grade record, kept in step with the record's grades,
+ * its spreadsheet's max values and the class grading scheme by ComputedGradeService.
+ * Keyed by the grade record id; there is no foreign key so grade records can be replaced freely.
+ */
+@Entity
+@Table(name = "computed_grade", indexes = @Index(name = "idx_computed_grade_class", columnList = "class_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ComputedGradeEntity implements Persistable<Long> {
+    @Id
+    @Column(name = "grade_record_id")
+    private Long gradeRecordId;
+
+    @Column(name = "class_id", nullable = false)
+    private Integer classId;
+
+    private String studentNumber;
+
+    private double percentage;
+    private String letterGrade;
+    private String status;
+
+    // CompiledGradingScheme version the grade was computed with, 0 when the class had no scheme
+    private long schemeVersion;
+
+    @Column(columnDefinition = "TIMESTAMP")
+    private LocalDateTime computedAt;
+
+    // Ids are assigned, so tell Spring Data which rows to insert instead of merging them
+    @Transient
+    private boolean isNew = true;
+
+    public ComputedGradeEntity(Long gradeRecordId, Integer classId) {
+        this.gradeRecordId = gradeRecordId;
+        this.classId = classId;
+    }
+
+    @Override
+    public Long getId() {
+        return gradeRecordId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
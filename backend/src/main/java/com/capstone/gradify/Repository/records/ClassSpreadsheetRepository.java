@@ -3,10 +3,16 @@ package com.capstone.gradify.Repository.records;
 import com.capstone.gradify.Entity.records.ClassEntity;
 import com.capstone.gradify.Entity.records.ClassSpreadsheet;
 import com.capstone.gradify.Entity.user.TeacherEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,4 +23,24 @@ public interface ClassSpreadsheetRepository extends JpaRepository<ClassSpreadshe
     List<ClassSpreadsheet> findByClassEntity(ClassEntity classEntity);
     List<ClassSpreadsheet> findByFileName(String fileName);
     List<ClassSpreadsheet> findByClassEntity_ClassId(Integer classId);
+    List<ClassSpreadsheet> findByUploadedByAndContentHash(TeacherEntity teacher, String contentHash);
+
+    List<ClassSpreadsheet> findBySourceUrlIsNotNullAndNextSyncAtLessThanEqualOrderByNextSyncAtAsc(Date now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ClassSpreadsheet s SET s.sourceUrl = :sourceUrl, s.sourceSheet = :sourceSheet, " +
+            "s.sourceVersion = :sourceVersion, s.lastSyncedAt = :syncedAt, s.nextSyncAt = :nextSyncAt WHERE s.id = :id")
+    int linkSource(@Param("id") Long id, @Param("sourceUrl") String sourceUrl, @Param("sourceSheet") String sourceSheet,
+                   @Param("sourceVersion") String sourceVersion, @Param("syncedAt") Date syncedAt,
+                   @Param("nextSyncAt") Date nextSyncAt);
+
+    // Records edited by hand no longer match any uploaded file
+    @Modifying
+    @Query("UPDATE ClassSpreadsheet s SET s.contentHash = NULL WHERE s.id IN :ids AND s.contentHash IS NOT NULL")
+    int clearContentHash(@Param("ids") Collection<Long> ids);
+
+    // Moves a due sync to its next time only if no one else has since, so exactly one poller runs it
+    @Modifying
+    @Query("UPDATE ClassSpreadsheet s SET s.nextSyncAt = :nextSyncAt WHERE s.id = :id AND s.nextSyncAt = :dueAt")
+    int claimSync(@Param("id") Long id, @Param("dueAt") Date dueAt, @Param("nextSyncAt") Date nextSyncAt);
 }
@@ -0,0 +1,29 @@
+package com.capstone.gradify.Repository.records;
+
+import com.capstone.gradify.Entity.records.ComputedGradeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ComputedGradeRepository extends JpaRepository<ComputedGradeEntity, Long>, ComputedGradeRepositoryCustom {
+    List<ComputedGradeEntity> findByClassIdOrderByGradeRecordIdAsc(int classId);
+    long countByClassId(int classId);
+    long countByClassIdAndSchemeVersion(int classId, long schemeVersion);
+
+    // Bulk deletes rather than deleteAll, which fails when a concurrent refresh already removed a row
+    @Modifying
+    @Query("DELETE FROM ComputedGradeEntity g WHERE g.gradeRecordId IN :ids")
+    int deleteByGradeRecordIds(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ComputedGradeEntity g WHERE g.classId = :classId")
+    int deleteByClassId(@Param("classId") int classId);
+}
@@ -0,0 +1,18 @@
+package com.capstone.gradify.Repository.records;
+
+import com.capstone.gradify.Entity.records.ComputedGradeEntity;
+
+import java.util.Collection;
+
+/**
+ * Computed grade writes that Spring Data can't express.
+ */
+public interface ComputedGradeRepositoryCustom {
+
+    /**
+     * Insert or overwrite the rows in one JDBC batch. Safe against a concurrent refresh of the same
+     * records: whichever commits last wins, and neither fails on the other's insert. Bypasses the
+     * persistence context, so managed instances of these rows are stale afterwards.
+     */
+    void upsertAll(Collection<ComputedGradeEntity> grades);
+}
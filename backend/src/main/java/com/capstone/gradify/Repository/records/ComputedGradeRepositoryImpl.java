@@ -0,0 +1,39 @@
+package com.capstone.gradify.Repository.records;
+
+import com.capstone.gradify.Entity.records.ComputedGradeEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+public class ComputedGradeRepositoryImpl implements ComputedGradeRepositoryCustom {
+
+    private static final String UPSERT = "INSERT INTO computed_grade " +
+            "(grade_record_id, class_id, student_number, percentage, letter_grade, status, scheme_version, computed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (grade_record_id) DO UPDATE SET class_id = EXCLUDED.class_id, " +
+            "student_number = EXCLUDED.student_number, percentage = EXCLUDED.percentage, " +
+            "letter_grade = EXCLUDED.letter_grade, status = EXCLUDED.status, " +
+            "scheme_version = EXCLUDED.scheme_version, computed_at = EXCLUDED.computed_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<ComputedGradeEntity> grades) {
+        if (grades.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, grades, 100, (ps, grade) -> {
+            ps.setLong(1, grade.getGradeRecordId());
+            ps.setInt(2, grade.getClassId());
+            ps.setString(3, grade.getStudentNumber());
+            ps.setDouble(4, grade.getPercentage());
+            ps.setString(5, grade.getLetterGrade());
+            ps.setString(6, grade.getStatus());
+            ps.setLong(7, grade.getSchemeVersion());
+            ps.setTimestamp(8, grade.getComputedAt() != null ? Timestamp.valueOf(grade.getComputedAt()) : null);
+        });
+    }
+}
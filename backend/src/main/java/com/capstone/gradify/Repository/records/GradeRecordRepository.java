@@ -1,16 +1,74 @@
 package com.capstone.gradify.Repository.records;
 
+import com.capstone.gradify.dto.records.ClassRosterRowDTO;
+import com.capstone.gradify.dto.records.GradebookRowDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.capstone.gradify.Entity.records.GradeRecordsEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface GradeRecordRepository extends JpaRepository<GradeRecordsEntity, Integer> {
+public interface GradeRecordRepository extends JpaRepository<GradeRecordsEntity, Integer>, GradeRecordRepositoryCustom {
     List<GradeRecordsEntity> findByClassRecord_ClassEntity_ClassId(int classId);
+    long countByClassRecord_ClassEntity_ClassId(int classId);
+
+    long countByClassRecord_Id(Long spreadsheetId);
     List<GradeRecordsEntity> findByStudent_UserIdAndClassRecord_ClassEntity_ClassId(int studentId, int classId);
     List<GradeRecordsEntity> findByStudent_UserId(int studentId);
     Optional<GradeRecordsEntity> findById(Long id);
+
+    // With their student, spreadsheet and class in the same query, for edits that touch all three
+    @Query("SELECT r FROM GradeRecordsEntity r " +
+            "LEFT JOIN FETCH r.student " +
+            "LEFT JOIN FETCH r.classRecord s " +
+            "LEFT JOIN FETCH s.classEntity " +
+            "WHERE r.id IN :ids")
+    List<GradeRecordsEntity> findAllWithClassByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT r.studentNumber FROM GradeRecordsEntity r " +
+            "WHERE r.classRecord.classEntity.classId = :classId AND r.studentNumber IS NOT NULL")
+    List<String> findDistinctStudentNumbersByClassId(@Param("classId") int classId);
+
+    /**
+     * Roster rows of a class in one round trip: each grade record with its student's name and id
+     * and its computed grade, in record order.
+     */
+    @Query("SELECT new com.capstone.gradify.dto.records.ClassRosterRowDTO(" +
+            "r.id, r.studentNumber, s.firstName, s.lastName, s.userId, c.percentage, c.letterGrade, c.status) " +
+            "FROM GradeRecordsEntity r " +
+            "LEFT JOIN StudentEntity s ON s.studentNumber = r.studentNumber " +
+            "LEFT JOIN ComputedGradeEntity c ON c.gradeRecordId = r.id " +
+            "WHERE r.classRecord.classEntity.classId = :classId " +
+            "ORDER BY r.id")
+    List<ClassRosterRowDTO> findRosterRowsByClassId(@Param("classId") int classId);
+
+    /**
+     * Gradebook rows of a class, read through a cursor so an export holds a window of rows rather than
+     * the whole class. Must be consumed, and closed, inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.capstone.gradify.dto.records.GradebookRowDTO(" +
+            "r.id, r.studentNumber, s.firstName, s.lastName, r.grades, c.percentage, c.letterGrade, c.status) " +
+            "FROM GradeRecordsEntity r " +
+            "LEFT JOIN StudentEntity s ON s.studentNumber = r.studentNumber " +
+            "LEFT JOIN ComputedGradeEntity c ON c.gradeRecordId = r.id " +
+            "WHERE r.classRecord.classEntity.classId = :classId " +
+            "ORDER BY r.id")
+    Stream<GradebookRowDTO> streamGradebookRowsByClassId(@Param("classId") int classId);
+
+    // Every column name used by the class's grade records
+    @Query(value = "SELECT DISTINCT k.key FROM grade_records_entity r " +
+            "JOIN class_spreadsheet s ON s.id = r.class_record_id " +
+            "CROSS JOIN LATERAL jsonb_object_keys(r.grades) AS k(key) " +
+            "WHERE s.class_id = :classId", nativeQuery = true)
+    List<String> findGradeColumnsByClassId(@Param("classId") int classId);
 }
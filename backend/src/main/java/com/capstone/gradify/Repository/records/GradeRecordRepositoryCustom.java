@@ -0,0 +1,24 @@
+package com.capstone.gradify.Repository.records;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grade record writes that Spring Data can't express: cell-level changes to the grades document.
+ */
+public interface GradeRecordRepositoryCustom {
+
+    /**
+     * Changes to one record's grades: cells to set and cells to remove. Cells not mentioned are left alone.
+     */
+    record GradeCellUpdate(Long gradeRecordId, Map<String, String> set, Collection<String> remove) {
+    }
+
+    /**
+     * Apply the changes in one JDBC batch, merging each into the stored JSONB document rather than
+     * rewriting it. Bypasses the persistence context: records loaded in the same session must be
+     * detached, or their old grades written back at flush.
+     */
+    void updateGradeCells(List<GradeCellUpdate> updates);
+}
@@ -0,0 +1,38 @@
+package com.capstone.gradify.Repository.records;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.util.List;
+
+public class GradeRecordRepositoryImpl implements GradeRecordRepositoryCustom {
+
+    // || overwrites the set cells, - drops the removed ones; every other cell of the document is untouched
+    private static final String UPDATE_CELLS = "UPDATE grade_records_entity " +
+            "SET grades = (COALESCE(grades, '{}'::jsonb) || CAST(? AS jsonb)) - CAST(? AS text[]) WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void updateGradeCells(List<GradeCellUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_CELLS, updates, updates.size(), (ps, update) -> {
+            try {
+                ps.setString(1, objectMapper.writeValueAsString(update.set()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Could not serialize grades of record " + update.gradeRecordId(), e);
+            }
+            Array remove = ps.getConnection().createArrayOf("text", update.remove().toArray());
+            ps.setArray(2, remove);
+            ps.setLong(3, update.gradeRecordId());
+        });
+    }
+}
@@ -9,6 +9,9 @@ import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
 import com.capstone.gradify.Service.GradingSchemeService;
 import com.capstone.gradify.Service.RecordsService;
 import com.capstone.gradify.Service.ClassService;
+import com.capstone.gradify.Service.grading.CompiledGradingScheme;
+import com.capstone.gradify.Service.grading.GradeMatrix;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
 import com.capstone.gradify.Service.spreadsheet.ClassSpreadsheetService;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
@@ -40,6 +43,8 @@ public class AiAnalysisService {
     private GradingSchemeService gradingSchemeService;
     @Autowired
     private ClassSpreadsheetRepository classSpreadsheetRepository;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
     private AnthropicClient client;
 
     @PostConstruct
@@ -143,7 +148,8 @@ public class AiAnalysisService {
                     .temperature(0.3)
                     .build();
 
-            Message response = client.messages().create(params);
+            Message response = hotPathMetrics.time(HotPathMetrics.AI_ANALYSIS,
+                    () -> client.messages().create(params), "model", params.model().asString());
             return response.content().get(0).text()
                     .map(TextBlock::text)
                     .orElse("Analysis could not be generated");
@@ -171,11 +177,12 @@ public class AiAnalysisService {
         gradeDistribution.put("D", 0);
         gradeDistribution.put("F", 0);
 
-        // Use RecordsService's grade calculation for consistency
+        // Use RecordsService's grade calculation for consistency, compiling the scheme once for the class
+        CompiledGradingScheme compiledScheme = gradingSchemeService.compile(gradingScheme.getGradingScheme());
         for (GradeRecordsEntity record : gradeRecords) {
             double grade = recordsService.calculateGrade(
                     record.getGrades(),
-                    gradingScheme.getGradingScheme(),
+                    compiledScheme,
                     maxValues
             );
             // Convert grade to percentage
@@ -207,41 +214,24 @@ public class AiAnalysisService {
 
     private Map<String, Double> calculateAssessmentAverages(List<GradeRecordsEntity> gradeRecords,
                                                             Map<String, Integer> maxValues) {
-        Map<String, List<Double>> assessmentScores = new HashMap<>();
         Map<String, Double> assessmentAverages = new HashMap<>();
+        GradeMatrix matrix = GradeMatrix.of(gradeRecords);
 
-        // Initialize collections for all assessments
+        // Average the numeric raw scores of each assessment straight from the primitive matrix
         for (String assessment : maxValues.keySet()) {
-            assessmentScores.put(assessment, new ArrayList<>());
-        }
-
-        // Collect scores for each assessment
-        for (GradeRecordsEntity record : gradeRecords) {
-            Map<String, String> grades = record.getGrades();
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String assessment = entry.getKey();
-                String score = entry.getValue();
-                if (score != null && !score.trim().isEmpty() && maxValues.containsKey(assessment)) {
-                    try {
-                        double numericScore = Double.parseDouble(score);
-                        assessmentScores.get(assessment).add(numericScore);
-                    } catch (NumberFormatException ignored) {
-                        // Skip non-numeric grades
+            double total = 0.0;
+            int count = 0;
+            int column = matrix.columnOf(assessment);
+            if (column >= 0) {
+                for (int student = 0; student < matrix.getStudentCount(); student++) {
+                    double score = matrix.getScore(student, column);
+                    if (!Double.isNaN(score)) { // Skip missing and non-numeric grades
+                        total += score;
+                        count++;
                     }
                 }
             }
-        }
-
-        // Calculate averages
-        for (Map.Entry<String, List<Double>> entry : assessmentScores.entrySet()) {
-            String assessment = entry.getKey();
-            List<Double> scores = entry.getValue();
-            if (!scores.isEmpty()) {
-                double average = scores.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-                assessmentAverages.put(assessment, average);
-            } else {
-                assessmentAverages.put(assessment, 0.0);
-            }
+            assessmentAverages.put(assessment, count > 0 ? total / count : 0.0);
         }
 
         return assessmentAverages;
@@ -0,0 +1,101 @@
+package com.capstone.gradify.Service;
+
+import com.capstone.gradify.Entity.records.ClassEntity;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * Runs per-class work of teacher-wide analytics in parallel on a bounded pool, so a request takes about
+ * as long as its slowest class instead of the sum of all classes. Each class runs in its own transaction.
+ * <p>
+ * Configured with {@code gradify.analytics.parallelism} (worker threads, keep below the JDBC pool size)
+ * and {@code gradify.analytics.timeout-ms} (deadline for all classes of one request).
+ */
+@Component
+public class ClassAnalyticsExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMs;
+
+    public ClassAnalyticsExecutor(PlatformTransactionManager transactionManager,
+                                  @Value("${gradify.analytics.parallelism:4}") int parallelism,
+                                  @Value("${gradify.analytics.timeout-ms:30000}") long timeoutMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMs = timeoutMs;
+        int threads = Math.max(1, parallelism);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "class-analytics-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // When the queue is full the request thread does the work itself instead of failing
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 64), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Apply the given work to every class in parallel and return the results in class order.
+     *
+     * @param classes  The classes to process
+     * @param perClass Work for one class, given its class ID
+     * @return One result per class, in the order of the classes
+     */
+    public <T> List<T> forEachClass(List<ClassEntity> classes, IntFunction<T> perClass) {
+        List<T> results = new ArrayList<>(classes.size());
+        if (classes.size() <= 1) {
+            for (ClassEntity classEntity : classes) {
+                results.add(transactionTemplate.execute(status -> perClass.apply(classEntity.getClassId())));
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(classes.size());
+        for (ClassEntity classEntity : classes) {
+            int classId = classEntity.getClassId();
+            futures.add(executor.submit(() -> transactionTemplate.execute(status -> perClass.apply(classId))));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Class analytics did not finish within " + timeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while computing class analytics", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Error computing class analytics: " + cause.getMessage(), cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -12,9 +12,12 @@ import com.capstone.gradify.Entity.records.*;
 import com.capstone.gradify.Entity.user.StudentEntity;
 import com.capstone.gradify.Repository.ReportRepository;
 import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
+import com.capstone.gradify.Repository.records.ComputedGradeRepository;
 import com.capstone.gradify.Repository.records.GradingSchemeRepository;
 import com.capstone.gradify.Repository.user.TeacherRepository;
+import com.capstone.gradify.Service.grading.ClassGradesChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
@@ -36,9 +39,15 @@ public class ClassService {
     @Autowired
     private ReportRepository reportRepository;
     @Autowired
+    private ComputedGradeRepository computedGradeRepository;
+    @Autowired
     private GradingSchemeRepository gradingSchemeRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     public ClassEntity createClass(ClassEntity classEntity) {
-        return classRepository.save(classEntity);
+        ClassEntity saved = classRepository.save(classEntity);
+        eventPublisher.publishEvent(ClassGradesChangedEvent.of(saved));
+        return saved;
     }
     public ClassEntity getClassById(int id) {
         return classRepository.findById(id).orElse(null);
@@ -82,6 +91,9 @@ public class ClassService {
                     classSpreadsheetRepository.deleteAll(classSpreadsheets);
                 }
                 classRepository.deleteById(classId);
+                // No foreign key to cascade through, so the class's computed grades go explicitly
+                computedGradeRepository.deleteByClassId(classId);
+                eventPublisher.publishEvent(ClassGradesChangedEvent.of(classEntity));
                 msg = "Class record successfully deleted!";
             } catch (Exception e) {
                 msg = "Error deleting class record: " + e.getMessage();
@@ -0,0 +1,301 @@
+package com.capstone.gradify.Service;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
+import com.capstone.gradify.Repository.records.GradeRecordRepository;
+import com.capstone.gradify.Service.grading.ComputedGradeService;
+import com.capstone.gradify.dto.records.GradebookRowDTO;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writes a class's gradebook, or just its roster, as XLSX or CSV straight to a response stream.
+ * <p>
+ * Rows are read through a database cursor in a read-only transaction and written as they arrive:
+ * the XLSX writer keeps a small window of rows in memory and spills the rest to a temporary file, and
+ * the CSV writer keeps none, so memory stays flat however large the class is.
+ */
+@Service
+public class GradebookExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradebookExportService.class);
+
+    // Rows the XLSX writer keeps in memory before flushing them to its temporary file
+    private static final int ROW_WINDOW = 100;
+
+    private static final String STUDENT_NUMBER = "Student Number";
+    private static final String FIRST_NAME = "First Name";
+    private static final String LAST_NAME = "Last Name";
+    private static final String PERCENTAGE = "Percentage";
+    private static final String LETTER_GRADE = "Letter Grade";
+    private static final String STATUS = "Status";
+    private static final List<String> STUDENT_COLUMNS = List.of(STUDENT_NUMBER, FIRST_NAME, LAST_NAME);
+    private static final List<String> COMPUTED_COLUMNS = List.of(PERCENTAGE, LETTER_GRADE, STATUS);
+
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    @Autowired
+    private GradeRecordRepository gradeRecordRepository;
+    @Autowired
+    private ClassSpreadsheetRepository classSpreadsheetRepository;
+    @Autowired
+    private ComputedGradeService computedGradeService;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public enum Format {
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public enum View {
+        /** Every score column of the grade records, then the computed grade */
+        GRADEBOOK,
+        /** Students and their computed grade only */
+        ROSTER
+    }
+
+    public GradebookExportService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Compute any missing grades of the class and work out the export's columns. Call before the
+     * response is committed, so a failure here can still be reported with an error status.
+     */
+    public List<String> prepare(int classId, View view) {
+        computedGradeService.ensureClassGrades(classId);
+        List<String> columns = new ArrayList<>(STUDENT_COLUMNS);
+        if (view == View.GRADEBOOK) {
+            columns.addAll(scoreColumns(classId));
+        }
+        columns.addAll(COMPUTED_COLUMNS);
+        return columns;
+    }
+
+    /**
+     * Write the class's rows with the given columns.
+     *
+     * @param title Sheet name of an XLSX export
+     */
+    public void write(int classId, String title, List<String> columns, Format format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        int rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                try (Stream<GradebookRowDTO> stream = gradeRecordRepository.streamGradebookRowsByClassId(classId)) {
+                    return format == Format.XLSX
+                            ? writeXlsx(stream.iterator(), title, columns, out)
+                            : writeCsv(stream.iterator(), columns, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Exported {} rows of class {} as {} in {} ms", rows, classId, format,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int writeXlsx(Iterator<GradebookRowDTO> rows, String title, List<String> columns, OutputStream out)
+            throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW)) {
+            workbook.setCompressTempFiles(true);
+            SXSSFSheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(title != null ? title : "Gradebook"));
+            sheet.createFreezePane(0, 1);
+
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+            CellStyle percentStyle = workbook.createCellStyle();
+            percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columns.size(); i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(columns.get(i));
+                cell.setCellStyle(headerStyle);
+            }
+
+            int count = 0;
+            while (rows.hasNext()) {
+                GradebookRowDTO data = rows.next();
+                Row row = sheet.createRow(++count);
+                for (int i = 0; i < columns.size(); i++) {
+                    String column = columns.get(i);
+                    if (PERCENTAGE.equals(column)) {
+                        if (data.getPercentage() != null) {
+                            Cell cell = row.createCell(i);
+                            cell.setCellValue(data.getPercentage());
+                            cell.setCellStyle(percentStyle);
+                        }
+                        continue;
+                    }
+                    String value = value(data, column);
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    // Scores go in as numbers so they can be summed and charted
+                    if (!STUDENT_COLUMNS.contains(column) && NUMBER.matcher(value).matches()) {
+                        row.createCell(i).setCellValue(Double.parseDouble(value));
+                    } else {
+                        row.createCell(i).setCellValue(value);
+                    }
+                }
+            }
+            workbook.write(out);
+            return count;
+        }
+    }
+
+    private int writeCsv(Iterator<GradebookRowDTO> rows, List<String> columns, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Byte order mark, so Excel opens the file as UTF-8
+        writer.write('\uFEFF');
+        writeCsvLine(writer, columns);
+
+        int count = 0;
+        List<String> line = new ArrayList<>(columns.size());
+        while (rows.hasNext()) {
+            GradebookRowDTO data = rows.next();
+            line.clear();
+            for (String column : columns) {
+                line.add(PERCENTAGE.equals(column)
+                        ? (data.getPercentage() != null ? String.format(Locale.ROOT, "%.2f", data.getPercentage()) : null)
+                        : value(data, column));
+            }
+            writeCsvLine(writer, line);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // Text a spreadsheet would run as a formula is kept as text
+        char first = value.charAt(0);
+        if ((first == '=' || first == '+' || first == '-' || first == '@') && !NUMBER.matcher(value).matches()) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    // A cell of the row; names fall back to the record's own columns for students who haven't registered
+    private static String value(GradebookRowDTO row, String column) {
+        Map<String, String> grades = row.getGrades() != null ? row.getGrades() : Map.of();
+        return switch (column) {
+            case STUDENT_NUMBER -> row.getStudentNumber();
+            case FIRST_NAME -> row.getFirstName() != null ? row.getFirstName() : grades.get(FIRST_NAME);
+            case LAST_NAME -> row.getLastName() != null ? row.getLastName() : grades.get(LAST_NAME);
+            case LETTER_GRADE -> row.getLetterGrade();
+            case STATUS -> row.getStatus();
+            default -> grades.get(column);
+        };
+    }
+
+    /**
+     * The record columns of a class other than the student's identity and the computed grade: other
+     * text columns first, then the assessments (the columns with a max value), each in natural order.
+     */
+    private List<String> scoreColumns(int classId) {
+        Set<String> assessments = new HashSet<>();
+        for (ClassSpreadsheet spreadsheet : classSpreadsheetRepository.findByClassEntity_ClassId(classId)) {
+            if (spreadsheet.getAssessmentMaxValues() != null) {
+                assessments.addAll(spreadsheet.getAssessmentMaxValues().keySet());
+            }
+        }
+        List<String> text = new ArrayList<>();
+        List<String> scored = new ArrayList<>();
+        for (String column : gradeRecordRepository.findGradeColumnsByClassId(classId)) {
+            if (column.isBlank() || STUDENT_COLUMNS.contains(column) || COMPUTED_COLUMNS.contains(column)) {
+                continue;
+            }
+            (assessments.contains(column) ? scored : text).add(column);
+        }
+        text.sort(GradebookExportService::compareNatural);
+        scored.sort(GradebookExportService::compareNatural);
+        text.addAll(scored);
+        return text;
+    }
+
+    // "Quiz 2" before "Quiz 10"
+    private static int compareNatural(String a, String b) {
+        Matcher digitsA = DIGITS.matcher(a);
+        Matcher digitsB = DIGITS.matcher(b);
+        if (digitsA.find() && digitsB.find() && digitsA.start() == digitsB.start()
+                && a.regionMatches(true, 0, b, 0, digitsA.start())) {
+            int byNumber = Comparator.<String>comparingInt(String::length).thenComparing(Comparator.naturalOrder())
+                    .compare(digitsA.group(), digitsB.group());
+            if (byNumber != 0) {
+                return byNumber;
+            }
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(a, b);
+    }
+}
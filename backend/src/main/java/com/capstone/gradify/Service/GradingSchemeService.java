@@ -6,8 +6,12 @@ import com.capstone.gradify.Entity.user.TeacherEntity;
 import com.capstone.gradify.Repository.records.ClassRepository;
 import com.capstone.gradify.Repository.records.GradingSchemeRepository;
 import com.capstone.gradify.Repository.user.TeacherRepository;
+import com.capstone.gradify.Service.grading.CompiledGradingScheme;
+import com.capstone.gradify.Service.grading.ComputedGradeService;
+import com.capstone.gradify.Service.grading.GradingSchemeCompiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class GradingSchemeService {
@@ -20,6 +24,13 @@ public class GradingSchemeService {
     @Autowired
     private ClassRepository classRepository;
 
+    @Autowired
+    private GradingSchemeCompiler gradingSchemeCompiler;
+
+    @Autowired
+    private ComputedGradeService computedGradeService;
+
+    @Transactional
     public GradingSchemes saveGradingScheme(GradingSchemes gradingScheme, Integer classId, Integer teacherId) {
         TeacherEntity teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new RuntimeException("Teacher not found with ID: " + teacherId));
@@ -27,10 +38,20 @@ public class GradingSchemeService {
         ClassEntity classEntity = classRepository.findById(classId)
                 .orElseThrow(() -> new RuntimeException("Class not found with ID: " + classId));
 
+        // A class has a single scheme, so whatever was compiled for it before is now stale
+        GradingSchemes previousScheme = gradingSchemeRepository.findByClassEntity_ClassId(classId);
+        if (previousScheme != null) {
+            gradingSchemeCompiler.evict(previousScheme.getGradingScheme());
+        }
+
         // Associate the grading scheme with the teacher and class
         gradingScheme.setTeacherEntity(teacher);
         gradingScheme.setClassEntity(classEntity);
-        return gradingSchemeRepository.save(gradingScheme);
+        GradingSchemes savedScheme = gradingSchemeRepository.save(gradingScheme);
+
+        // Every stored grade of the class was computed with the old scheme
+        computedGradeService.refreshClass(classId);
+        return savedScheme;
     }
 
     public GradingSchemes getGradingSchemeByClassEntityId(int id) {
@@ -43,6 +64,7 @@ public class GradingSchemeService {
         return gradingSchemes; // This can be null
     }
 
+    @Transactional
     public GradingSchemes updateGradingScheme(GradingSchemes updatedScheme, Integer classId, Integer teacherId) {
         // Find the existing grading scheme first
         GradingSchemes existingScheme = gradingSchemeRepository.findByClassEntity_ClassId(classId);
@@ -54,6 +76,7 @@ public class GradingSchemeService {
         }
 
         // Update the grading scheme content
+        gradingSchemeCompiler.evict(existingScheme.getGradingScheme());
         existingScheme.setGradingScheme(updatedScheme.getGradingScheme());
 
         // Update teacher if provided
@@ -63,8 +86,31 @@ public class GradingSchemeService {
             existingScheme.setTeacherEntity(teacher);
         }
 
-        // Save and return the updated entity
-        return gradingSchemeRepository.save(existingScheme);
+        // Save the updated entity and recompute the class's stored grades with it
+        GradingSchemes savedScheme = gradingSchemeRepository.save(existingScheme);
+        computedGradeService.refreshClass(classId);
+        return savedScheme;
+    }
+
+    /**
+     * Get the compiled form of a class's grading scheme, parsing the JSON only once per scheme version.
+     *
+     * @param classId The class ID
+     * @return The compiled scheme, or null if the class has no grading scheme
+     */
+    public CompiledGradingScheme getCompiledSchemeByClassEntityId(int classId) {
+        GradingSchemes gradingSchemes = gradingSchemeRepository.findByClassEntity_ClassId(classId);
+        return gradingSchemes == null ? null : gradingSchemeCompiler.compile(gradingSchemes.getGradingScheme());
+    }
+
+    /**
+     * Get the compiled form of the given grading scheme JSON.
+     *
+     * @param schemeJson The grading scheme JSON, may be null
+     * @return The compiled scheme, or null if schemeJson is null
+     */
+    public CompiledGradingScheme compile(String schemeJson) {
+        return gradingSchemeCompiler.compile(schemeJson);
     }
 
     public String getGradeSchemeByClassEntityId(int id) {
@@ -4,14 +4,25 @@ import com.capstone.gradify.Controller.spreadsheet.SpreadSheetController;
 import com.capstone.gradify.Entity.records.*;
 import com.capstone.gradify.Entity.user.TeacherEntity;
 import com.capstone.gradify.Repository.records.ClassRepository;
+import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
 import com.capstone.gradify.Repository.records.GradeRecordRepository;
+import com.capstone.gradify.Repository.records.GradeRecordRepositoryCustom.GradeCellUpdate;
 import com.capstone.gradify.Repository.records.GradingSchemeRepository;
 import com.capstone.gradify.Repository.user.StudentRepository;
+import com.capstone.gradify.Service.grading.CompiledGradingScheme;
+import com.capstone.gradify.Service.grading.ComputedGradeService;
+import com.capstone.gradify.Service.grading.GradeMatrix;
+import com.capstone.gradify.Service.grading.GradeScale;
+import com.capstone.gradify.Service.grading.HeaderCategoryBinding;
+import com.capstone.gradify.Service.grading.ScoreDistribution;
+import com.capstone.gradify.Service.grading.ScoreSummary;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
+import com.capstone.gradify.dto.records.ClassRosterRowDTO;
+import com.capstone.gradify.dto.records.TeacherDashboardDTO;
 import com.capstone.gradify.dto.report.ReportDTO;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.mail.MessagingException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +32,13 @@ import com.capstone.gradify.Entity.user.StudentEntity;
 import jakarta.transaction.Transactional;
 
 import java.util.*;
+import java.util.function.DoublePredicate;
 
 @Service
 public class RecordsService {
     private static final Logger logger = LoggerFactory.getLogger(RecordsService.class);
+    // Per-row debug lines logged per roster build; the rest are only counted
+    private static final int MAX_ROW_TRACES = 5;
     @Autowired
     private GradeRecordRepository gradeRecordsRepository;
     @Autowired
@@ -37,8 +51,17 @@ public class RecordsService {
     private ReportService reportService;
     @Autowired
     private ClassRepository classRepository;
+    @Autowired
+    private ComputedGradeService computedGradeService;
+    @Autowired
+    private ClassAnalyticsExecutor classAnalyticsExecutor;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
+    @Autowired
+    private ClassSpreadsheetRepository classSpreadsheetRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    private final ObjectMapper mapper = new ObjectMapper();
     /**
      * DTO for student table data
      */
@@ -72,85 +95,46 @@ public class RecordsService {
     }
 
     public List<StudentTableData> getClassRosterTableData(int classId) {
-        logger.info("Fetching class roster for class ID: {}", classId);
-        List<GradeRecordsEntity> allRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
-        GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-        if (gradingScheme == null) {
-            logger.warn("No grading scheme found for class ID: {}. Grades will be N/A.", classId);
-        } else {
-            logger.info("Using grading scheme for class ID: {}: {}", classId, gradingScheme.getGradingScheme());
-        }
-
-        List<StudentTableData> tableData = new ArrayList<>();
-
-        for (GradeRecordsEntity record : allRecords) {
-            double percentageForDisplay = 0.0; // This will be the 0-100 scale for the Percentage column
-            String letterGradeToStore = "N/A";
-            String statusToStore = "Scheme Missing";
-
-            if (gradingScheme != null && gradingScheme.getGradingScheme() != null) {
-                percentageForDisplay = calculateGrade( // This returns 0-100
-                        record.getGrades(),
-                        gradingScheme.getGradingScheme(),
-                        record.getClassRecord().getAssessmentMaxValues()
-                );
+        return hotPathMetrics.time(HotPathMetrics.ROSTER_BUILD, () -> buildClassRoster(classId));
+    }
 
-                // Log the value EXACTLY before passing it to convertToLetterGrade
-                logger.info("Passing to convertToLetterGrade for {}: {}", record.getStudentNumber(), percentageForDisplay);
-                letterGradeToStore = convertToLetterGrade(percentageForDisplay); // Pass the 0-100 scale
+    private List<StudentTableData> buildClassRoster(int classId) {
+        logger.debug("Fetching class roster for class ID: {}", classId);
+        computedGradeService.ensureClassGrades(classId);
 
-                statusToStore = determineStatus(percentageForDisplay);
+        // Grade records, student names and computed grades in a single query
+        List<ClassRosterRowDTO> rosterRows = gradeRecordsRepository.findRosterRowsByClassId(classId);
 
-                logger.info("Calculated for {}: Percentage = {}, Letter Grade = {}, Status = {}",
-                        record.getStudentNumber(), percentageForDisplay, letterGradeToStore, statusToStore);
-            }
+        if (!rosterRows.isEmpty() && GradeScale.SCHEME_MISSING.equals(rosterRows.get(0).getStatus())) {
+            logger.warn("No grading scheme found for class ID: {}. Grades will be N/A.", classId);
+        }
 
-            Optional<StudentEntity> studentOpt = studentRepository.findByStudentNumber(record.getStudentNumber());
+        List<StudentTableData> tableData = new ArrayList<>(rosterRows.size());
+        int skipped = 0;
 
-            if (studentOpt.isPresent()) {
-                StudentEntity student = studentOpt.get();
-                String studentName = student.getFirstName() + " " + student.getLastName();
+        for (ClassRosterRowDTO row : rosterRows) {
+            if (row.getUserId() != null) {
+                String studentName = row.getFirstName() + " " + row.getLastName();
 
                 StudentTableData data = new StudentTableData(
                         studentName,
-                        record.getStudentNumber(),
-                        letterGradeToStore,
-                        percentageForDisplay, // Use the 0-100 scaled value
-                        statusToStore,
-                        student.getUserId()
+                        row.getStudentNumber(),
+                        row.getLetterGrade(),
+                        row.getPercentage() != null ? row.getPercentage() : 0.0, // 0-100 scale
+                        row.getStatus(),
+                        row.getUserId()
                 );
                 tableData.add(data);
-            } else {
-                logger.warn("Student not found for student number: {}", record.getStudentNumber());
+            } else if (++skipped <= MAX_ROW_TRACES) {
+                logger.debug("Student not found for student number: {}", row.getStudentNumber());
             }
         }
-        logger.info("Finished processing class roster for class ID: {}. Total students: {}", classId, tableData.size());
+        if (skipped > 0) {
+            logger.warn("Skipped {} roster rows of class ID {} whose student is not registered", skipped, classId);
+        }
+        logger.debug("Finished processing class roster for class ID: {}. Total students: {}", classId, tableData.size());
         return tableData;
     }
-    /**
-     * Convert numeric percentage to letter grade
-     */
-    private String convertToLetterGrade(double percentage) { // Expects 0-100
-        String grade;
-        if (percentage >= 90) grade = "A";
-        else if (percentage >= 80) grade = "B";
-        else if (percentage >= 70) grade = "C";
-        else if (percentage >= 60) grade = "D";
-        else grade = "F";
-        logger.info("convertToLetterGrade - Input: {}, Output: {}", percentage, grade);
-        return grade;
-    }
-
-    /**
-     * Determine student status based on grade
-     */
-    private String determineStatus(double percentage) {
-        if (percentage >= 80) return "Good Standing";
-        else if (percentage >= 70) return "Passing";
-        else if (percentage >= 60) return "At Risk";
-        else return "Failing";
-    }
 
     public double calculateStudentGrade(int studentNumber, int classId) {
         // Get student's grade records for this class
@@ -163,26 +147,15 @@ public class RecordsService {
         // Use the first record found
         GradeRecordsEntity record = records.get(0);
 
-        // Get grading scheme for this class
-        GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-        // Calculate the grade based on the grading scheme
-        return calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(), record.getClassRecord().getAssessmentMaxValues());
+        // Grade computed with the class's grading scheme
+        return computedGradeService.getGrades(List.of(record)).get(record.getId()).getPercentage();
     }
 
     public Map<String, Double> calculateClassGrades(int classId) {
-        // Get all grade records for this class
-        List<GradeRecordsEntity> allRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
-
-        // Get grading scheme for this class
-        GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-        // Calculate grade for each student
+        // Grade of each student in this class
         Map<String, Double> studentGrades = new HashMap<>();
-        for (GradeRecordsEntity record : allRecords) {
-            double grade = calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(), record.getClassRecord().getAssessmentMaxValues());
-            String studentNumber = record.getStudentNumber();
-            studentGrades.put(studentNumber, grade);
+        for (ComputedGradeEntity grade : computedGradeService.getClassGrades(classId)) {
+            studentGrades.put(grade.getStudentNumber(), grade.getPercentage());
         }
 
         return studentGrades;
@@ -192,491 +165,44 @@ public class RecordsService {
         if (schemeJson == null) { // This check is important
             return 0.0;
         }
-        try {
-            List<Map<String, Object>> schemeItems = mapper.readValue(
-                    schemeJson, new TypeReference<List<Map<String, Object>>>() {});
-
-            double totalGrade = 0.0;
-            double totalAppliedWeight = 0.0;
-
-            for (Map<String, Object> schemeItem : schemeItems) {
-                String name = (String) schemeItem.get("name");
-                // Ensure weight is present and is a number before parsing
-                Object weightObj = schemeItem.get("weight");
-                if (weightObj == null) continue; // Skip if weight is missing
-
-                double weight;
-                try {
-                    weight = Double.parseDouble(weightObj.toString());
-                } catch (NumberFormatException e) {
-                    // logger.warn("Invalid weight format for category '{}': {}", name, weightObj);
-                    continue; // Skip if weight is not a valid number
-                }
-
-                totalAppliedWeight += weight;
-                double categoryScore = getCategoryScore(grades, name, assessmentMaxValues);
-
-                if (categoryScore >= 0) {
-                    totalGrade += (categoryScore * (weight / 100.0));
-                } else {
-                    totalGrade += 0;
-                }
-            }
-
-            if (totalAppliedWeight > 0 && totalAppliedWeight <= 100) { // Ensure totalAppliedWeight is reasonable
-                // If totalAppliedWeight sums to 100, this simplifies to totalGrade
-                // If it's less (e.g. some categories had no grades), this will scale appropriately.
-                return (totalGrade / (totalAppliedWeight / 100.0));
-            } else if (totalAppliedWeight == 0) {
-                return 0.0;
-            } else {
-                // If totalAppliedWeight is > 100, it implies an issue with scheme definition
-                // logger.warn("Total applied weight {} is greater than 100 for scheme: {}", totalAppliedWeight, schemeJson);
-                // Decide how to handle this: normalize to 100, or return as is, or return error indicator
-                return totalGrade; // Or (totalGrade / (totalAppliedWeight / 100.0)) if that's intended.
-            }
-
-        } catch (JsonProcessingException e) {
-            // logger.error("Error parsing grading scheme JSON: {}", schemeJson, e);
-            // It might be better to throw a custom, more specific exception or return a special value.
-            throw new RuntimeException("Error parsing grading scheme: " + e.getMessage(), e);
-        }
+        return calculateGrade(grades, gradingSchemeService.compile(schemeJson), assessmentMaxValues);
     }
 
-    private double getCategoryScore(Map<String, String> grades, String category, Map<String, Integer> assessmentMaxValues) {
-        // Map category names to potential keys in the grade records
-        category = category.trim();
-        Map<String, Integer> maxValues = assessmentMaxValues != null ? assessmentMaxValues : new HashMap<>();
-
-        // Handle common category mappings with multiple variations
-        if (category.equalsIgnoreCase("Quizzes") || category.equalsIgnoreCase("Quiz") ||
-                category.equalsIgnoreCase("Quizes") || category.equalsIgnoreCase("Short Quiz") ||
-                category.equalsIgnoreCase("Pop Quiz") || category.equalsIgnoreCase("Weekly Quiz")) {
-            // Look for quiz-related keys with extensive variations
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.matches("Q\\d+") || key.matches("q\\d+") || key.matches("quiz\\d+") || key.matches("qz\\d+") ||
-                        key.startsWith("quiz") || key.contains("quiz") || key.startsWith("q ") ||
-                        key.equals("q") || key.contains("short quiz") || key.contains("pop quiz") ||
-                        key.contains("weekly quiz") || key.contains("daily quiz") || key.matches("sq\\d+")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Assignments") || category.equalsIgnoreCase("Assignment") ||
-                category.equalsIgnoreCase("Homework") || category.equalsIgnoreCase("Homeworks") ||
-                category.equalsIgnoreCase("Task") || category.equalsIgnoreCase("Tasks") ||
-                category.equalsIgnoreCase("Exercise") || category.equalsIgnoreCase("Exercises") ||
-                category.equalsIgnoreCase("Activity") || category.equalsIgnoreCase("Activities")) {
-            // Look for assignment-related keys with extensive variations
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.matches("A\\d+") || key.matches("a\\d+") || key.matches("assignment\\d+") || key.matches("assign\\d+") ||
-                        key.matches("hw\\d+") || key.matches("homework\\d+") || key.matches("h\\d+") ||
-                        key.matches("task\\d+") || key.matches("t\\d+") || key.matches("exercise\\d+") ||
-                        key.matches("ex\\d+") || key.matches("activity\\d+") || key.matches("act\\d+") ||
-                        key.startsWith("assignment") || key.startsWith("assign") || key.startsWith("homework") ||
-                        key.startsWith("task") || key.startsWith("exercise") || key.startsWith("activity") ||
-                        key.contains("assignment") || key.contains("homework") || key.contains("task") ||
-                        key.contains("exercise") || key.contains("activity") || key.startsWith("hw") ||
-                        key.equals("a") || key.equals("h") || key.equals("t") || key.contains("seatwork") ||
-                        key.contains("classwork") || key.contains("work")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Projects") || category.equalsIgnoreCase("Project") ||
-                category.equalsIgnoreCase("Group Project") || category.equalsIgnoreCase("Group Projects") ||
-                category.equalsIgnoreCase("Individual Project") || category.equalsIgnoreCase("Team Project") ||
-                category.equalsIgnoreCase("Mini Project") || category.equalsIgnoreCase("Major Project")) {
-            // Look for project-related keys with extensive variations
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.matches("p\\d+") || key.matches("project\\d+") || key.matches("proj\\d+") ||
-                        key.matches("gp\\d+") || key.matches("group\\d+") || key.matches("team\\d+") ||
-                        key.matches("mini\\d+") || key.matches("major\\d+") || key.matches("mp\\d+") ||
-                        key.startsWith("project") || key.startsWith("proj") || key.contains("project") ||
-                        key.contains("group project") || key.contains("team project") ||
-                        key.contains("individual project") || key.contains("mini project") ||
-                        key.contains("major project") || key.startsWith("group") || key.startsWith("team") ||
-                        key.equals("p") || key.contains("final project") || key.contains("capstone project")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Participation") || category.equalsIgnoreCase("Class Participation") ||
-                category.equalsIgnoreCase("Attendance") || category.equalsIgnoreCase("Engagement") ||
-                category.equalsIgnoreCase("Class Work") || category.equalsIgnoreCase("Classwork") ||
-                category.equalsIgnoreCase("Class Engagement") || category.equalsIgnoreCase("Active Participation") ||
-                category.equalsIgnoreCase("Discussion") || category.equalsIgnoreCase("Class Discussion")) {
-            // Look for participation-related keys with extensive variations
-            String[] participationKeys = {"Participation", "Class Participation", "CP", "Attendance",
-                    "Class Work", "Classwork", "CW", "Engagement", "Class Engagement",
-                    "Active Participation", "Discussion", "Class Discussion", "Disc",
-                    "Participate", "Attend", "Present", "Active", "Involve", "Interaction"};
-            for (String key : participationKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // Check for abbreviated or partial matches
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.contains("participation") || key.contains("attendance") ||
-                        key.contains("engagement") || key.contains("discussion") ||
-                        key.equals("cp") || key.equals("cw") || key.equals("disc") ||
-                        key.contains("classwork") || key.contains("class work")) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Prelim Exam") || category.equalsIgnoreCase("Preliminary Exam") ||
-                category.equalsIgnoreCase("Prelim") || category.equalsIgnoreCase("Preliminary") ||
-                category.equalsIgnoreCase("Pre Exam") || category.equalsIgnoreCase("Pre-Exam") ||
-                category.equalsIgnoreCase("Prelims") || category.equalsIgnoreCase("First Exam") ||
-                category.equalsIgnoreCase("1st Exam") || category.equalsIgnoreCase("Exam 1")) {
-            // Look for preliminary exam keys with extensive variations
-            String[] prelimKeys = {"PE", "Prelim", "Preliminary", "Prelim Exam", "Preliminary Exam",
-                    "Pre-Exam", "Pre Exam", "Prelims", "First Exam", "1st Exam",
-                    "Exam 1", "Exam1", "E1", "PreE", "PrelE", "Initial Exam"};
-            for (String key : prelimKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // Check for pattern matches
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.contains("prelim") || key.contains("preliminary") ||
-                        key.contains("first exam") || key.contains("1st exam") ||
-                        key.equals("pe") || key.equals("e1") || key.contains("initial exam")) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Pre-Final Exam") || category.equalsIgnoreCase("Prefinal Exam")) {
-            // Look for pre-final exam keys
-            String[] preFinalKeys = {"PFE", "Pre-Final", "Prefinal", "Pre-Final Exam", "Prefinal Exam"};
-            for (String key : preFinalKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Midterm Exam") || category.equalsIgnoreCase("Midterm") ||
-                category.equalsIgnoreCase("Mid-Term") || category.equalsIgnoreCase("Mid Term") ||
-                category.equalsIgnoreCase("Middle Exam") || category.equalsIgnoreCase("Second Exam") ||
-                category.equalsIgnoreCase("2nd Exam") || category.equalsIgnoreCase("Exam 2")) {
-            // Look for midterm keys with extensive variations
-            String[] midtermKeys = {"ME", "MT", "Midterm", "Midterm Exam", "Mid-Term", "Mid Term",
-                    "Mid-Term Exam", "Middle Exam", "Second Exam", "2nd Exam",
-                    "Exam 2", "Exam2", "E2", "MidE", "MiddleE"};
-            for (String key : midtermKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // Check for pattern matches
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.contains("midterm") || key.contains("mid-term") || key.contains("mid term") ||
-                        key.contains("middle exam") || key.contains("second exam") || key.contains("2nd exam") ||
-                        key.equals("me") || key.equals("mt") || key.equals("e2")) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Final Exam") || category.equalsIgnoreCase("Final") ||
-                category.equalsIgnoreCase("Finals") || category.equalsIgnoreCase("Final Examination") ||
-                category.equalsIgnoreCase("Comprehensive Exam") || category.equalsIgnoreCase("Comprehensive") ||
-                category.equalsIgnoreCase("Third Exam") || category.equalsIgnoreCase("3rd Exam") ||
-                category.equalsIgnoreCase("Exam 3") || category.equalsIgnoreCase("Last Exam")) {
-            // Look for final exam keys with extensive variations
-            String[] finalKeys = {"FE", "Final", "Final Exam", "Finals", "Final Examination",
-                    "Comprehensive", "Comprehensive Exam", "Comp", "CompE", "Third Exam",
-                    "3rd Exam", "Exam 3", "Exam3", "E3", "Last Exam", "LE", "FinalE"};
-            for (String key : finalKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // Check for pattern matches
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey().toLowerCase();
-                if (key.contains("final") || key.contains("comprehensive") ||
-                        key.contains("third exam") || key.contains("3rd exam") ||
-                        key.contains("last exam") || key.equals("fe") || key.equals("e3") ||
-                        key.equals("comp") || key.equals("le")) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Labs") || category.equalsIgnoreCase("Laboratory")) {
-            // Look for lab-related keys (Lab1, Lab2, etc.)
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey();
-                if (key.matches("Lab\\d+") || key.matches("Laboratory\\d+") || key.matches("L\\d+") ||
-                        key.toLowerCase().startsWith("lab") || key.toLowerCase().contains("laboratory")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(key, 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Recitation") || category.equalsIgnoreCase("Recitations")) {
-            // Look for recitation-related keys
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey();
-                if (key.matches("R\\d+") || key.matches("Recitation\\d+") || key.matches("Recit\\d+") ||
-                        key.toLowerCase().startsWith("recitation") || key.toLowerCase().startsWith("recit") ||
-                        key.toLowerCase().contains("recitation")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(key, 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Presentations")) {
-            // Look for presentation-related keys
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey();
-                if (key.matches("Presentation\\d+") || key.matches("Pres\\d+") ||
-                        key.toLowerCase().startsWith("presentation") || key.toLowerCase().startsWith("pres") ||
-                        key.toLowerCase().contains("presentation") || key.toLowerCase().contains("report")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(key, 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Case Study") || category.equalsIgnoreCase("Case Studies")) {
-            // Look for case study-related keys
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey();
-                if (key.matches("CS\\d+") || key.matches("Case\\d+") || key.matches("CaseStudy\\d+") ||
-                        key.toLowerCase().startsWith("case") || key.toLowerCase().contains("case study")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(key, 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Essays") || category.equalsIgnoreCase("Writing")) {
-            // Look for essay/writing-related keys
-            double total = 0;
-            int count = 0;
-
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                String key = entry.getKey();
-                if (key.matches("Essay\\d+") || key.matches("E\\d+") || key.matches("Writing\\d+") ||
-                        key.toLowerCase().startsWith("essay") || key.toLowerCase().startsWith("writing") ||
-                        key.toLowerCase().contains("essay") || key.toLowerCase().contains("paper")) {
-                    try {
-                        double score = Double.parseDouble(entry.getValue());
-                        int maxValue = maxValues.getOrDefault(key, 100);
-                        total += (score / maxValue) * 100;
-                        count++;
-                    } catch (NumberFormatException e) {
-                        // Skip non-numeric values
-                    }
-                }
-            }
-            return count > 0 ? total / count : -1;
-
-        } else if (category.equalsIgnoreCase("Practicum") || category.equalsIgnoreCase("Practical")) {
-            // Look for practicum/practical-related keys
-            String[] practicumKeys = {"Practicum", "Practical", "Prac", "Hands-on", "Practice"};
-            for (String key : practicumKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Thesis") || category.equalsIgnoreCase("Capstone")) {
-            // Look for thesis/capstone-related keys
-            String[] thesisKeys = {"Thesis", "Capstone", "Thesis Defense", "Final Project", "Senior Project"};
-            for (String key : thesisKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else if (category.equalsIgnoreCase("Oral Exam") || category.equalsIgnoreCase("Oral Examination")) {
-            // Look for oral exam-related keys
-            String[] oralKeys = {"OE", "Oral", "Oral Exam", "Oral Examination", "Viva", "Defense"};
-            for (String key : oralKeys) {
-                if (parseGradeValue(grades.get(key)) != -1) {
-                    double score = parseGradeValue(grades.get(key));
-                    int maxValue = maxValues.getOrDefault(key, 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-            return -1;
-
-        } else {
-            // For other categories, try exact match first, then partial match
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                if (entry.getKey().equalsIgnoreCase(category)) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // Try partial match if exact match fails
-            for (Map.Entry<String, String> entry : grades.entrySet()) {
-                if (entry.getKey().toLowerCase().contains(category.toLowerCase()) ||
-                        category.toLowerCase().contains(entry.getKey().toLowerCase())) {
-                    double score = parseGradeValue(entry.getValue());
-                    int maxValue = maxValues.getOrDefault(entry.getKey(), 100);
-                    return (score / maxValue) * 100;
-                }
-            }
-
-            // If no match found, return -1 to indicate missing category
-            return -1;
+    /**
+     * Calculate a student's 0-100 grade against an already compiled grading scheme.
+     * Callers grading many records with the same scheme should compile it once and use this overload.
+     */
+    public double calculateGrade(Map<String, String> grades, CompiledGradingScheme scheme, Map<String, Integer> assessmentMaxValues) {
+        if (scheme == null) {
+            return 0.0;
         }
+        Map<String, String> studentGrades = grades != null ? grades : Collections.emptyMap();
+        HeaderCategoryBinding binding = scheme.bindingFor(studentGrades.keySet());
+        return binding.grade(binding.values(studentGrades), binding.maxValues(assessmentMaxValues));
     }
 
     public double calculateClassAverageGrade(int classId) {
-        // Get all grade records for this class
-        List<GradeRecordsEntity> allRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
+        // Get the computed grades of this class
+        List<ComputedGradeEntity> classGrades = computedGradeService.getClassGrades(classId);
 
-        if (allRecords.isEmpty()) {
+        if (classGrades.isEmpty()) {
             return 0.0; // No records found, return 0
         }
 
-        // Get grading scheme for this class
-        GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-        // Calculate grade for each student and sum them
+        // Sum the grade of each student
         double totalGrades = 0.0;
-        int studentCount = 0;
-
-        for (GradeRecordsEntity record : allRecords) {
-            double grade = calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(), record.getClassRecord().getAssessmentMaxValues());
-            totalGrades += grade;
-            studentCount++;
+        for (ComputedGradeEntity grade : classGrades) {
+            totalGrades += grade.getPercentage();
         }
 
         // Return the average
-        return studentCount > 0 ? totalGrades / studentCount : 0.0;
+        return totalGrades / classGrades.size();
     }
     public int getStudentCount(int classId) {
 
         List<GradeRecordsEntity> allRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
         return allRecords.size();
     }
-    private double parseGradeValue(String value) {
-        if (value == null) return -1;
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return -1;
-        }
-    }
     public List<GradeRecordsEntity> getGradeRecordsByStudentId(int studentId) {
         return gradeRecordsRepository.findByStudent_UserId(studentId);
     }
@@ -707,29 +233,10 @@ public class RecordsService {
             return 0;
         }
 
-        for (ClassEntity classEntity : teacherClasses) {
-            int classId = classEntity.getClassId();
-            // Fetch grading scheme
-            GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-            // If no grading scheme, skip grade calculation for this class
-            if (gradingScheme == null || gradingScheme.getGradingScheme() == null) {
-                // Optionally log this:
-                // logger.warn("No grading scheme found for class ID: {}. Skipping for at-risk calculation.", classId);
-                continue;
-            }
-
-            List<GradeRecordsEntity> classRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
-
-            for (GradeRecordsEntity record : classRecords) {
-                double grade = calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(),
-                        record.getClassRecord().getAssessmentMaxValues());
-                // Assuming calculateGrade returns a percentage (e.g., 85.0 for 85%)
-                // If it returns a 0-1 scale, adjust the condition below.
-                if (grade < 60 && record.getStudentNumber() != null) { // Ensure your 'at-risk' threshold is correct
-                    uniqueAtRiskStudents.add(record.getStudentNumber());
-                }
-            }
+        // Classes are processed in parallel and their at-risk students merged
+        for (Set<String> classAtRisk : classAnalyticsExecutor.forEachClass(teacherClasses,
+                classId -> studentsWithGrade(classId, grade -> grade < GradeScale.AT_RISK_THRESHOLD))) {
+            uniqueAtRiskStudents.addAll(classAtRisk);
         }
         return uniqueAtRiskStudents.size();
     }
@@ -743,31 +250,30 @@ public class RecordsService {
             return 0;
         }
 
-        for (ClassEntity classEntity : teacherClasses) {
-            int classId = classEntity.getClassId();
-            // Fetch grading scheme
-            GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-
-            // If no grading scheme, skip grade calculation for this class
-            if (gradingScheme == null || gradingScheme.getGradingScheme() == null) {
-                // Optionally log this:
-                // logger.warn("No grading scheme found for class ID: {}. Skipping for top-performer calculation.", classId);
-                continue;
-            }
-
-            List<GradeRecordsEntity> classRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
+        // Classes are processed in parallel and their top performers merged
+        for (Set<String> classTop : classAnalyticsExecutor.forEachClass(teacherClasses,
+                classId -> studentsWithGrade(classId, grade -> grade >= GradeScale.TOP_PERFORMER_THRESHOLD))) {
+            uniqueTopStudents.addAll(classTop);
+        }
+        return uniqueTopStudents.size();
+    }
 
-            for (GradeRecordsEntity record : classRecords) {
-                double grade = calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(),
-                        record.getClassRecord().getAssessmentMaxValues());
-                // Assuming calculateGrade returns a percentage (e.g., 85.0 for 85%)
-                // If it returns a 0-1 scale, adjust the condition below.
-                if (grade >= 80 && record.getStudentNumber() != null) { // Ensure your 'top-performing' threshold is correct
-                    uniqueTopStudents.add(record.getStudentNumber());
-                }
+    /**
+     * Student numbers in a class whose final grade passes the given test.
+     * Classes without a grading scheme have no graded students.
+     */
+    private Set<String> studentsWithGrade(int classId, DoublePredicate test) {
+        Set<String> students = new HashSet<>();
+        for (ComputedGradeEntity grade : computedGradeService.getClassGrades(classId)) {
+            // If no grading scheme, skip this class
+            if (grade.getSchemeVersion() == ComputedGradeService.NO_SCHEME_VERSION) {
+                break;
+            }
+            if (test.test(grade.getPercentage()) && grade.getStudentNumber() != null) {
+                students.add(grade.getStudentNumber());
             }
         }
-        return uniqueTopStudents.size();
+        return students;
     }
 
     public int getStudentCountByTeacher(int teacherId) {
@@ -777,15 +283,10 @@ public class RecordsService {
         // Use a Set to track unique students by their student number
         Set<String> uniqueStudentNumbers = new HashSet<>();
 
-        // For each class, get all students and add them to the set
-        for (ClassEntity classEntity : teacherClasses) {
-            List<GradeRecordsEntity> classRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classEntity.getClassId());
-
-            for (GradeRecordsEntity record : classRecords) {
-                if (record.getStudentNumber() != null) {
-                    uniqueStudentNumbers.add(record.getStudentNumber());
-                }
-            }
+        // Get the students of every class in parallel and add them to the set
+        for (List<String> classStudents : classAnalyticsExecutor.forEachClass(teacherClasses,
+                gradeRecordsRepository::findDistinctStudentNumbersByClassId)) {
+            uniqueStudentNumbers.addAll(classStudents);
         }
 
         // Return the count of unique students
@@ -799,14 +300,13 @@ public class RecordsService {
             return 0.0;
         }
 
+        Map<Long, ComputedGradeEntity> computedGrades = computedGradeService.getGrades(gradeRecords);
         double total = 0.0;
         int count = 0;
 
         for (GradeRecordsEntity record : gradeRecords) {
-            int classId = record.getClassRecord().getClassEntity().getClassId();
-            GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-            double percentage = calculateGrade(record.getGrades(), gradingScheme.getGradingScheme(), record.getClassRecord().getAssessmentMaxValues());
-            total += percentage;
+            ComputedGradeEntity grade = computedGrades.get(record.getId());
+            total += grade != null ? grade.getPercentage() : 0.0;
             count++;
         }
 
@@ -816,16 +316,13 @@ public class RecordsService {
     public Map<Integer, Double> getAllGradesByStudentId(int studentId) {
         List<GradeRecordsEntity> gradeRecords = gradeRecordsRepository.findByStudent_UserId(studentId);
         Map<Integer, Double> gradesByClass = new HashMap<>();
+        Map<Long, ComputedGradeEntity> computedGrades = computedGradeService.getGrades(gradeRecords);
 
         for (GradeRecordsEntity record : gradeRecords) {
-            int classId = record.getClassRecord().getClassEntity().getClassId();
-            GradingSchemes gradingScheme = gradingSchemeService.getGradingSchemeByClassEntityId(classId);
-            double percentage = calculateGrade(
-                record.getGrades(),
-                gradingScheme.getGradingScheme(),
-                record.getClassRecord().getAssessmentMaxValues()
-            );
-            gradesByClass.put(classId, percentage);
+            ComputedGradeEntity grade = computedGrades.get(record.getId());
+            if (grade != null) {
+                gradesByClass.put(grade.getClassId(), grade.getPercentage());
+            }
         }
 
         return gradesByClass;
@@ -919,66 +416,142 @@ public class RecordsService {
         // Find all classes taught by this teacher
         List<ClassEntity> teacherClasses = classService.getClassesByTeacherId(teacherId);
 
-        // Collect all assessment data by type across all classes
-        Map<String, List<Double>> assessmentScores = new HashMap<>();
+        // Collect all assessment data by type across all classes, one class per worker
+        Map<String, ScoreDistribution> assessmentScores = new HashMap<>();
 
-        for (ClassEntity classEntity : teacherClasses) {
-            int classId = classEntity.getClassId();
-            List<GradeRecordsEntity> classRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
-
-            if (classRecords.isEmpty()) continue;
-
-            Map<String, Integer> assessmentMaxValues = classRecords.get(0).getClassRecord().getAssessmentMaxValues();
-
-            // Process each assessment type in this class
-            for (String assessmentKey : assessmentMaxValues.keySet()) {
-                String assessmentType = getAssessmentType(assessmentKey);
-
-                // Initialize list if not exists
-                assessmentScores.computeIfAbsent(assessmentType, k -> new ArrayList<>());
-
-                // Collect scores for this assessment type
-                for (GradeRecordsEntity record : classRecords) {
-                    Map<String, String> grades = record.getGrades();
-                    if (grades.containsKey(assessmentKey)) {
-                        double score = parseGradeValue(grades.get(assessmentKey));
-                        if (score >= 0) {
-                            int maxValue = assessmentMaxValues.get(assessmentKey);
-                            double percentage = (score / maxValue) * 100;
-                            assessmentScores.get(assessmentType).add(percentage);
-                        }
-                    }
+        for (Map<String, ScoreDistribution> classScores : classAnalyticsExecutor.forEachClass(teacherClasses, this::classAssessmentScores)) {
+            mergeAssessmentScores(classScores, assessmentScores);
+        }
+
+        return summarizeAssessmentScores(assessmentScores);
+    }
+
+    /**
+     * Build every teacher dashboard metric in one pass over the given classes: for each class one
+     * roster projection query (student count, at-risk, top performers, grade distribution) and one
+     * grade record load (assessment performance). Classes are processed in parallel and merged.
+     */
+    public TeacherDashboardDTO buildTeacherDashboard(List<ClassEntity> teacherClasses) {
+        Set<String> uniqueStudentNumbers = new HashSet<>();
+        Set<String> uniqueAtRiskStudents = new HashSet<>();
+        Set<String> uniqueTopStudents = new HashSet<>();
+        Map<String, Integer> distribution = new HashMap<>();
+        for (String grade : List.of("A", "B", "C", "D", "F", GradeScale.NO_GRADE)) {
+            distribution.put(grade, 0);
+        }
+        Map<String, ScoreDistribution> assessmentScores = new HashMap<>();
+
+        for (ClassDashboardPart part : classAnalyticsExecutor.forEachClass(teacherClasses, this::classDashboardPart)) {
+            uniqueStudentNumbers.addAll(part.studentNumbers);
+            uniqueAtRiskStudents.addAll(part.atRiskStudents);
+            uniqueTopStudents.addAll(part.topStudents);
+            part.distribution.forEach((grade, count) -> distribution.merge(grade, count, Integer::sum));
+            mergeAssessmentScores(part.assessmentScores, assessmentScores);
+        }
+
+        TeacherDashboardDTO dashboard = new TeacherDashboardDTO();
+        dashboard.setStudentCount(uniqueStudentNumbers.size());
+        dashboard.setAtRiskCount(uniqueAtRiskStudents.size());
+        dashboard.setTopPerformerCount(uniqueTopStudents.size());
+        dashboard.setGradeDistribution(distribution);
+        dashboard.setClassPerformance(summarizeAssessmentScores(assessmentScores));
+        return dashboard;
+    }
+
+    private ClassDashboardPart classDashboardPart(int classId) {
+        ClassDashboardPart part = new ClassDashboardPart();
+        computedGradeService.ensureClassGrades(classId);
+
+        for (ClassRosterRowDTO row : gradeRecordsRepository.findRosterRowsByClassId(classId)) {
+            String studentNumber = row.getStudentNumber();
+            boolean graded = row.getPercentage() != null && !GradeScale.SCHEME_MISSING.equals(row.getStatus());
+
+            if (studentNumber != null) {
+                part.studentNumbers.add(studentNumber);
+                if (graded && row.getPercentage() < GradeScale.AT_RISK_THRESHOLD) {
+                    part.atRiskStudents.add(studentNumber);
+                }
+                if (graded && row.getPercentage() >= GradeScale.TOP_PERFORMER_THRESHOLD) {
+                    part.topStudents.add(studentNumber);
                 }
             }
+            // The distribution counts roster entries, i.e. records whose student exists
+            if (row.getUserId() != null && row.getLetterGrade() != null) {
+                part.distribution.merge(row.getLetterGrade(), 1, Integer::sum);
+            }
         }
 
-        // Calculate performance statistics for each assessment type
-        List<TeacherAssessmentPerformance> performanceData = new ArrayList<>();
+        part.assessmentScores = classAssessmentScores(classId);
+        return part;
+    }
 
-        for (Map.Entry<String, List<Double>> entry : assessmentScores.entrySet()) {
-            String assessmentType = entry.getKey();
-            List<Double> scores = entry.getValue();
+    /**
+     * Dashboard metrics of a single class, merged across classes by buildTeacherDashboard
+     */
+    private static final class ClassDashboardPart {
+        private final Set<String> studentNumbers = new HashSet<>();
+        private final Set<String> atRiskStudents = new HashSet<>();
+        private final Set<String> topStudents = new HashSet<>();
+        private final Map<String, Integer> distribution = new HashMap<>();
+        private Map<String, ScoreDistribution> assessmentScores;
+    }
 
-            if (!scores.isEmpty()) {
-                // Calculate averages
-                double overallAverage = scores.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    private Map<String, ScoreDistribution> classAssessmentScores(int classId) {
+        Map<String, ScoreDistribution> assessmentScores = new HashMap<>();
+        List<GradeRecordsEntity> classRecords = gradeRecordsRepository.findByClassRecord_ClassEntity_ClassId(classId);
+        if (!classRecords.isEmpty()) {
+            collectAssessmentScores(GradeMatrix.of(classRecords), assessmentScores);
+        }
+        return assessmentScores;
+    }
 
-                // Sort scores for quartile calculations
-                Collections.sort(scores);
-                int size = scores.size();
+    private static void mergeAssessmentScores(Map<String, ScoreDistribution> from, Map<String, ScoreDistribution> into) {
+        for (Map.Entry<String, ScoreDistribution> entry : from.entrySet()) {
+            into.computeIfAbsent(entry.getKey(), k -> new ScoreDistribution()).addAll(entry.getValue());
+        }
+    }
 
-                // Top quartile (top 25%)
-                int topQuartileStart = (int) Math.ceil(size * 0.75);
-                double topQuartileAverage = scores.subList(topQuartileStart, size)
-                        .stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    /**
+     * Add the percentage of every graded assessment in a class to the distribution of its assessment type
+     */
+    private void collectAssessmentScores(GradeMatrix matrix, Map<String, ScoreDistribution> assessmentScores) {
+        // Process each assessment type in this class
+        for (Map.Entry<String, Integer> assessment : matrix.getAssessmentMaxValues().entrySet()) {
+            String assessmentType = getAssessmentType(assessment.getKey());
+
+            // Initialize distribution if not exists
+            ScoreDistribution scores = assessmentScores.computeIfAbsent(assessmentType, k -> new ScoreDistribution());
+
+            int column = matrix.columnOf(assessment.getKey());
+            if (column < 0) continue; // No student has a grade for this assessment
+
+            // Collect scores for this assessment type
+            double maxValue = assessment.getValue();
+            for (int student = 0; student < matrix.getStudentCount(); student++) {
+                double score = matrix.getScore(student, column);
+                if (score >= 0) { // false for NaN, i.e. missing or non-numeric grades
+                    scores.add((score / maxValue) * 100);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate performance statistics for each assessment type
+     */
+    private List<TeacherAssessmentPerformance> summarizeAssessmentScores(Map<String, ScoreDistribution> assessmentScores) {
+        List<TeacherAssessmentPerformance> performanceData = new ArrayList<>();
 
-                // Bottom quartile (bottom 25%)
-                int bottomQuartileEnd = (int) Math.ceil(size * 0.25);
-                double bottomQuartileAverage = scores.subList(0, bottomQuartileEnd)
-                        .stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        for (Map.Entry<String, ScoreDistribution> entry : assessmentScores.entrySet()) {
+            String assessmentType = entry.getKey();
+            ScoreDistribution scores = entry.getValue();
 
+            if (scores.count() > 0) {
+                // Quartile averages by selection, without sorting or copying the scores
+                ScoreSummary summary = scores.summarize();
                 performanceData.add(new TeacherAssessmentPerformance(
-                        assessmentType, overallAverage, topQuartileAverage, bottomQuartileAverage, scores.size()));
+                        assessmentType, summary.getMean(), summary.getTopQuartileAverage(),
+                        summary.getBottomQuartileAverage(), (int) summary.getCount()));
             }
         }
 
@@ -1060,16 +633,108 @@ public class RecordsService {
         }
     }
 
+    /**
+     * Replace the grades of each record with the given map. Only the cells that differ are written.
+     */
     @Transactional
     public void updateGrades(List<SpreadSheetController.UpdateGradesRequest> updatedRecords) {
+        Map<Long, Map<String, String>> editsById = new LinkedHashMap<>();
         for (SpreadSheetController.UpdateGradesRequest req : updatedRecords) {
-            GradeRecordsEntity record = gradeRecordsRepository.findById(req.getGradeRecordId())
-                    .orElseThrow(() -> new RuntimeException("Grade record not found with id: " + req.getGradeRecordId()));
+            editsById.put(req.getGradeRecordId(), req.getGrades() != null ? req.getGrades() : Map.of());
+        }
+        applyGradeEdits(editsById, true);
+    }
+
+    /**
+     * Change individual cells of many records at once, across any number of classes. A null cell value
+     * removes the cell; cells not mentioned keep their value. When a record is patched more than once,
+     * later patches win.
+     *
+     * @return The number of records whose grades changed
+     */
+    @Transactional
+    public int patchGrades(List<SpreadSheetController.GradePatchRequest> patches) {
+        Map<Long, Map<String, String>> editsById = new LinkedHashMap<>();
+        for (SpreadSheetController.GradePatchRequest patch : patches) {
+            if (patch.getGradeRecordId() == null) {
+                throw new IllegalArgumentException("Grade patch without a grade record id");
+            }
+            if (patch.getCells() != null) {
+                // HashMap rather than putAll into Map.of, since null values mark removed cells
+                editsById.computeIfAbsent(patch.getGradeRecordId(), id -> new HashMap<>()).putAll(patch.getCells());
+            }
+        }
+        return applyGradeEdits(editsById, false);
+    }
+
+    // Loads the records in one query, writes only their changed cells in one batch, and recomputes once per class
+    private int applyGradeEdits(Map<Long, Map<String, String>> editsById, boolean replace) {
+        if (editsById.isEmpty()) {
+            return 0;
+        }
+        Map<Long, GradeRecordsEntity> recordsById = new HashMap<>();
+        for (GradeRecordsEntity record : gradeRecordsRepository.findAllWithClassByIdIn(editsById.keySet())) {
+            recordsById.put(record.getId(), record);
+        }
+
+        List<GradeCellUpdate> updates = new ArrayList<>();
+        List<GradeRecordsEntity> changedRecords = new ArrayList<>();
+        Set<Long> changedSpreadsheetIds = new HashSet<>();
+        for (Map.Entry<Long, Map<String, String>> edit : editsById.entrySet()) {
+            GradeRecordsEntity record = recordsById.get(edit.getKey());
+            if (record == null) {
+                throw new RuntimeException("Grade record not found with id: " + edit.getKey());
+            }
+            Map<String, String> current = record.getGrades() != null ? record.getGrades() : Map.of();
+            Map<String, String> set = new HashMap<>();
+            Set<String> remove = new HashSet<>();
+            edit.getValue().forEach((key, value) -> {
+                if (value == null) {
+                    if (current.containsKey(key)) {
+                        remove.add(key);
+                    }
+                } else if (!value.equals(current.get(key))) {
+                    set.put(key, value);
+                }
+            });
+            if (replace) {
+                for (String key : current.keySet()) {
+                    if (!edit.getValue().containsKey(key)) {
+                        remove.add(key);
+                    }
+                }
+            }
+            if (set.isEmpty() && remove.isEmpty()) {
+                continue;
+            }
+
+            Map<String, String> grades = new HashMap<>(current);
+            grades.putAll(set);
+            grades.keySet().removeAll(remove);
+            // Detached so the flush doesn't write the whole document back over the cell-level update
+            entityManager.detach(record);
+            record.setGrades(grades);
+
+            updates.add(new GradeCellUpdate(record.getId(), set, remove));
+            changedRecords.add(record);
+            if (record.getClassRecord() != null) {
+                changedSpreadsheetIds.add(record.getClassRecord().getId());
+            }
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
 
-            // Update the grades map
-            record.setGrades(req.getGrades());
-            gradeRecordsRepository.save(record);
+        gradeRecordsRepository.updateGradeCells(updates);
+        // The records no longer match the uploaded file, so re-uploading it must not be skipped
+        if (!changedSpreadsheetIds.isEmpty()) {
+            classSpreadsheetRepository.clearContentHash(changedSpreadsheetIds);
         }
+        // Keep the stored final grades in step with the edited records, one recomputation per class
+        computedGradeService.refreshRecords(changedRecords);
+        logger.debug("Updated grades of {} of {} records in {} spreadsheets", updates.size(), editsById.size(),
+                changedSpreadsheetIds.size());
+        return updates.size();
     }
 
 }
\ No newline at end of file
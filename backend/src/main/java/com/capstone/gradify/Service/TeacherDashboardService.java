@@ -0,0 +1,92 @@
+package com.capstone.gradify.Service;
+
+import com.capstone.gradify.Entity.records.ClassEntity;
+import com.capstone.gradify.Service.grading.ClassGradesChangedEvent;
+import com.capstone.gradify.dto.records.TeacherDashboardDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the teacher dashboard summary from a per-teacher cache. Entries expire after a TTL and are
+ * dropped as soon as grades of one of the teacher's classes change, or the teacher gets a new class.
+ */
+@Service
+public class TeacherDashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(TeacherDashboardService.class);
+
+    @Autowired
+    private RecordsService recordsService;
+    @Autowired
+    private ClassService classService;
+
+    @Value("${gradify.dashboard.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private final Map<Integer, CachedDashboard> dashboards = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a summary computed concurrently with a change is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Get the dashboard summary of a teacher, computing it only if there is no fresh cached copy.
+     *
+     * @param teacherId The teacher's user ID
+     * @return Student count, at-risk and top performer counts, grade distribution and class performance
+     */
+    public TeacherDashboardDTO getDashboard(int teacherId) {
+        CachedDashboard cached = dashboards.get(teacherId);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached.dashboard;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        List<ClassEntity> teacherClasses = classService.getClassesByTeacherId(teacherId);
+        TeacherDashboardDTO dashboard = recordsService.buildTeacherDashboard(teacherClasses);
+
+        Set<Integer> classIds = new HashSet<>();
+        for (ClassEntity classEntity : teacherClasses) {
+            classIds.add(classEntity.getClassId());
+        }
+        if (invalidations.get() == invalidationsBefore) {
+            dashboards.put(teacherId, new CachedDashboard(dashboard, classIds,
+                    System.currentTimeMillis() + cacheTtlSeconds * 1000));
+        }
+        return dashboard;
+    }
+
+    /**
+     * Drop the cached summaries that include the changed class, and the summary of its teacher, which
+     * doesn't include a newly created class yet, once the change is committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClassGradesChanged(ClassGradesChangedEvent event) {
+        invalidations.incrementAndGet();
+        boolean removed = event.getTeacherId() != null && dashboards.remove(event.getTeacherId()) != null;
+        removed |= dashboards.values().removeIf(cached -> cached.classIds.contains(event.getClassId()));
+        if (removed) {
+            logger.debug("Invalidated dashboard summaries for class ID: {}", event.getClassId());
+        }
+    }
+
+    private static final class CachedDashboard {
+        private final TeacherDashboardDTO dashboard;
+        private final Set<Integer> classIds;
+        private final long expiresAt;
+
+        private CachedDashboard(TeacherDashboardDTO dashboard, Set<Integer> classIds, long expiresAt) {
+            this.dashboard = dashboard;
+            this.classIds = classIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
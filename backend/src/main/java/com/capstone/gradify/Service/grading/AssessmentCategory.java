@@ -0,0 +1,235 @@
+package com.capstone.gradify.Service.grading;
+
+import java.util.List;
+
+/**
+ * The grading scheme categories Gradify knows how to map onto spreadsheet columns.
+ * Each category lists the scheme names it answers to and decides which column headers belong to it.
+ * <p>
+ * {@link Mode#AVERAGE} categories average every matching column. {@link Mode#PREFERRED} categories
+ * take the first of their {@link #getPreferredKeys() preferred keys} holding a numeric grade, and
+ * otherwise fall back to the first header accepted by {@link #matches(String)}.
+ */
+public enum AssessmentCategory {
+
+    QUIZZES(Mode.AVERAGE,
+            List.of("Quizzes", "Quiz", "Quizes", "Short Quiz", "Pop Quiz", "Weekly Quiz"),
+            List.of()) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.matches("q\\d+") || key.matches("quiz\\d+") || key.matches("qz\\d+") ||
+                    key.startsWith("quiz") || key.contains("quiz") || key.startsWith("q ") ||
+                    key.equals("q") || key.contains("short quiz") || key.contains("pop quiz") ||
+                    key.contains("weekly quiz") || key.contains("daily quiz") || key.matches("sq\\d+");
+        }
+    },
+
+    ASSIGNMENTS(Mode.AVERAGE,
+            List.of("Assignments", "Assignment", "Homework", "Homeworks", "Task", "Tasks",
+                    "Exercise", "Exercises", "Activity", "Activities"),
+            List.of()) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.matches("a\\d+") || key.matches("assignment\\d+") || key.matches("assign\\d+") ||
+                    key.matches("hw\\d+") || key.matches("homework\\d+") || key.matches("h\\d+") ||
+                    key.matches("task\\d+") || key.matches("t\\d+") || key.matches("exercise\\d+") ||
+                    key.matches("ex\\d+") || key.matches("activity\\d+") || key.matches("act\\d+") ||
+                    key.startsWith("assignment") || key.startsWith("assign") || key.startsWith("homework") ||
+                    key.startsWith("task") || key.startsWith("exercise") || key.startsWith("activity") ||
+                    key.contains("assignment") || key.contains("homework") || key.contains("task") ||
+                    key.contains("exercise") || key.contains("activity") || key.startsWith("hw") ||
+                    key.equals("a") || key.equals("h") || key.equals("t") || key.contains("seatwork") ||
+                    key.contains("classwork") || key.contains("work");
+        }
+    },
+
+    PROJECTS(Mode.AVERAGE,
+            List.of("Projects", "Project", "Group Project", "Group Projects", "Individual Project",
+                    "Team Project", "Mini Project", "Major Project"),
+            List.of()) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.matches("p\\d+") || key.matches("project\\d+") || key.matches("proj\\d+") ||
+                    key.matches("gp\\d+") || key.matches("group\\d+") || key.matches("team\\d+") ||
+                    key.matches("mini\\d+") || key.matches("major\\d+") || key.matches("mp\\d+") ||
+                    key.startsWith("project") || key.startsWith("proj") || key.contains("project") ||
+                    key.startsWith("group") || key.startsWith("team") || key.equals("p");
+        }
+    },
+
+    PARTICIPATION(Mode.PREFERRED,
+            List.of("Participation", "Class Participation", "Attendance", "Engagement", "Class Work",
+                    "Classwork", "Class Engagement", "Active Participation", "Discussion", "Class Discussion"),
+            List.of("Participation", "Class Participation", "CP", "Attendance",
+                    "Class Work", "Classwork", "CW", "Engagement", "Class Engagement",
+                    "Active Participation", "Discussion", "Class Discussion", "Disc",
+                    "Participate", "Attend", "Present", "Active", "Involve", "Interaction")) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.contains("participation") || key.contains("attendance") ||
+                    key.contains("engagement") || key.contains("discussion") ||
+                    key.equals("cp") || key.equals("cw") || key.equals("disc") ||
+                    key.contains("classwork") || key.contains("class work");
+        }
+    },
+
+    PRELIM_EXAM(Mode.PREFERRED,
+            List.of("Prelim Exam", "Preliminary Exam", "Prelim", "Preliminary", "Pre Exam", "Pre-Exam",
+                    "Prelims", "First Exam", "1st Exam", "Exam 1"),
+            List.of("PE", "Prelim", "Preliminary", "Prelim Exam", "Preliminary Exam",
+                    "Pre-Exam", "Pre Exam", "Prelims", "First Exam", "1st Exam",
+                    "Exam 1", "Exam1", "E1", "PreE", "PrelE", "Initial Exam")) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.contains("prelim") || key.contains("first exam") || key.contains("1st exam") ||
+                    key.equals("pe") || key.equals("e1") || key.contains("initial exam");
+        }
+    },
+
+    PRE_FINAL_EXAM(Mode.PREFERRED,
+            List.of("Pre-Final Exam", "Prefinal Exam"),
+            List.of("PFE", "Pre-Final", "Prefinal", "Pre-Final Exam", "Prefinal Exam")),
+
+    MIDTERM_EXAM(Mode.PREFERRED,
+            List.of("Midterm Exam", "Midterm", "Mid-Term", "Mid Term", "Middle Exam", "Second Exam",
+                    "2nd Exam", "Exam 2"),
+            List.of("ME", "MT", "Midterm", "Midterm Exam", "Mid-Term", "Mid Term",
+                    "Mid-Term Exam", "Middle Exam", "Second Exam", "2nd Exam",
+                    "Exam 2", "Exam2", "E2", "MidE", "MiddleE")) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.contains("midterm") || key.contains("mid-term") || key.contains("mid term") ||
+                    key.contains("middle exam") || key.contains("second exam") || key.contains("2nd exam") ||
+                    key.equals("me") || key.equals("mt") || key.equals("e2");
+        }
+    },
+
+    FINAL_EXAM(Mode.PREFERRED,
+            List.of("Final Exam", "Final", "Finals", "Final Examination", "Comprehensive Exam", "Comprehensive",
+                    "Third Exam", "3rd Exam", "Exam 3", "Last Exam"),
+            List.of("FE", "Final", "Final Exam", "Finals", "Final Examination",
+                    "Comprehensive", "Comprehensive Exam", "Comp", "CompE", "Third Exam",
+                    "3rd Exam", "Exam 3", "Exam3", "E3", "Last Exam", "LE", "FinalE")) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return key.contains("final") || key.contains("comprehensive") ||
+                    key.contains("third exam") || key.contains("3rd exam") ||
+                    key.contains("last exam") || key.equals("fe") || key.equals("e3") ||
+                    key.equals("comp") || key.equals("le");
+        }
+    },
+
+    LABS(Mode.AVERAGE, List.of("Labs", "Laboratory"), List.of()) {
+        @Override
+        public boolean matches(String header) {
+            return header.matches("Lab\\d+") || header.matches("Laboratory\\d+") || header.matches("L\\d+") ||
+                    header.toLowerCase().startsWith("lab") || header.toLowerCase().contains("laboratory");
+        }
+    },
+
+    RECITATION(Mode.AVERAGE, List.of("Recitation", "Recitations"), List.of()) {
+        @Override
+        public boolean matches(String header) {
+            return header.matches("R\\d+") || header.matches("Recitation\\d+") || header.matches("Recit\\d+") ||
+                    header.toLowerCase().startsWith("recit") || header.toLowerCase().contains("recitation");
+        }
+    },
+
+    PRESENTATIONS(Mode.AVERAGE, List.of("Presentations"), List.of()) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return header.matches("Presentation\\d+") || header.matches("Pres\\d+") ||
+                    key.startsWith("pres") || key.contains("presentation") || key.contains("report");
+        }
+    },
+
+    CASE_STUDY(Mode.AVERAGE, List.of("Case Study", "Case Studies"), List.of()) {
+        @Override
+        public boolean matches(String header) {
+            return header.matches("CS\\d+") || header.matches("Case\\d+") || header.matches("CaseStudy\\d+") ||
+                    header.toLowerCase().startsWith("case") || header.toLowerCase().contains("case study");
+        }
+    },
+
+    ESSAYS(Mode.AVERAGE, List.of("Essays", "Writing"), List.of()) {
+        @Override
+        public boolean matches(String header) {
+            String key = header.toLowerCase();
+            return header.matches("Essay\\d+") || header.matches("E\\d+") || header.matches("Writing\\d+") ||
+                    key.startsWith("writing") || key.contains("essay") || key.contains("paper");
+        }
+    },
+
+    PRACTICUM(Mode.PREFERRED,
+            List.of("Practicum", "Practical"),
+            List.of("Practicum", "Practical", "Prac", "Hands-on", "Practice")),
+
+    THESIS(Mode.PREFERRED,
+            List.of("Thesis", "Capstone"),
+            List.of("Thesis", "Capstone", "Thesis Defense", "Final Project", "Senior Project")),
+
+    ORAL_EXAM(Mode.PREFERRED,
+            List.of("Oral Exam", "Oral Examination"),
+            List.of("OE", "Oral", "Oral Exam", "Oral Examination", "Viva", "Defense"));
+
+    public enum Mode {
+        /** Average of every matching column that holds a numeric grade. */
+        AVERAGE,
+        /** First preferred key with a numeric grade, else the first matching column. */
+        PREFERRED
+    }
+
+    private final Mode mode;
+    private final List<String> aliases;
+    private final List<String> preferredKeys;
+
+    AssessmentCategory(Mode mode, List<String> aliases, List<String> preferredKeys) {
+        this.mode = mode;
+        this.aliases = aliases;
+        this.preferredKeys = preferredKeys;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Exact (case-sensitive) column headers to try first, in priority order.
+     */
+    public List<String> getPreferredKeys() {
+        return preferredKeys;
+    }
+
+    /**
+     * Whether a spreadsheet column header belongs to this category.
+     * Categories that only use their preferred keys match nothing here.
+     */
+    public boolean matches(String header) {
+        return false;
+    }
+
+    /**
+     * Resolve a grading scheme category name to a known category.
+     *
+     * @param categoryName Trimmed category name from the grading scheme
+     * @return The matching category, or null if the name is not a known category
+     */
+    public static AssessmentCategory forCategoryName(String categoryName) {
+        for (AssessmentCategory category : values()) {
+            for (String alias : category.aliases) {
+                if (alias.equalsIgnoreCase(categoryName)) {
+                    return category;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.capstone.gradify.Service.grading;
+
+import com.capstone.gradify.Entity.records.ClassEntity;
+
+/**
+ * Published when the stored grades of a class may have changed: grade edits, spreadsheet imports,
+ * grading scheme changes, class creation or deletion. Listeners use it to drop anything derived from
+ * those grades, by class or, for summaries that didn't include the class yet, by its teacher.
+ */
+public class ClassGradesChangedEvent {
+    private final int classId;
+    private final Integer teacherId;
+
+    public ClassGradesChangedEvent(int classId) {
+        this(classId, null);
+    }
+
+    public ClassGradesChangedEvent(int classId, Integer teacherId) {
+        this.classId = classId;
+        this.teacherId = teacherId;
+    }
+
+    public static ClassGradesChangedEvent of(ClassEntity classEntity) {
+        return new ClassGradesChangedEvent(classEntity.getClassId(),
+                classEntity.getTeacher() != null ? classEntity.getTeacher().getUserId() : null);
+    }
+
+    public int getClassId() {
+        return classId;
+    }
+
+    /**
+     * The user ID of the class's teacher, or null when the publisher didn't know it.
+     */
+    public Integer getTeacherId() {
+        return teacherId;
+    }
+}
@@ -0,0 +1,171 @@
+package com.capstone.gradify.Service.grading;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Immutable, pre-parsed form of a {@code GradingSchemes.gradingScheme} JSON document.
+ * Built once per scheme version by {@link GradingSchemeCompiler} and shared by every
+ * grade calculation that uses the same scheme.
+ */
+public final class CompiledGradingScheme {
+
+    // Distinct header sets seen with this scheme; in practice one per class spreadsheet.
+    private static final int MAX_CACHED_BINDINGS = 256;
+
+    private final String source;
+    private final long version;
+    private final String[] categoryNames;
+    private final AssessmentCategory[] categories;
+    private final double[] weights;
+    private final double totalAppliedWeight;
+    private final Map<Set<String>, HeaderCategoryBinding> bindings = new ConcurrentHashMap<>();
+
+    private CompiledGradingScheme(String source, String[] categoryNames, double[] weights) {
+        this.source = source;
+        this.version = fingerprint(source);
+        this.categoryNames = categoryNames;
+        this.categories = new AssessmentCategory[categoryNames.length];
+        for (int i = 0; i < categoryNames.length; i++) {
+            this.categories[i] = AssessmentCategory.forCategoryName(categoryNames[i]);
+        }
+        this.weights = weights;
+        double total = 0.0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        this.totalAppliedWeight = total;
+    }
+
+    /**
+     * Build a compiled scheme from the already-deserialized scheme items.
+     * Items without a weight, or with a weight that is not a number, are skipped.
+     */
+    static CompiledGradingScheme of(String source, List<Map<String, Object>> schemeItems) {
+        String[] names = new String[schemeItems.size()];
+        double[] weights = new double[schemeItems.size()];
+        int count = 0;
+
+        for (Map<String, Object> schemeItem : schemeItems) {
+            Object weightObj = schemeItem.get("weight");
+            if (weightObj == null) continue; // Skip if weight is missing
+
+            double weight;
+            try {
+                weight = Double.parseDouble(weightObj.toString());
+            } catch (NumberFormatException e) {
+                continue; // Skip if weight is not a valid number
+            }
+
+            Object name = schemeItem.get("name");
+            if (name == null) {
+                throw new IllegalArgumentException("Grading scheme category is missing a name");
+            }
+            names[count] = name.toString().trim();
+            weights[count] = weight;
+            count++;
+        }
+
+        String[] compactNames = new String[count];
+        double[] compactWeights = new double[count];
+        System.arraycopy(names, 0, compactNames, 0, count);
+        System.arraycopy(weights, 0, compactWeights, 0, count);
+        return new CompiledGradingScheme(source, compactNames, compactWeights);
+    }
+
+    /**
+     * Combine per-category scores (0-100, or negative when a category has no grades)
+     * into the final 0-100 percentage using the scheme weights.
+     */
+    public double calculate(IntToDoubleFunction categoryScore) {
+        double totalGrade = 0.0;
+        for (int i = 0; i < categoryNames.length; i++) {
+            double score = categoryScore.applyAsDouble(i);
+            if (score >= 0) {
+                totalGrade += score * (weights[i] / 100.0);
+            }
+        }
+
+        if (totalAppliedWeight > 0 && totalAppliedWeight <= 100) {
+            // If the weights sum to 100 this is simply totalGrade,
+            // otherwise the result is scaled up to the weights that were applied.
+            return totalGrade / (totalAppliedWeight / 100.0);
+        } else if (totalAppliedWeight == 0) {
+            return 0.0;
+        }
+        // Weights summing past 100 indicate a badly defined scheme; keep the raw total.
+        return totalGrade;
+    }
+
+    /**
+     * Get the column binding for a spreadsheet header set, classifying the headers only the first
+     * time this scheme sees that set. Header order is taken from the first collection seen.
+     *
+     * @param headers The grade keys of a record, or the column headers of a class spreadsheet
+     * @return The binding of those headers to this scheme's categories
+     */
+    public HeaderCategoryBinding bindingFor(Collection<String> headers) {
+        Set<String> key = headers instanceof Set ? (Set<String>) headers : Set.copyOf(headers);
+        HeaderCategoryBinding binding = bindings.get(key);
+        if (binding != null) {
+            return binding;
+        }
+        binding = HeaderCategoryBinding.bind(this, headers.toArray(new String[0]));
+        if (bindings.size() >= MAX_CACHED_BINDINGS) {
+            bindings.clear();
+        }
+        bindings.put(Set.copyOf(headers), binding);
+        return binding;
+    }
+
+    public int getCategoryCount() {
+        return categoryNames.length;
+    }
+
+    public String getCategoryName(int index) {
+        return categoryNames[index];
+    }
+
+    /**
+     * The known category a scheme entry resolves to, or null if it is matched by column name only.
+     */
+    public AssessmentCategory getCategory(int index) {
+        return categories[index];
+    }
+
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    public double getTotalAppliedWeight() {
+        return totalAppliedWeight;
+    }
+
+    /**
+     * Stable identifier of the scheme content; changes whenever the scheme JSON changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the scheme JSON, used as the scheme version.
+     */
+    static long fingerprint(String source) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : source.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,284 @@
+package com.capstone.gradify.Service.grading;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.records.ComputedGradeEntity;
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+import com.capstone.gradify.Entity.records.GradingSchemes;
+import com.capstone.gradify.Repository.records.ComputedGradeRepository;
+import com.capstone.gradify.Repository.records.GradeRecordRepository;
+import com.capstone.gradify.Repository.records.GradingSchemeRepository;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains the {@code computed_grade} table: the final percentage, letter grade and status of every
+ * grade record under its class's current grading scheme.
+ * <p>
+ * Writers (grade edits, spreadsheet imports, scheme changes) refresh the affected rows inside their own
+ * transaction. Readers get the stored rows, which are recomputed first only if they are missing or were
+ * computed with a different scheme version. Every refresh publishes a {@link ClassGradesChangedEvent}.
+ * <p>
+ * Rows are written with an upsert and removed with bulk deletes, so two refreshes of the same records
+ * (two readers finding a class stale, or a reader racing an import) both succeed, the last one winning.
+ */
+@Service
+public class ComputedGradeService {
+    private static final Logger logger = LoggerFactory.getLogger(ComputedGradeService.class);
+
+    // Scheme version stored for records of classes without a grading scheme
+    public static final long NO_SCHEME_VERSION = 0L;
+
+    @Autowired
+    private ComputedGradeRepository computedGradeRepository;
+    @Autowired
+    private GradeRecordRepository gradeRecordRepository;
+    @Autowired
+    private GradingSchemeRepository gradingSchemeRepository;
+    @Autowired
+    private GradingSchemeCompiler gradingSchemeCompiler;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Get the computed grades of every record in a class, ordered by grade record id.
+     * Recomputes the class first if its rows are missing or out of date.
+     *
+     * @param classId The class ID
+     * @return The computed grades of the class
+     */
+    @Transactional
+    public List<ComputedGradeEntity> getClassGrades(int classId) {
+        CompiledGradingScheme scheme = compiledScheme(classId);
+        List<ComputedGradeEntity> grades = computedGradeRepository.findByClassIdOrderByGradeRecordIdAsc(classId);
+
+        if (grades.size() == gradeRecordRepository.countByClassRecord_ClassEntity_ClassId(classId)
+                && allAtVersion(grades, versionOf(scheme))) {
+            return grades;
+        }
+        logger.debug("Computed grades for class ID {} are stale, recomputing", classId);
+        return refreshClass(classId, scheme, grades);
+    }
+
+    /**
+     * Make sure every record of a class has a computed grade at the current scheme version, using
+     * count queries only, so callers can then read the rows with their own query.
+     *
+     * @param classId The class ID
+     */
+    @Transactional
+    public void ensureClassGrades(int classId) {
+        CompiledGradingScheme scheme = compiledScheme(classId);
+        long storedCount = computedGradeRepository.countByClassId(classId);
+
+        if (storedCount == gradeRecordRepository.countByClassRecord_ClassEntity_ClassId(classId)
+                && storedCount == computedGradeRepository.countByClassIdAndSchemeVersion(classId, versionOf(scheme))) {
+            return;
+        }
+        logger.debug("Computed grades for class ID {} are stale, recomputing", classId);
+        refreshClass(classId, scheme, computedGradeRepository.findByClassIdOrderByGradeRecordIdAsc(classId));
+    }
+
+    /**
+     * Get the computed grades of the given records, recomputing any that are missing or out of date.
+     * Records not attached to a class are left out.
+     *
+     * @param records Grade records, possibly from several classes
+     * @return Computed grades keyed by grade record id
+     */
+    @Transactional
+    public Map<Long, ComputedGradeEntity> getGrades(List<GradeRecordsEntity> records) {
+        Map<Long, ComputedGradeEntity> grades = new HashMap<>();
+        if (records.isEmpty()) {
+            return grades;
+        }
+        for (ComputedGradeEntity grade : computedGradeRepository.findAllById(recordIds(records))) {
+            grades.put(grade.getGradeRecordId(), grade);
+        }
+
+        Map<Integer, Long> versionsByClass = new HashMap<>();
+        List<GradeRecordsEntity> stale = new ArrayList<>();
+        for (GradeRecordsEntity record : records) {
+            Integer classId = classIdOf(record);
+            if (classId == null) continue;
+
+            long version = versionsByClass.computeIfAbsent(classId, id -> versionOf(compiledScheme(id)));
+            ComputedGradeEntity grade = grades.get(record.getId());
+            if (grade == null || grade.getSchemeVersion() != version) {
+                stale.add(record);
+            }
+        }
+
+        for (ComputedGradeEntity grade : refreshRecords(stale)) {
+            grades.put(grade.getGradeRecordId(), grade);
+        }
+        return grades;
+    }
+
+    /**
+     * Recompute every record of a class, dropping rows of records that no longer exist.
+     * Called when the class's grading scheme changes or its records are replaced.
+     *
+     * @param classId The class ID
+     * @return The computed grades of the class, ordered by grade record id
+     */
+    @Transactional
+    public List<ComputedGradeEntity> refreshClass(int classId) {
+        return refreshClass(classId, compiledScheme(classId),
+                computedGradeRepository.findByClassIdOrderByGradeRecordIdAsc(classId));
+    }
+
+    /**
+     * Recompute the given grade records after their grades or their spreadsheet changed.
+     * The records must already have ids; records not attached to a class are skipped.
+     *
+     * @param records Changed grade records, possibly from several classes
+     * @return The refreshed computed grades
+     */
+    @Transactional
+    public List<ComputedGradeEntity> refreshRecords(Collection<GradeRecordsEntity> records) {
+        if (records.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, List<GradeRecordsEntity>> recordsByClass = new LinkedHashMap<>();
+        for (GradeRecordsEntity record : records) {
+            Integer classId = classIdOf(record);
+            if (classId != null && record.getId() != null) {
+                recordsByClass.computeIfAbsent(classId, k -> new ArrayList<>()).add(record);
+            }
+        }
+
+        List<ComputedGradeEntity> existing = computedGradeRepository.findAllById(recordIds(records));
+        Map<Long, ComputedGradeEntity> existingById = index(existing);
+        List<ComputedGradeEntity> computed = new ArrayList<>();
+        for (Map.Entry<Integer, List<GradeRecordsEntity>> entry : recordsByClass.entrySet()) {
+            computed.addAll(compute(entry.getKey(), entry.getValue(), compiledScheme(entry.getKey()), existingById));
+        }
+        save(computed, existing);
+        for (List<GradeRecordsEntity> classRecords : recordsByClass.values()) {
+            eventPublisher.publishEvent(ClassGradesChangedEvent.of(classRecords.get(0).getClassRecord().getClassEntity()));
+        }
+        return computed;
+    }
+
+    private List<ComputedGradeEntity> refreshClass(int classId, CompiledGradingScheme scheme, List<ComputedGradeEntity> existing) {
+        List<GradeRecordsEntity> records = gradeRecordRepository.findByClassRecord_ClassEntity_ClassId(classId);
+        Map<Long, ComputedGradeEntity> existingById = index(existing);
+
+        List<ComputedGradeEntity> computed = compute(classId, records, scheme, existingById);
+        // Whatever was not matched belongs to records that are gone
+        if (!existingById.isEmpty()) {
+            computedGradeRepository.deleteByGradeRecordIds(existingById.keySet());
+        }
+        save(computed, existing);
+
+        computed.sort(Comparator.comparing(ComputedGradeEntity::getGradeRecordId));
+        // A class without records has nothing to name its teacher, but no cached summary counts its grades either
+        eventPublisher.publishEvent(records.isEmpty() ? new ClassGradesChangedEvent(classId)
+                : ClassGradesChangedEvent.of(records.get(0).getClassRecord().getClassEntity()));
+        return computed;
+    }
+
+    // The previously loaded rows are detached so later queries in this transaction read the upserted values
+    private void save(List<ComputedGradeEntity> computed, List<ComputedGradeEntity> existing) {
+        computedGradeRepository.upsertAll(computed);
+        for (ComputedGradeEntity grade : existing) {
+            if (entityManager.contains(grade)) {
+                entityManager.detach(grade);
+            }
+        }
+    }
+
+    /**
+     * Compute the grades of records from one class as new rows, removing the records' current rows from
+     * existingById. The current rows themselves are left unchanged, so Hibernate doesn't write them as well.
+     */
+    private List<ComputedGradeEntity> compute(int classId, List<GradeRecordsEntity> records, CompiledGradingScheme scheme,
+                                              Map<Long, ComputedGradeEntity> existingById) {
+        double[] percentages = hotPathMetrics.time(HotPathMetrics.GRADE_COMPUTE,
+                () -> GradeMatrix.of(records).percentages(scheme),
+                "class.size", HotPathMetrics.sizeBucket(records.size()));
+        LocalDateTime now = LocalDateTime.now();
+
+        List<ComputedGradeEntity> computed = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            GradeRecordsEntity record = records.get(i);
+            if (record.getId() == null) continue;
+
+            existingById.remove(record.getId());
+            ComputedGradeEntity grade = new ComputedGradeEntity(record.getId(), classId);
+            grade.setStudentNumber(record.getStudentNumber());
+            if (scheme != null) {
+                grade.setPercentage(percentages[i]);
+                grade.setLetterGrade(GradeScale.letterGrade(percentages[i]));
+                grade.setStatus(GradeScale.status(percentages[i]));
+                grade.setSchemeVersion(scheme.getVersion());
+            } else {
+                grade.setPercentage(0.0);
+                grade.setLetterGrade(GradeScale.NO_GRADE);
+                grade.setStatus(GradeScale.SCHEME_MISSING);
+                grade.setSchemeVersion(NO_SCHEME_VERSION);
+            }
+            grade.setComputedAt(now);
+            computed.add(grade);
+        }
+        return computed;
+    }
+
+    private CompiledGradingScheme compiledScheme(int classId) {
+        GradingSchemes gradingScheme = gradingSchemeRepository.findByClassEntity_ClassId(classId);
+        return gradingScheme == null ? null : gradingSchemeCompiler.compile(gradingScheme.getGradingScheme());
+    }
+
+    private static long versionOf(CompiledGradingScheme scheme) {
+        return scheme == null ? NO_SCHEME_VERSION : scheme.getVersion();
+    }
+
+    private static boolean allAtVersion(List<ComputedGradeEntity> grades, long version) {
+        for (ComputedGradeEntity grade : grades) {
+            if (grade.getSchemeVersion() != version) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Integer classIdOf(GradeRecordsEntity record) {
+        ClassSpreadsheet spreadsheet = record.getClassRecord();
+        if (spreadsheet == null || spreadsheet.getClassEntity() == null) {
+            return null;
+        }
+        return spreadsheet.getClassEntity().getClassId();
+    }
+
+    private static List<Long> recordIds(Collection<GradeRecordsEntity> records) {
+        List<Long> ids = new ArrayList<>(records.size());
+        for (GradeRecordsEntity record : records) {
+            if (record.getId() != null) {
+                ids.add(record.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Map<Long, ComputedGradeEntity> index(List<ComputedGradeEntity> grades) {
+        Map<Long, ComputedGradeEntity> byId = new HashMap<>();
+        for (ComputedGradeEntity grade : grades) {
+            byId.put(grade.getGradeRecordId(), grade);
+        }
+        return byId;
+    }
+}
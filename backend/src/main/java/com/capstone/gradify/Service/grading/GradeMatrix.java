@@ -0,0 +1,211 @@
+package com.capstone.gradify.Service.grading;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, primitive view of a class's grade records: a {@code double[students][columns]} score
+ * matrix with {@link Double#NaN} for blank, missing or non-numeric cells, plus the max-value vector
+ * of each student's spreadsheet. Built once from the JSONB rows so every class metric can run as a
+ * tight loop over doubles instead of re-parsing {@code Map<String, String>} values.
+ */
+public final class GradeMatrix {
+
+    private final String[] studentNumbers;
+    private final String[] columns;
+    private final Map<String, Integer> columnIndex;
+    private final double[][] scores;
+    // One vector per distinct spreadsheet, shared by all rows of that spreadsheet.
+    private final double[][] maxValues;
+    private final Map<String, Integer> primaryMaxValues;
+    // Grade maps of rows that do not carry every column; null for complete rows.
+    private final Map<String, String>[] partialRows;
+
+    private volatile SchemeResult lastResult;
+
+    private GradeMatrix(String[] studentNumbers, String[] columns, Map<String, Integer> columnIndex,
+                        double[][] scores, double[][] maxValues, Map<String, Integer> primaryMaxValues,
+                        Map<String, String>[] partialRows) {
+        this.studentNumbers = studentNumbers;
+        this.columns = columns;
+        this.columnIndex = columnIndex;
+        this.scores = scores;
+        this.maxValues = maxValues;
+        this.primaryMaxValues = primaryMaxValues;
+        this.partialRows = partialRows;
+    }
+
+    /**
+     * Build the matrix for the given grade records, parsing every cell exactly once.
+     */
+    @SuppressWarnings("unchecked")
+    public static GradeMatrix of(List<GradeRecordsEntity> records) {
+        int studentCount = records.size();
+
+        // Union of all grade keys, in first-seen order
+        Map<String, Integer> columnIndex = new LinkedHashMap<>();
+        for (GradeRecordsEntity record : records) {
+            if (record.getGrades() == null) continue;
+            for (String key : record.getGrades().keySet()) {
+                columnIndex.putIfAbsent(key, columnIndex.size());
+            }
+        }
+        // Prefer the key order of a complete row, which is the order those rows are scored in
+        for (GradeRecordsEntity record : records) {
+            if (record.getGrades() != null && record.getGrades().size() == columnIndex.size()) {
+                columnIndex.clear();
+                for (String key : record.getGrades().keySet()) {
+                    columnIndex.put(key, columnIndex.size());
+                }
+                break;
+            }
+        }
+        String[] columns = columnIndex.keySet().toArray(new String[0]);
+
+        String[] studentNumbers = new String[studentCount];
+        double[][] scores = new double[studentCount][];
+        double[][] maxValues = new double[studentCount][];
+        Map<String, String>[] partialRows = new Map[studentCount];
+        Map<ClassSpreadsheet, double[]> maxBySpreadsheet = new IdentityHashMap<>();
+        Map<String, Integer> primaryMaxValues = null;
+
+        for (int s = 0; s < studentCount; s++) {
+            GradeRecordsEntity record = records.get(s);
+            Map<String, String> grades = record.getGrades() != null ? record.getGrades() : Collections.emptyMap();
+            studentNumbers[s] = record.getStudentNumber();
+
+            double[] row = new double[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                row[c] = HeaderCategoryBinding.parseValue(grades.get(columns[c]));
+            }
+            scores[s] = row;
+            if (grades.size() != columns.length) {
+                partialRows[s] = grades;
+            }
+
+            ClassSpreadsheet spreadsheet = record.getClassRecord();
+            Map<String, Integer> assessmentMaxValues = spreadsheet != null ? spreadsheet.getAssessmentMaxValues() : null;
+            if (primaryMaxValues == null) {
+                primaryMaxValues = assessmentMaxValues != null ? assessmentMaxValues : Collections.emptyMap();
+            }
+            maxValues[s] = maxBySpreadsheet.computeIfAbsent(spreadsheet, k -> maxVector(columns, assessmentMaxValues));
+        }
+
+        return new GradeMatrix(studentNumbers, columns, columnIndex, scores, maxValues,
+                primaryMaxValues != null ? primaryMaxValues : Collections.emptyMap(), partialRows);
+    }
+
+    public int getStudentCount() {
+        return studentNumbers.length;
+    }
+
+    public String getStudentNumber(int student) {
+        return studentNumbers[student];
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Index of a column, or -1 if no record has that grade key.
+     */
+    public int columnOf(String header) {
+        Integer index = columnIndex.get(header);
+        return index != null ? index : -1;
+    }
+
+    public double getScore(int student, int column) {
+        return scores[student][column];
+    }
+
+    public double getMaxValue(int student, int column) {
+        return maxValues[student][column];
+    }
+
+    /**
+     * Assessment max values of the first record's spreadsheet, the class's declared assessments.
+     */
+    public Map<String, Integer> getAssessmentMaxValues() {
+        return primaryMaxValues;
+    }
+
+    /**
+     * Final 0-100 grade of every student under the given scheme, aligned with student indices.
+     * The result of the most recent scheme is kept, so metrics sharing a matrix compute grades once.
+     *
+     * @param scheme The compiled scheme, or null to get all zeros
+     */
+    public double[] percentages(CompiledGradingScheme scheme) {
+        if (scheme == null) {
+            return new double[studentNumbers.length];
+        }
+        SchemeResult cached = lastResult;
+        if (cached != null && cached.scheme == scheme) {
+            return cached.percentages;
+        }
+
+        double[] percentages = new double[studentNumbers.length];
+        // Bindings are cached per header set in the column order first seen, which need not be this matrix's
+        HeaderCategoryBinding binding = scheme.bindingFor(columnIndex.keySet());
+        int[] order = Arrays.equals(binding.getColumns(), columns) ? null : columnsOf(binding);
+        for (int s = 0; s < percentages.length; s++) {
+            if (partialRows[s] == null) {
+                percentages[s] = order == null
+                        ? binding.grade(scores[s], maxValues[s])
+                        : binding.grade(gather(scores[s], order), gather(maxValues[s], order));
+            } else {
+                // Rows missing some columns are bound on their own key set
+                HeaderCategoryBinding rowBinding = scheme.bindingFor(partialRows[s].keySet());
+                int[] rowOrder = columnsOf(rowBinding);
+                percentages[s] = rowBinding.grade(gather(scores[s], rowOrder), gather(maxValues[s], rowOrder));
+            }
+        }
+        lastResult = new SchemeResult(scheme, percentages);
+        return percentages;
+    }
+
+    // Matrix column of each of the binding's columns, by name
+    private int[] columnsOf(HeaderCategoryBinding binding) {
+        String[] bound = binding.getColumns();
+        int[] indices = new int[bound.length];
+        for (int i = 0; i < bound.length; i++) {
+            indices[i] = columnIndex.get(bound[i]);
+        }
+        return indices;
+    }
+
+    private static double[] gather(double[] row, int[] order) {
+        double[] values = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            values[i] = row[order[i]];
+        }
+        return values;
+    }
+
+    private static double[] maxVector(String[] columns, Map<String, Integer> assessmentMaxValues) {
+        double[] vector = new double[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            Integer max = assessmentMaxValues != null ? assessmentMaxValues.get(columns[c]) : null;
+            vector[c] = max != null ? max : 100;
+        }
+        return vector;
+    }
+
+    private static final class SchemeResult {
+        private final CompiledGradingScheme scheme;
+        private final double[] percentages;
+
+        private SchemeResult(CompiledGradingScheme scheme, double[] percentages) {
+            this.scheme = scheme;
+            this.percentages = percentages;
+        }
+    }
+}
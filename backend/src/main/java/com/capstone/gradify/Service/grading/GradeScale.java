@@ -0,0 +1,37 @@
+package com.capstone.gradify.Service.grading;
+
+/**
+ * Letter grade and standing thresholds applied to a final 0-100 percentage.
+ */
+public final class GradeScale {
+
+    public static final String NO_GRADE = "N/A";
+    public static final String SCHEME_MISSING = "Scheme Missing";
+
+    public static final double AT_RISK_THRESHOLD = 60;
+    public static final double TOP_PERFORMER_THRESHOLD = 80;
+
+    private GradeScale() {
+    }
+
+    /**
+     * Convert numeric percentage to letter grade
+     */
+    public static String letterGrade(double percentage) {
+        if (percentage >= 90) return "A";
+        else if (percentage >= 80) return "B";
+        else if (percentage >= 70) return "C";
+        else if (percentage >= 60) return "D";
+        else return "F";
+    }
+
+    /**
+     * Determine student status based on grade
+     */
+    public static String status(double percentage) {
+        if (percentage >= 80) return "Good Standing";
+        else if (percentage >= 70) return "Passing";
+        else if (percentage >= 60) return "At Risk";
+        else return "Failing";
+    }
+}
@@ -0,0 +1,64 @@
+package com.capstone.gradify.Service.grading;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses grading scheme JSON into {@link CompiledGradingScheme} instances and keeps them
+ * keyed by their JSON content, so a scheme is parsed once per version instead of once
+ * per student record.
+ */
+@Component
+public class GradingSchemeCompiler {
+
+    // Roughly one entry per class; cleared wholesale if it ever grows past this.
+    private static final int MAX_CACHED_SCHEMES = 4096;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CompiledGradingScheme> compiledSchemes = new ConcurrentHashMap<>();
+
+    /**
+     * Get the compiled form of the given scheme JSON, parsing it only if it has not been seen before.
+     *
+     * @param schemeJson The grading scheme JSON, may be null
+     * @return The compiled scheme, or null if schemeJson is null
+     */
+    public CompiledGradingScheme compile(String schemeJson) {
+        if (schemeJson == null) {
+            return null;
+        }
+        CompiledGradingScheme compiled = compiledSchemes.get(schemeJson);
+        if (compiled != null) {
+            return compiled;
+        }
+        if (compiledSchemes.size() >= MAX_CACHED_SCHEMES) {
+            compiledSchemes.clear();
+        }
+        return compiledSchemes.computeIfAbsent(schemeJson, this::parse);
+    }
+
+    /**
+     * Drop the compiled form of a scheme that has been replaced.
+     */
+    public void evict(String schemeJson) {
+        if (schemeJson != null) {
+            compiledSchemes.remove(schemeJson);
+        }
+    }
+
+    private CompiledGradingScheme parse(String schemeJson) {
+        try {
+            List<Map<String, Object>> schemeItems = mapper.readValue(
+                    schemeJson, new TypeReference<List<Map<String, Object>>>() {});
+            return CompiledGradingScheme.of(schemeJson, schemeItems);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new RuntimeException("Error parsing grading scheme: " + e.getMessage(), e);
+        }
+    }
+}
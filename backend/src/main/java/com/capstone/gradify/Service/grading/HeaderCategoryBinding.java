@@ -0,0 +1,203 @@
+package com.capstone.gradify.Service.grading;
+
+import java.util.Map;
+
+/**
+ * Precomputed mapping from a fixed set of spreadsheet column headers to the categories of a
+ * {@link CompiledGradingScheme}. All header classification (regex and substring checks) happens
+ * once when the binding is built; scoring a student afterwards only reads column indices.
+ * <p>
+ * Grade values are passed as a {@code double[]} aligned with {@link #getColumns()}, with
+ * {@link Double#NaN} for blank or non-numeric cells.
+ */
+public final class HeaderCategoryBinding {
+
+    private static final int[] NO_COLUMNS = new int[0];
+
+    private final CompiledGradingScheme scheme;
+    private final String[] columns;
+    private final boolean[] averaged;
+    // AVERAGE categories: every matching column. PREFERRED categories: the preferred keys present, in priority order.
+    private final int[][] categoryColumns;
+    // PREFERRED and unknown categories: the column used when no preferred key holds a grade, or -1.
+    private final int[] fallbackColumns;
+
+    private HeaderCategoryBinding(CompiledGradingScheme scheme, String[] columns) {
+        this.scheme = scheme;
+        this.columns = columns;
+        int categoryCount = scheme.getCategoryCount();
+        this.averaged = new boolean[categoryCount];
+        this.categoryColumns = new int[categoryCount][];
+        this.fallbackColumns = new int[categoryCount];
+
+        for (int c = 0; c < categoryCount; c++) {
+            String categoryName = scheme.getCategoryName(c);
+            AssessmentCategory category = scheme.getCategory(c);
+            if (category == null) {
+                categoryColumns[c] = NO_COLUMNS;
+                fallbackColumns[c] = findByName(categoryName);
+            } else if (category.getMode() == AssessmentCategory.Mode.AVERAGE) {
+                averaged[c] = true;
+                categoryColumns[c] = findMatching(category);
+                fallbackColumns[c] = -1;
+            } else {
+                categoryColumns[c] = findPreferred(category);
+                fallbackColumns[c] = findFirstMatching(category);
+            }
+        }
+    }
+
+    static HeaderCategoryBinding bind(CompiledGradingScheme scheme, String[] columns) {
+        return new HeaderCategoryBinding(scheme, columns);
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public CompiledGradingScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Calculate the 0-100 grade for one student.
+     *
+     * @param values    Grade values aligned with the binding columns, NaN where missing
+     * @param maxValues Maximum value of each column
+     */
+    public double grade(double[] values, double[] maxValues) {
+        return scheme.calculate(c -> categoryScore(c, values, maxValues));
+    }
+
+    /**
+     * Score of a single scheme category for one student, or a negative value if the student has no grade for it.
+     */
+    public double categoryScore(int category, double[] values, double[] maxValues) {
+        int[] bound = categoryColumns[category];
+        if (averaged[category]) {
+            double total = 0;
+            int count = 0;
+            for (int column : bound) {
+                double score = values[column];
+                if (!Double.isNaN(score)) {
+                    total += (score / maxValues[column]) * 100;
+                    count++;
+                }
+            }
+            return count > 0 ? total / count : -1;
+        }
+
+        for (int column : bound) {
+            double score = values[column];
+            if (!Double.isNaN(score) && score != -1) {
+                return (score / maxValues[column]) * 100;
+            }
+        }
+        int fallback = fallbackColumns[category];
+        if (fallback >= 0) {
+            double score = Double.isNaN(values[fallback]) ? -1 : values[fallback];
+            return (score / maxValues[fallback]) * 100;
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a student's grade map into a value array aligned with the binding columns.
+     */
+    public double[] values(Map<String, String> grades) {
+        double[] values = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = parseValue(grades.get(columns[i]));
+        }
+        return values;
+    }
+
+    /**
+     * Resolve the maximum value of each binding column, defaulting to 100.
+     */
+    public double[] maxValues(Map<String, Integer> assessmentMaxValues) {
+        double[] maxValues = new double[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer max = assessmentMaxValues != null ? assessmentMaxValues.get(columns[i]) : null;
+            maxValues[i] = max != null ? max : 100;
+        }
+        return maxValues;
+    }
+
+    /**
+     * Parse a raw cell value, returning NaN for blank or non-numeric values.
+     */
+    public static double parseValue(String value) {
+        if (value == null) return Double.NaN;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private int[] findMatching(AssessmentCategory category) {
+        int[] matches = new int[columns.length];
+        int count = 0;
+        for (int i = 0; i < columns.length; i++) {
+            if (category.matches(columns[i])) {
+                matches[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(matches, 0, result, 0, count);
+        return result;
+    }
+
+    private int[] findPreferred(AssessmentCategory category) {
+        int[] preferred = new int[category.getPreferredKeys().size()];
+        int count = 0;
+        for (String key : category.getPreferredKeys()) {
+            int column = indexOf(key);
+            if (column >= 0) {
+                preferred[count++] = column;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(preferred, 0, result, 0, count);
+        return result;
+    }
+
+    private int findFirstMatching(AssessmentCategory category) {
+        for (int i = 0; i < columns.length; i++) {
+            if (category.matches(columns[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Unknown categories use the column named exactly like the category (ignoring case),
+     * else the first column whose name contains, or is contained in, the category name.
+     */
+    private int findByName(String categoryName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(categoryName)) {
+                return i;
+            }
+        }
+        String category = categoryName.toLowerCase();
+        for (int i = 0; i < columns.length; i++) {
+            String key = columns[i].toLowerCase();
+            if (key.contains(category) || category.contains(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String header) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(header)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,132 @@
+package com.capstone.gradify.Service.grading;
+
+/**
+ * Order statistics over the first {@code size} elements of a primitive score array, using in-place
+ * quickselect instead of a full sort. The methods reorder the array but never allocate, so callers
+ * pass a scratch array (or a buffer they no longer need in insertion order).
+ */
+public final class PercentileCalculator {
+
+    private PercentileCalculator() {
+    }
+
+    /**
+     * Summarize scores[0, size): mean, quartiles by linear interpolation, and the averages of the
+     * bottom {@code ceil(size * 0.25)} and top {@code size - ceil(size * 0.75)} scores.
+     */
+    public static ScoreSummary summarize(double[] scores, int size) {
+        if (size <= 0) {
+            return ScoreSummary.EMPTY;
+        }
+        double mean = sum(scores, 0, size) / size;
+
+        int topQuartileStart = (int) Math.ceil(size * 0.75);
+        int bottomQuartileEnd = (int) Math.ceil(size * 0.25);
+        double topQuartileAverage = topAverage(scores, size, topQuartileStart);
+        double bottomQuartileAverage = bottomAverage(scores, size, bottomQuartileEnd);
+
+        return new ScoreSummary(size, mean,
+                percentile(scores, size, 0.25),
+                percentile(scores, size, 0.5),
+                percentile(scores, size, 0.75),
+                bottomQuartileAverage, topQuartileAverage);
+    }
+
+    /**
+     * Average of the scores ranked [start, size) in ascending order, or 0 for an empty range.
+     */
+    public static double topAverage(double[] scores, int size, int start) {
+        if (start >= size) return 0.0;
+        if (start > 0) {
+            select(scores, 0, size, start);
+        }
+        return sum(scores, start, size) / (size - start);
+    }
+
+    /**
+     * Average of the scores ranked [0, end) in ascending order, or 0 for an empty range.
+     */
+    public static double bottomAverage(double[] scores, int size, int end) {
+        if (end <= 0) return 0.0;
+        if (end < size) {
+            select(scores, 0, size, end);
+        }
+        int count = Math.min(end, size);
+        return sum(scores, 0, count) / count;
+    }
+
+    /**
+     * The p-th quantile (0 to 1) of scores[0, size), interpolating linearly between closest ranks.
+     */
+    public static double percentile(double[] scores, int size, double p) {
+        if (size <= 0) return 0.0;
+        double position = Math.max(0.0, Math.min(1.0, p)) * (size - 1);
+        int lower = (int) Math.floor(position);
+        double lowerValue = select(scores, 0, size, lower);
+        double fraction = position - lower;
+        if (fraction == 0.0 || lower + 1 >= size) {
+            return lowerValue;
+        }
+        // After selecting `lower`, the next rank is the smallest element to its right
+        double upperValue = scores[lower + 1];
+        for (int i = lower + 2; i < size; i++) {
+            if (scores[i] < upperValue) upperValue = scores[i];
+        }
+        return lowerValue + fraction * (upperValue - lowerValue);
+    }
+
+    public static double median(double[] scores, int size) {
+        return percentile(scores, size, 0.5);
+    }
+
+    /**
+     * Reorder scores[from, to) so the element of rank k sits at index k, with no larger element before
+     * it and no smaller element after it. Returns that element.
+     */
+    public static double select(double[] scores, int from, int to, int k) {
+        int left = from;
+        int right = to - 1;
+        while (right > left) {
+            // Median of three keeps sorted and reverse-sorted input linear
+            int middle = (left + right) >>> 1;
+            if (scores[middle] < scores[left]) swap(scores, middle, left);
+            if (scores[right] < scores[left]) swap(scores, right, left);
+            if (scores[right] < scores[middle]) swap(scores, right, middle);
+            double pivot = scores[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (scores[i] < pivot) i++;
+                while (scores[j] > pivot) j--;
+                if (i <= j) {
+                    swap(scores, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return scores[k];
+    }
+
+    private static double sum(double[] scores, int from, int to) {
+        double total = 0.0;
+        for (int i = from; i < to; i++) {
+            total += scores[i];
+        }
+        return total;
+    }
+
+    private static void swap(double[] scores, int a, int b) {
+        double tmp = scores[a];
+        scores[a] = scores[b];
+        scores[b] = tmp;
+    }
+}
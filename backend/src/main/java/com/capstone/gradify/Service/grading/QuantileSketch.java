@@ -0,0 +1,163 @@
+package com.capstone.gradify.Service.grading;
+
+/**
+ * Fixed-size, mergeable histogram for approximate quantiles of very large score sets. Values are
+ * counted in equal-width bins over [lower, upper), with one extra bin on each side for values out of
+ * range. Counts, sums, min and max are exact; quantiles and quartile averages are interpolated within
+ * a bin, so their error is at most one bin width for in-range values.
+ */
+public final class QuantileSketch {
+
+    private final double lower;
+    private final double upper;
+    private final double binWidth;
+    // Index 0 holds values below lower, the last index values at or above upper
+    private final long[] counts;
+    private final double[] sums;
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch(double lower, double upper, int bins) {
+        if (!(upper > lower) || bins <= 0) {
+            throw new IllegalArgumentException("Invalid sketch range [" + lower + ", " + upper + ") with " + bins + " bins");
+        }
+        this.lower = lower;
+        this.upper = upper;
+        this.binWidth = (upper - lower) / bins;
+        this.counts = new long[bins + 2];
+        this.sums = new double[bins + 2];
+    }
+
+    public void add(double value) {
+        int bin = binOf(value);
+        counts[bin]++;
+        sums[bin] += value;
+        count++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    public void addAll(double[] values, int size) {
+        for (int i = 0; i < size; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Add every value of another sketch with the same range and bin count.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.lower != lower || other.upper != upper || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge sketches with different bins");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+            sums[i] += other.sums[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Approximate p-th quantile (0 to 1), on the same rank scale as {@link PercentileCalculator#percentile}.
+     * The lowest and highest ranks are the exact min and max.
+     */
+    public double quantile(double p) {
+        if (count == 0) return 0.0;
+        double rank = Math.max(0.0, Math.min(1.0, p)) * (count - 1);
+        if (rank <= 0) return min;
+        if (rank >= count - 1) return max;
+        long seen = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            if (counts[bin] == 0) continue;
+            if (rank < seen + counts[bin]) {
+                double from = Math.max(binStart(bin), min);
+                double to = Math.min(binEnd(bin), max);
+                double fraction = (rank - seen + 0.5) / counts[bin];
+                return from + Math.min(1.0, fraction) * (to - from);
+            }
+            seen += counts[bin];
+        }
+        return max;
+    }
+
+    /**
+     * Approximate average of the n lowest values.
+     */
+    public double bottomAverage(long n) {
+        n = Math.min(n, count);
+        if (n <= 0) return 0.0;
+        double total = 0.0;
+        long remaining = n;
+        for (int bin = 0; bin < counts.length && remaining > 0; bin++) {
+            long taken = Math.min(remaining, counts[bin]);
+            total += partialSum(bin, taken);
+            remaining -= taken;
+        }
+        return total / n;
+    }
+
+    /**
+     * Approximate average of the n highest values.
+     */
+    public double topAverage(long n) {
+        n = Math.min(n, count);
+        if (n <= 0) return 0.0;
+        double total = 0.0;
+        long remaining = n;
+        for (int bin = counts.length - 1; bin >= 0 && remaining > 0; bin--) {
+            long taken = Math.min(remaining, counts[bin]);
+            total += partialSum(bin, taken);
+            remaining -= taken;
+        }
+        return total / n;
+    }
+
+    /**
+     * Summary with the same quartile definitions as {@link PercentileCalculator#summarize}.
+     */
+    public ScoreSummary summarize() {
+        if (count == 0) {
+            return ScoreSummary.EMPTY;
+        }
+        long topQuartileStart = (long) Math.ceil(count * 0.75);
+        long bottomQuartileEnd = (long) Math.ceil(count * 0.25);
+        return new ScoreSummary(count, mean(), quantile(0.25), quantile(0.5), quantile(0.75),
+                bottomAverage(bottomQuartileEnd), topAverage(count - topQuartileStart));
+    }
+
+    // Sum of `taken` values of a bin, estimated from the bin mean when only part of it is taken
+    private double partialSum(int bin, long taken) {
+        if (taken == 0) return 0.0;
+        return taken == counts[bin] ? sums[bin] : taken * (sums[bin] / counts[bin]);
+    }
+
+    private int binOf(double value) {
+        if (value < lower) return 0;
+        if (value >= upper) return counts.length - 1;
+        int bin = 1 + (int) ((value - lower) / binWidth);
+        return Math.min(bin, counts.length - 2);
+    }
+
+    private double binStart(int bin) {
+        return bin == 0 ? min : lower + (bin - 1) * binWidth;
+    }
+
+    private double binEnd(int bin) {
+        return bin == counts.length - 1 ? max : lower + bin * binWidth;
+    }
+}
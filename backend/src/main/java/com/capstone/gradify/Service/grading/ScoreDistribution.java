@@ -0,0 +1,90 @@
+package com.capstone.gradify.Service.grading;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive collection of scores for distribution statistics, avoiding a boxed Double per
+ * score. Scores are kept exactly up to {@link #SKETCH_THRESHOLD}; past that they are folded into a
+ * {@link QuantileSketch} so institution-wide inputs use fixed memory.
+ */
+public final class ScoreDistribution {
+
+    // 8 MB of doubles, far beyond any single teacher's classes
+    public static final int SKETCH_THRESHOLD = 1 << 20;
+
+    private static final int SKETCH_BINS = 2000;
+
+    private final double lower;
+    private final double upper;
+    private double[] values = new double[64];
+    private int size;
+    private QuantileSketch sketch;
+
+    /**
+     * Distribution of 0-100 percentages.
+     */
+    public ScoreDistribution() {
+        this(0, 100);
+    }
+
+    /**
+     * Distribution of scores expected in [lower, upper); only the sketch depends on the range.
+     */
+    public ScoreDistribution(double lower, double upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public void add(double value) {
+        if (sketch != null) {
+            sketch.add(value);
+            return;
+        }
+        if (size == values.length) {
+            if (size >= SKETCH_THRESHOLD) {
+                toSketch();
+                sketch.add(value);
+                return;
+            }
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(ScoreDistribution other) {
+        if (other.sketch != null) {
+            if (sketch == null) toSketch();
+            sketch.merge(other.sketch);
+        } else if (sketch != null) {
+            sketch.addAll(other.values, other.size);
+        } else if ((long) size + other.size > SKETCH_THRESHOLD) {
+            toSketch();
+            sketch.addAll(other.values, other.size);
+        } else {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+
+    public long count() {
+        return sketch != null ? sketch.count() : size;
+    }
+
+    /**
+     * Summarize the scores, exactly while they are buffered, approximately once sketched.
+     * Reorders the buffered scores, so call it after the last add.
+     */
+    public ScoreSummary summarize() {
+        return sketch != null ? sketch.summarize() : PercentileCalculator.summarize(values, size);
+    }
+
+    private void toSketch() {
+        sketch = new QuantileSketch(lower, upper, SKETCH_BINS);
+        sketch.addAll(values, size);
+        values = null;
+        size = 0;
+    }
+}
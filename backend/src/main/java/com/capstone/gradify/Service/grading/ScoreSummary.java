@@ -0,0 +1,31 @@
+package com.capstone.gradify.Service.grading;
+
+import lombok.Getter;
+
+/**
+ * Distribution statistics of a set of scores, produced by {@link PercentileCalculator} or {@link QuantileSketch}.
+ */
+@Getter
+public final class ScoreSummary {
+
+    public static final ScoreSummary EMPTY = new ScoreSummary(0, 0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final double mean;
+    private final double firstQuartile;
+    private final double median;
+    private final double thirdQuartile;
+    private final double bottomQuartileAverage;
+    private final double topQuartileAverage;
+
+    public ScoreSummary(long count, double mean, double firstQuartile, double median, double thirdQuartile,
+                        double bottomQuartileAverage, double topQuartileAverage) {
+        this.count = count;
+        this.mean = mean;
+        this.firstQuartile = firstQuartile;
+        this.median = median;
+        this.thirdQuartile = thirdQuartile;
+        this.bottomQuartileAverage = bottomQuartileAverage;
+        this.topQuartileAverage = topQuartileAverage;
+    }
+}
@@ -1,4 +1,5 @@
 package com.capstone.gradify.Service.notification;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,8 @@ public class EmailService {
     private JavaMailSender mailSender;
     @Autowired
     private TemplateEngine templateEngine;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
 
     public void sendVerificationEmail(String toEmail, String verificationCode) throws MessagingException {
         Context context = new Context();
@@ -27,7 +30,8 @@ public class EmailService {
         helper.setTo(toEmail);
         helper.setSubject("Email Verification Code");
         helper.setText(htmlContent, true); // true indicates that the text is HTML
-        mailSender.send(message);
+        hotPathMetrics.time(HotPathMetrics.NOTIFICATION_DISPATCH, () -> mailSender.send(message),
+                "channel", "email", "template", "verification-code");
     }
 
     public void sendFeedbackNotification(String toEmail, String subject, String feedback, String className, String studentName, String feedbackUrl, String reportDate) throws MessagingException {
@@ -46,7 +50,8 @@ public class EmailService {
         helper.setTo(toEmail);
         helper.setSubject(subject);
         helper.setText(htmlContent, true); // true indicates that the text is HTML
-        mailSender.send(message);
+        hotPathMetrics.time(HotPathMetrics.NOTIFICATION_DISPATCH, () -> mailSender.send(message),
+                "channel", "email", "template", "feedback-notification");
     }
 }
 
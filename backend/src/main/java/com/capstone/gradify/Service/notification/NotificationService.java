@@ -4,6 +4,7 @@ import com.capstone.gradify.Entity.NotificationEntity;
 import com.capstone.gradify.Entity.ReportEntity;
 import com.capstone.gradify.Entity.user.UserEntity;
 import com.capstone.gradify.Repository.NotificationRepository;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
 import com.capstone.gradify.Service.userservice.UserService;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.messaging.FirebaseMessaging;
@@ -27,6 +28,8 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
     @Autowired
     private UserService userService;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
     public NotificationService(FirebaseApp firebaseApp) {
         this.firebaseApp = firebaseApp;
     }
@@ -49,7 +52,7 @@ public class NotificationService {
             notificationRepository.save(notificationEntity);
             String fcmToken = user.getFCMToken();
             if (fcmToken == null || fcmToken.isEmpty()) {
-                log.info("User doesn't have a registered device token. Skipping notification.");
+                log.debug("User doesn't have a registered device token. Skipping notification.");
                 return;
             }
             Message message = Message.builder()
@@ -60,8 +63,9 @@ public class NotificationService {
                     .setToken(fcmToken)
                     .build();
 
-            String response = FirebaseMessaging.getInstance(firebaseApp).send(message);
-            log.info("Successfully sent notification: " + response);
+            String response = hotPathMetrics.timeChecked(HotPathMetrics.NOTIFICATION_DISPATCH,
+                    () -> FirebaseMessaging.getInstance(firebaseApp).send(message), "channel", "push");
+            log.debug("Successfully sent notification: {}", response);
         }catch (Exception e){
             log.error("Unexpected error in notification service: " + e.getMessage(), e);
         }
@@ -0,0 +1,169 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects a class record sheet as its rows stream in: the first row holds the headers, the second
+ * the max value of each assessment column, and every following row one student's grades. Rows come
+ * either from a workbook or from a CSV/TSV file.
+ */
+final class ClassRecordSheet implements SheetRowHandler, DelimitedRowHandler {
+
+    private final boolean headerRowsOnly;
+    private final List<String> headers = new ArrayList<>();
+    private final Map<String, Integer> maxAssessmentValues = new HashMap<>();
+    private final List<Map<String, String>> records = new ArrayList<>();
+    private final List<String> diagnostics = new ArrayList<>();
+    private final Set<String> seenHeaders = new HashSet<>();
+    private int rowsRead;
+    private int ignoredCells;
+    private int emptyRows;
+
+    /**
+     * @param headerRowsOnly Stop after the header and max value rows, skipping the student rows
+     */
+    ClassRecordSheet(boolean headerRowsOnly) {
+        this.headerRowsOnly = headerRowsOnly;
+    }
+
+    @Override
+    public boolean row(SheetRow row) {
+        if (rowsRead == 0) {
+            for (SheetCell cell : row.getCells()) {
+                addHeader(cell.getStringCellValue());
+            }
+        } else if (rowsRead == 1) {
+            for (int i = 0; i < headers.size(); i++) {
+                String header = headers.get(i);
+                SheetCell cell = row.getCell(i);
+
+                // Only process assessment columns (those with numeric values)
+                if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+                    int maxValue = (int) cell.getNumericCellValue();
+                    maxAssessmentValues.put(header, maxValue);
+                }
+            }
+        } else {
+            Map<String, String> record = new HashMap<>();
+            boolean empty = true;
+            for (int i = 0; i < headers.size(); i++) {
+                String value = cellValue(row.getCell(i));
+                empty &= value.isEmpty();
+                record.put(headers.get(i), value);
+            }
+            for (SheetCell cell : row.getCells()) {
+                if (cell.getColumnIndex() >= headers.size() && cell.getCellType() != CellType.BLANK) {
+                    ignoredCells++;
+                }
+            }
+            addRecord(record, empty);
+        }
+        rowsRead++;
+        return !headerRowsOnly || rowsRead < 2;
+    }
+
+    @Override
+    public boolean row(int rowNum, String[] fields, int count) {
+        if (rowsRead == 0) {
+            for (int i = 0; i < count; i++) {
+                addHeader(fields[i]);
+            }
+        } else if (rowsRead == 1) {
+            for (int i = 0; i < headers.size() && i < count; i++) {
+                // Text columns in the max value row are not assessments
+                String text = fields[i].trim();
+                if (!text.isEmpty()) {
+                    try {
+                        maxAssessmentValues.put(headers.get(i), (int) Double.parseDouble(text));
+                    } catch (NumberFormatException e) {
+                        // Not an assessment column
+                    }
+                }
+            }
+        } else {
+            Map<String, String> record = new HashMap<>();
+            boolean empty = true;
+            for (int i = 0; i < headers.size(); i++) {
+                String value = i < count ? fields[i] : "";
+                empty &= value.isEmpty();
+                record.put(headers.get(i), value);
+            }
+            for (int i = headers.size(); i < count; i++) {
+                if (!fields[i].isEmpty()) {
+                    ignoredCells++;
+                }
+            }
+            addRecord(record, empty);
+        }
+        rowsRead++;
+        return !headerRowsOnly || rowsRead < 2;
+    }
+
+    private void addHeader(String header) {
+        if (header.isBlank()) {
+            diagnostics.add("Column " + (headers.size() + 1) + " has a blank header");
+        } else if (!seenHeaders.add(header)) {
+            diagnostics.add("Header '" + header + "' appears more than once; the last column wins");
+        }
+        headers.add(header);
+    }
+
+    private void addRecord(Map<String, String> record, boolean empty) {
+        if (empty) {
+            emptyRows++;
+        }
+        records.add(record);
+    }
+
+    /**
+     * The collected sheet, with diagnostics summarizing what was ignored.
+     */
+    ParsedSpreadsheet toParsedSpreadsheet() {
+        List<String> notes = new ArrayList<>(diagnostics);
+        if (rowsRead == 0) {
+            notes.add("The sheet is empty");
+        } else if (rowsRead == 1) {
+            notes.add("The sheet has no max value row (row 2), so no column is treated as an assessment");
+        } else if (maxAssessmentValues.isEmpty()) {
+            notes.add("Row 2 has no numeric max values, so no column is treated as an assessment");
+        }
+        if (ignoredCells > 0) {
+            notes.add(ignoredCells + " cells to the right of the last header were ignored");
+        }
+        if (emptyRows > 0) {
+            notes.add(emptyRows + " rows without any values were imported as blank records");
+        }
+        return new ParsedSpreadsheet(headers, maxAssessmentValues, records, notes);
+    }
+
+    Map<String, Integer> getMaxAssessmentValues() {
+        return maxAssessmentValues;
+    }
+
+    List<Map<String, String>> getRecords() {
+        return records;
+    }
+
+    private static String cellValue(SheetCell cell) {
+        if (cell == null) {
+            return ""; // Return empty string for null cells
+        }
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue();
+            case NUMERIC:
+                return String.valueOf(cell.getNumericCellValue());
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            default:
+                return "";
+        }
+    }
+}
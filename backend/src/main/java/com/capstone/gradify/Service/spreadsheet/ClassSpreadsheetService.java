@@ -9,17 +9,28 @@ import com.capstone.gradify.Repository.records.ClassRepository;
 import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
 import com.capstone.gradify.Repository.records.GradeRecordRepository;
 import com.capstone.gradify.Repository.user.StudentRepository;
-import org.apache.poi.ss.usermodel.*;
+import com.capstone.gradify.Service.grading.ComputedGradeService;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.transaction.annotation.Transactional;
 import com.capstone.gradify.Entity.user.StudentEntity;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.Function;
 
 @Service
 public class ClassSpreadsheetService {
@@ -32,6 +43,16 @@ public class ClassSpreadsheetService {
     private GradeRecordRepository gradeRecordRepository;
     @Autowired
     private ClassRepository classRepository;
+    @Autowired
+    private ComputedGradeService computedGradeService;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${gradify.import.batch-size:500}")
+    private int importBatchSize;
+    // Student numbers per IN query, well below Postgres' bind parameter limit
+    private static final int STUDENT_LOOKUP_CHUNK = 1000;
     public ClassSpreadsheetService() {
         super();
     }
@@ -65,100 +86,122 @@ public class ClassSpreadsheetService {
         return classSpreadsheet;
     }
 
-    public List<Map<String, String>> parseClassRecord(MultipartFile file) throws IOException {
-        List<Map<String, String>> records = new ArrayList<>();
-        Map<String, Integer> maxAssessmentValues = new HashMap<>();
-
-        Workbook workbook = WorkbookFactory.create(file.getInputStream());
-        Sheet sheet = workbook.getSheetAt(0);
-
-        Iterator<Row> rowIterator = sheet.iterator();
-        List<String> headers = new ArrayList<>();
-        if (rowIterator.hasNext()) {
-            Row headerRow = rowIterator.next();
-            for(Cell cell : headerRow) {
-                headers.add(cell.getStringCellValue());
-            }
-        }
-
-        if (rowIterator.hasNext()) {
-            Row maxValueRow = rowIterator.next();
-            for (int i = 0; i < headers.size(); i++) {
-                String header = headers.get(i);
-                Cell cell = maxValueRow.getCell(i);
+    /**
+     * Parse an uploaded class record once, returning its headers, max values, student rows and diagnostics.
+     */
+    public ParsedSpreadsheet parseSpreadsheet(MultipartFile file) throws IOException {
+        return hotPathMetrics.timeChecked(HotPathMetrics.SPREADSHEET_PARSE, () -> readSpreadsheet(file),
+                "format", fileFormat(file.getOriginalFilename()));
+    }
 
-                // Only process assessment columns (those with numeric values)
-                if (cell != null && cell.getCellType() == CellType.NUMERIC) {
-                    int maxValue = (int) cell.getNumericCellValue();
-                    maxAssessmentValues.put(header, maxValue);
+    /**
+     * Parse one sheet of a workbook, found by name, or the first sheet when sheetName is null.
+     */
+    public ParsedSpreadsheet parseSheet(MultipartFile file, String sheetName) throws IOException {
+        if (sheetName == null || DelimitedTextReader.isDelimitedFile(file.getOriginalFilename())) {
+            return parseSpreadsheet(file);
+        }
+        return hotPathMetrics.timeChecked(HotPathMetrics.SPREADSHEET_PARSE, () -> {
+            try (InputStream in = file.getInputStream(); SheetWorkbook workbook = SheetWorkbook.open(in)) {
+                int index = workbook.getSheetNames().indexOf(sheetName);
+                if (index < 0) {
+                    throw new IOException("The workbook has no sheet named '" + sheetName + "'");
                 }
+                ClassRecordSheet sheet = new ClassRecordSheet(false);
+                workbook.readSheet(index, sheet);
+                return sheet.toParsedSpreadsheet();
             }
-        }
+        }, "format", fileFormat(file.getOriginalFilename()));
+    }
 
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            Map<String, String> record = new java.util.HashMap<>();
-            for (int i = 0; i < headers.size(); i++) {
-                Cell cell = row.getCell(i);
-                String cellValue = getCellValue(cell);
-                record.put(headers.get(i), cellValue);
-            }
-            records.add(record);
-        }
-        workbook.close();
-        return records;
+    public List<Map<String, String>> parseClassRecord(MultipartFile file) throws IOException {
+        return parseSpreadsheet(file).getRecords();
     }
 
-    public Map<String, Integer> getMaxAssessmentValue(MultipartFile file) throws IOException {
-        Map<String, Integer> maxAssessmentValues = new HashMap<>();
-        Workbook workbook = WorkbookFactory.create(file.getInputStream());
-        Sheet sheet = workbook.getSheetAt(0);
-
-        Iterator<Row> rowIterator = sheet.iterator();
-        List<String> headers = new ArrayList<>();
-        if (rowIterator.hasNext()) {
-            Row headerRow = rowIterator.next();
-            for(Cell cell : headerRow) {
-                headers.add(cell.getStringCellValue());
-            }
+    private ParsedSpreadsheet readSpreadsheet(MultipartFile file) throws IOException {
+        ImportJob.reportPhase("parsing");
+        ClassRecordSheet sheet = new ClassRecordSheet(false);
+        readRows(file, sheet);
+        ParsedSpreadsheet parsed = sheet.toParsedSpreadsheet();
+        if (!parsed.getDiagnostics().isEmpty()) {
+            logger.info("Parsed {} with notes: {}", file.getOriginalFilename(), parsed.getDiagnostics());
         }
+        ImportJob.reportWarnings(parsed.getDiagnostics());
+        ImportJob.reportRows(0, parsed.getRecords().size());
+        return parsed;
+    }
 
-        if (rowIterator.hasNext()) {
-            Row maxValueRow = rowIterator.next();
-            for (int i = 0; i < headers.size(); i++) {
-                String header = headers.get(i);
-                Cell cell = maxValueRow.getCell(i);
+    // Metric tag for an uploaded file, limited to the formats the parser knows
+    static String fileFormat(String fileName) {
+        String name = fileName != null ? fileName.toLowerCase() : "";
+        if (name.endsWith(".xlsx")) return "xlsx";
+        if (name.endsWith(".xls")) return "xls";
+        if (name.endsWith(".csv")) return "csv";
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) return "tsv";
+        return "other";
+    }
 
-                // Only process assessment columns (those with numeric values)
-                if (cell != null && cell.getCellType() == CellType.NUMERIC) {
-                    int maxValue = (int) cell.getNumericCellValue();
-                    maxAssessmentValues.put(header, maxValue);
-                }
+    // CSV and TSV files skip POI entirely; anything else is read as a workbook
+    private static void readRows(MultipartFile file, ClassRecordSheet sheet) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (file instanceof TempFileMultipartFile tempFile && !DelimitedTextReader.isDelimitedFile(fileName)) {
+            // Background imports and downloads are already in a file of their own
+            SheetReader.readFirstSheet(tempFile.getPath(), sheet);
+            return;
+        }
+        try (InputStream in = file.getInputStream()) {
+            if (DelimitedTextReader.isDelimitedFile(fileName)) {
+                DelimitedTextReader.read(in, DelimitedTextReader.delimiterFor(fileName), sheet);
+            } else {
+                SheetReader.readFirstSheet(in, sheet);
             }
         }
-        workbook.close();
-        return maxAssessmentValues;
     }
 
-    private String getCellValue(Cell cell) {
-        if (cell == null) {
-            return ""; // Return empty string for null cells
+    /**
+     * Hex SHA-256 of an uploaded file's bytes, identifying re-uploads of the same file.
+     */
+    public String contentHash(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        String value = "";
-        switch (cell.getCellType()) {
-            case STRING:
-                value = cell.getStringCellValue();
-                break;
-            case NUMERIC:
-                value = String.valueOf(cell.getNumericCellValue());
-                break;
-            case BOOLEAN:
-                value = String.valueOf(cell.getBooleanCellValue());
-                break;
-            default:
-                break;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
         }
-        return value;
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Content hash of one sheet of an uploaded workbook, derived from the file's hash and the sheet name.
+     */
+    public String sheetContentHash(String fileHash, String sheetName) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update((fileHash + "/" + sheetName).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * A class the teacher already created by uploading a file with this content hash, if any.
+     */
+    public Optional<ClassSpreadsheet> findImportedUpload(TeacherEntity teacher, String contentHash) {
+        return classSpreadsheetRepository.findByUploadedByAndContentHash(teacher, contentHash).stream()
+                .filter(spreadsheet -> spreadsheet.getClassEntity() != null)
+                .max(Comparator.comparing(ClassSpreadsheet::getId));
+    }
+
+    public Map<String, Integer> getMaxAssessmentValue(MultipartFile file) throws IOException {
+        // Only the header and max value rows are read
+        ClassRecordSheet sheet = new ClassRecordSheet(true);
+        readRows(file, sheet);
+        return sheet.getMaxAssessmentValues();
     }
 
     public String extractFileName(String fileName){
@@ -170,25 +213,40 @@ public class ClassSpreadsheetService {
 
     // Overload createClassEntityFromSpreadsheet to accept an optional custom name
     public ClassEntity createClassEntityFromSpreadsheet(MultipartFile file, List<Map<String, String>> records, TeacherEntity teacher, String customClassName) {
+        String filename = (customClassName != null && !customClassName.isEmpty()) ? customClassName : file.getOriginalFilename();
+        if (filename == null) {
+            return newClassEntity(null, false, teacher);
+        }
+        String baseName = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        return newClassEntity(baseName, customClassName == null, teacher);
+    }
+
+    /**
+     * A new class for one sheet of a workbook, named like an uploaded file: "Class - Section" or
+     * "Class - Section - Semester - Year" sheet names set the section and class code.
+     */
+    public ClassEntity createClassEntityForSheet(String sheetName, TeacherEntity teacher) {
+        return newClassEntity(sheetName, true, teacher);
+    }
+
+    // splitName reads the section and class code from a "Class - Section - Semester - Year" name
+    private ClassEntity newClassEntity(String baseName, boolean splitName, TeacherEntity teacher) {
         ClassEntity classEntity = new ClassEntity();
         classEntity.setTeacher(teacher);
 
-        String filename = (customClassName != null && !customClassName.isEmpty()) ? customClassName : file.getOriginalFilename();
-
-        if (filename != null) {
-            String baseName = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        if (baseName != null) {
             String[] parts = baseName.split("-");
 
-            if (parts.length >= 2 && customClassName == null) { // Only use parts if not custom named for section
+            if (parts.length >= 2 && splitName) { // Only use parts if not custom named for section
                 classEntity.setClassName(parts[0].trim());
                 classEntity.setSection(parts[1].trim());
             } else {
                 classEntity.setClassName(baseName.trim());
                 // If section is not in filename or it's a custom name, it might need to be set differently or default
-                classEntity.setSection(parts.length > 1 && customClassName == null ? parts[1].trim() : "Default Section");
+                classEntity.setSection("Default Section");
             }
 
-            if (parts.length >= 4 && customClassName == null) {
+            if (parts.length >= 4 && splitName) {
                 classEntity.setClassCode(generateClassCode(parts[0], parts[1], parts[2], parts[3]));
             } else {
                 classEntity.setClassCode(generateRandomClassCode());
@@ -283,34 +341,20 @@ public class ClassSpreadsheetService {
         if (classRecord.getId() == null) {
             classRecord = classSpreadsheetRepository.save(classRecord);
         }
-
         // Find the student by student number or create new one
         StudentEntity student = studentRepository.findByStudentNumber(studentNumber)
-                .orElseGet(() -> {
-                    StudentEntity newStudent = new StudentEntity();
-                    newStudent.setStudentNumber(studentNumber);
-
-//                    // Split name into first and last name if available
-//                    if (studentName != null && !studentName.trim().isEmpty()) {
-//                        String[] nameParts = studentName.trim().split("\\s+", 2);
-//                        newStudent.setFirstName(nameParts[0]);
-//                        if (nameParts.length > 1) {
-//                            newStudent.setLastName(nameParts[1]);
-//                        }
-//                    }
-                    newStudent.setFirstName(studentFirstName);
-                    newStudent.setLastName(studentLastName);
-                    newStudent.setRole(Role.STUDENT);
-                    newStudent.setIsActive(true);
-                    newStudent.setCreatedAt(new Date());
-
-                    // You might need a temporary email and password if these are required
-                    // or mark them as to be completed later by the student
-                    newStudent.setEmail(studentNumber + "@temp.edu"); // Temporary email
-                    newStudent.setPassword("PLACEHOLDER"); // Will need to be changed when student registers
-
-                    return studentRepository.save(newStudent);
-                });
+                .orElseGet(() -> studentRepository.save(newPlaceholderStudent(studentNumber, studentFirstName, studentLastName)));
+        return gradeRecordRepository.save(buildGradeRecord(studentNumber, student, classRecord, grades));
+    }
+
+    /**
+     * A grade record for a student row. The record itself is not saved.
+     */
+    private GradeRecordsEntity buildGradeRecord(
+            String studentNumber,
+            StudentEntity student,
+            ClassSpreadsheet classRecord,
+            Map<String, String> grades) {
 
         // Create and populate the grade record
         GradeRecordsEntity gradeRecord = new GradeRecordsEntity();
@@ -319,65 +363,184 @@ public class ClassSpreadsheetService {
         gradeRecord.setClassRecord(classRecord);
         gradeRecord.setGrades(grades);
 
-        return gradeRecordRepository.save(gradeRecord);
+        return gradeRecord;
+    }
+
+    /**
+     * The students for a sheet's rows, keyed by student number. Existing students are fetched with one IN
+     * query per chunk of numbers, and the missing ones are created as placeholders in a single saveAll.
+     * Rows without a student number are left out.
+     *
+     * @param records       The rows that need a student
+     * @param studentNumber Where each row keeps its student number
+     */
+    private Map<String, StudentEntity> resolveStudents(Collection<Map<String, String>> records,
+                                                       Function<Map<String, String>, String> studentNumber) {
+        ImportJob.reportPhase("matching students");
+        Map<String, Map<String, String>> rowsByNumber = new LinkedHashMap<>();
+        for (Map<String, String> record : records) {
+            String number = studentNumber.apply(record);
+            if (number != null && !number.trim().isEmpty()) {
+                rowsByNumber.putIfAbsent(number, record);
+            }
+        }
+
+        Map<String, StudentEntity> students = new HashMap<>();
+        List<String> numbers = new ArrayList<>(rowsByNumber.keySet());
+        for (int from = 0; from < numbers.size(); from += STUDENT_LOOKUP_CHUNK) {
+            List<String> chunk = numbers.subList(from, Math.min(numbers.size(), from + STUDENT_LOOKUP_CHUNK));
+            for (StudentEntity student : studentRepository.findByStudentNumberIn(chunk)) {
+                students.putIfAbsent(student.getStudentNumber(), student);
+            }
+        }
+
+        List<StudentEntity> placeholders = new ArrayList<>();
+        rowsByNumber.forEach((number, record) -> {
+            if (!students.containsKey(number)) {
+                placeholders.add(newPlaceholderStudent(number, record.get("First Name"), record.get("Last Name")));
+            }
+        });
+        if (!placeholders.isEmpty()) {
+            for (StudentEntity student : studentRepository.saveAll(placeholders)) {
+                students.put(student.getStudentNumber(), student);
+            }
+            logger.debug("Created {} placeholder students", placeholders.size());
+        }
+        return students;
+    }
+
+    // Upload sheets may label the column either way
+    static String studentNumberOf(Map<String, String> record) {
+        String studentNumber = record.get("Student Number");
+        return studentNumber != null ? studentNumber : record.get("StudentNumber");
+    }
+
+    private static StudentEntity newPlaceholderStudent(String studentNumber, String studentFirstName, String studentLastName) {
+        StudentEntity newStudent = new StudentEntity();
+        newStudent.setStudentNumber(studentNumber);
+        newStudent.setFirstName(studentFirstName);
+        newStudent.setLastName(studentLastName);
+        newStudent.setRole(Role.STUDENT);
+        newStudent.setIsActive(true);
+        newStudent.setCreatedAt(new Date());
+
+        // You might need a temporary email and password if these are required
+        // or mark them as to be completed later by the student
+        newStudent.setEmail(studentNumber + "@temp.edu"); // Temporary email
+        newStudent.setPassword("PLACEHOLDER"); // Will need to be changed when student registers
+        return newStudent;
     }
 
+    /**
+     * Insert new grade records in chunks of gradify.import.batch-size. Each chunk is flushed as JDBC batch
+     * inserts (hibernate.jdbc.batch_size), with ids drawn from the pooled sequence.
+     */
+    private void saveGradeRecords(List<GradeRecordsEntity> gradeRecords) {
+        ImportJob.reportPhase("saving");
+        for (int from = 0; from < gradeRecords.size(); from += importBatchSize) {
+            int to = Math.min(gradeRecords.size(), from + importBatchSize);
+            gradeRecordRepository.saveAll(gradeRecords.subList(from, to));
+            entityManager.flush();
+            ImportJob.reportRows(to, gradeRecords.size());
+        }
+    }
+
+    @Transactional
     public ClassSpreadsheet saveRecord(String filename, TeacherEntity teacher,
                                        List<Map<String, String>> records, ClassEntity classEntity, Map<String, Integer> maxAssessmentValues) {
+        return saveRecord(filename, teacher, records, classEntity, maxAssessmentValues, null);
+    }
+
+    /**
+     * Save a new class spreadsheet and its grade records.
+     *
+     * @param contentHash The {@link #contentHash} of the uploaded file, or null if it did not come from one
+     */
+    @Transactional
+    public ClassSpreadsheet saveRecord(String filename, TeacherEntity teacher, List<Map<String, String>> records,
+                                       ClassEntity classEntity, Map<String, Integer> maxAssessmentValues, String contentHash) {
         ClassSpreadsheet spreadsheet = new ClassSpreadsheet();
         spreadsheet.setFileName(filename);
+        spreadsheet.setContentHash(contentHash);
         spreadsheet.setUploadedBy(teacher);
         spreadsheet.setClassName(classEntity.getClassName()); // Set the class name from ClassEntity
         spreadsheet.setClassEntity(classEntity);
         spreadsheet.setAssessmentMaxValues(maxAssessmentValues);
+        spreadsheet = classSpreadsheetRepository.save(spreadsheet);
+        Map<String, StudentEntity> students = resolveStudents(records, ClassSpreadsheetService::studentNumberOf);
         // Create grade records
         List<GradeRecordsEntity> gradeRecords = new ArrayList<>();
         for (Map<String, String> record : records) {
-            String studentFirstName = record.get("First Name");
-            String studentLastName = record.get("Last Name");
-            String studentNumber = record.get("Student Number");
-
-//            if (studentName == null) {
-//                // Try common field names or patterns in your data
-//                studentName = record.get("Name") != null ? record.get("name") :
-//                        (record.get("fullName") != null ? record.get("fullName") :
-//                                (record.get("First Name") + " " + record.get("Last Name")));
-//            }
-
-            if (studentNumber == null) {
-                studentNumber = record.get("StudentNumber");
-            }
+            String studentNumber = studentNumberOf(record);
 
             // Create the grade record with student association
-            GradeRecordsEntity gradeRecord = createGradeRecordWithStudentAssociation(
+            gradeRecords.add(buildGradeRecord(
                     studentNumber,
-                    studentFirstName,
-                    studentLastName,
+                    students.get(studentNumber),
                     spreadsheet,
                     record
-            );
-
-
-            gradeRecord.setGrades(record);
-
-            gradeRecords.add(gradeRecord);
+            ));
         }
+        saveGradeRecords(gradeRecords);
 
         spreadsheet.setGradeRecords(gradeRecords);
 
+        ClassSpreadsheet savedSpreadsheet = classSpreadsheetRepository.save(spreadsheet);
+        ImportJob.reportPhase("computing grades");
+        computedGradeService.refreshRecords(gradeRecords);
+        return savedSpreadsheet;
+    }
 
-        return classSpreadsheetRepository.save(spreadsheet);
+    /**
+     * Create the students of these records that are not stored yet, so imports saved side by side
+     * afterwards find them instead of each creating its own placeholder.
+     */
+    @Transactional
+    public void ensureStudents(Collection<Map<String, String>> records) {
+        resolveStudents(records, ClassSpreadsheetService::studentNumberOf);
+    }
+
+    /**
+     * Create a class from one parsed sheet, with its spreadsheet, grade records and students, in one
+     * transaction so a failed sheet leaves nothing behind.
+     *
+     * @param fileName    Stored as the spreadsheet's file name
+     * @param contentHash The sheet's {@link #sheetContentHash}, or null
+     */
+    @Transactional
+    public ClassSpreadsheet createClassFromSheet(String fileName, String sheetName, TeacherEntity teacher,
+                                                 ParsedSpreadsheet parsed, String contentHash) {
+        ClassEntity classEntity = classRepository.save(createClassEntityForSheet(sheetName, teacher));
+        ClassSpreadsheet savedSpreadsheet = saveRecord(fileName, teacher, parsed.getRecords(), classEntity,
+                parsed.getMaxAssessmentValues(), contentHash);
+        classEntity.setStudents(studentsOf(savedSpreadsheet.getGradeRecords()));
+        classRepository.save(classEntity);
+        return savedSpreadsheet;
     }
 
     @Transactional
     public ClassSpreadsheet updateSpreadsheet(Long spreadsheetId, MultipartFile file, TeacherEntity teacher) throws IOException {
+        return updateSpreadsheet(spreadsheetId, file, teacher, contentHash(file));
+    }
+
+    /**
+     * Apply a re-uploaded file to a spreadsheet. If the spreadsheet was last imported from a file with the
+     * same content hash and has not been edited since, nothing is parsed or written.
+     */
+    @Transactional
+    public ClassSpreadsheet updateSpreadsheet(Long spreadsheetId, MultipartFile file, TeacherEntity teacher,
+                                              String contentHash) throws IOException {
         // Fetch the existing spreadsheet
         ClassSpreadsheet existingSpreadsheet = classSpreadsheetRepository.findById(spreadsheetId)
                 .orElseThrow(() -> new RuntimeException("Class spreadsheet not found"));
+        if (isAlreadyImported(existingSpreadsheet, contentHash)) {
+            return existingSpreadsheet;
+        }
 
         // Parse the new data from file
-        List<Map<String, String>> updatedRecords = parseClassRecord(file);
-        Map<String, Integer> updatedMaxValues = getMaxAssessmentValue(file);
+        ParsedSpreadsheet parsed = parseSpreadsheet(file);
+        List<Map<String, String>> updatedRecords = parsed.getRecords();
+        Map<String, Integer> updatedMaxValues = parsed.getMaxAssessmentValues();
 
         // Update basic spreadsheet information
         String fileName = file.getOriginalFilename();
@@ -386,50 +549,17 @@ public class ClassSpreadsheetService {
             existingSpreadsheet.setClassName(extractFileName(fileName));
         }
 
+        Map<String, Integer> previousMaxValues = existingSpreadsheet.getAssessmentMaxValues();
         existingSpreadsheet.setAssessmentMaxValues(updatedMaxValues);
 
-        // Create a map of existing grade records by student number for quick lookup
-        Map<String, GradeRecordsEntity> existingRecordsByStudentId = new HashMap<>();
-        for (GradeRecordsEntity record : existingSpreadsheet.getGradeRecords()) {
-            existingRecordsByStudentId.put(record.getStudentNumber(), record);
-        }
-
-        // Process updated records
-        List<GradeRecordsEntity> updatedGradeRecords = new ArrayList<>();
-        for (Map<String, String> record : updatedRecords) {
-            String studentNumber = record.get("Student Number");
-            String studentFirstName = record.get("First Name");
-            String studentLastName = record.get("Last Name");
-
-            if (studentNumber == null) {
-                logger.warn("Skipping record with missing student number");
-                continue;
-            }
+        // Only rows that differ from the stored records are written; stored rows missing from the file are kept
+        GradeRecordDiff diff = GradeRecordDiff.compute(storedRecords(existingSpreadsheet), updatedRecords, GradeRecordDiff.Mode.UPSERT);
+        List<GradeRecordsEntity> changedRecords = applyDiff(existingSpreadsheet, diff);
+        existingSpreadsheet.setContentHash(contentHash);
 
-            // Check if this student already exists in the spreadsheet
-            if (existingRecordsByStudentId.containsKey(studentNumber)) {
-                // Update existing grade record
-                GradeRecordsEntity existingRecord = existingRecordsByStudentId.get(studentNumber);
-                existingRecord.setGrades(record);
-                updatedGradeRecords.add(existingRecord);
-            } else {
-                // Create new grade record for new student
-                GradeRecordsEntity newRecord = createGradeRecordWithStudentAssociation(
-                        studentNumber,
-                        studentFirstName,
-                        studentLastName,
-                        existingSpreadsheet,
-                        record
-                );
-                updatedGradeRecords.add(newRecord);
-            }
-        }
-
-        // Update the spreadsheet with the new records
-        existingSpreadsheet.setGradeRecords(updatedGradeRecords);
-
-        // Save and return the updated spreadsheet
-        return classSpreadsheetRepository.save(existingSpreadsheet);
+        ClassSpreadsheet savedSpreadsheet = classSpreadsheetRepository.save(existingSpreadsheet);
+        refreshAfterDiff(savedSpreadsheet.getClassEntity(), !Objects.equals(previousMaxValues, updatedMaxValues), diff, changedRecords);
+        return savedSpreadsheet;
     }
 
     public List<ClassSpreadsheet> getClassSpreadSheetByClassId(int classId) {
@@ -460,65 +590,36 @@ public class ClassSpreadsheetService {
             throw new RuntimeException("No existing spreadsheet record found to update for class: " + existingClass.getClassName());
         }
         ClassSpreadsheet classSpreadsheetToUpdate = existingSpreadsheets.get(0);
+        String contentHash = contentHash(file);
+        if (isAlreadyImported(classSpreadsheetToUpdate, contentHash)) {
+            return classSpreadsheetToUpdate;
+        }
 
-        List<Map<String, String>> newRecordsMaps = parseClassRecord(file);
-        Map<String, Integer> newMaxAssessmentValues = getMaxAssessmentValue(file);
+        ParsedSpreadsheet parsed = parseSpreadsheet(file);
+        List<Map<String, String>> newRecordsMaps = parsed.getRecords();
+        Map<String, Integer> newMaxAssessmentValues = parsed.getMaxAssessmentValues();
 
         classSpreadsheetToUpdate.setFileName(file.getOriginalFilename()); // Update filename
 
-        Map<String, Integer> mergedMaxValues = new HashMap<>(classSpreadsheetToUpdate.getAssessmentMaxValues() != null ? classSpreadsheetToUpdate.getAssessmentMaxValues() : new HashMap<>());
+        Map<String, Integer> previousMaxValues = classSpreadsheetToUpdate.getAssessmentMaxValues();
+        Map<String, Integer> mergedMaxValues = new HashMap<>(previousMaxValues != null ? previousMaxValues : new HashMap<>());
         mergedMaxValues.putAll(newMaxAssessmentValues);
         classSpreadsheetToUpdate.setAssessmentMaxValues(mergedMaxValues);
 
-        Map<String, GradeRecordsEntity> currentGradeRecordsMap = new HashMap<>();
-        if (classSpreadsheetToUpdate.getGradeRecords() != null) {
-            for (GradeRecordsEntity gre : classSpreadsheetToUpdate.getGradeRecords()) {
-                if (gre.getStudentNumber() != null) {
-                    currentGradeRecordsMap.put(gre.getStudentNumber(), gre);
-                }
-            }
-        } else {
-            classSpreadsheetToUpdate.setGradeRecords(new ArrayList<>());
-        }
-
+        // Non-blank cells are merged into the stored grades; only records that actually change are written
+        GradeRecordDiff diff = GradeRecordDiff.compute(storedRecords(classSpreadsheetToUpdate), newRecordsMaps, GradeRecordDiff.Mode.MERGE);
+        List<GradeRecordsEntity> changedRecords = applyDiff(classSpreadsheetToUpdate, diff);
+        classSpreadsheetToUpdate.setContentHash(contentHash);
 
         Set<StudentEntity> studentsInClass = existingClass.getStudents() != null ? new HashSet<>(existingClass.getStudents()) : new HashSet<>();
-
-        for (Map<String, String> newRecordMap : newRecordsMaps) {
-            String studentNumber = newRecordMap.get("Student Number");
-            String studentFirstName = newRecordMap.get("First Name");
-            String studentLastName = newRecordMap.get("Last Name");
-
-            if (studentNumber == null || studentNumber.trim().isEmpty()) {
-                logger.warn("Skipping record due to missing student number: {}", newRecordMap);
-                continue;
-            }
-
-            GradeRecordsEntity gradeRecordToUpdate = currentGradeRecordsMap.get(studentNumber);
-
-            if (gradeRecordToUpdate != null) {
-                Map<String, String> mergedGrades = new HashMap<>(gradeRecordToUpdate.getGrades());
-                newRecordMap.forEach((key, value) -> {
-                    if (value != null && !value.trim().isEmpty()) {
-                        mergedGrades.put(key, value);
-                    }
-                });
-                gradeRecordToUpdate.setGrades(mergedGrades);
-            } else {
-                gradeRecordToUpdate = createGradeRecordWithStudentAssociation(
-                        studentNumber, studentFirstName, studentLastName, classSpreadsheetToUpdate, newRecordMap);
-                classSpreadsheetToUpdate.getGradeRecords().add(gradeRecordToUpdate);
-            }
-            if (gradeRecordToUpdate.getStudent() != null) {
-                studentsInClass.add(gradeRecordToUpdate.getStudent());
-            }
-        }
-
+        studentsInClass.addAll(studentsOf(classSpreadsheetToUpdate.getGradeRecords()));
         existingClass.setStudents(studentsInClass);
         existingClass.setUpdatedAt(new Date());
         classRepository.save(existingClass);
 
-        return classSpreadsheetRepository.save(classSpreadsheetToUpdate);
+        ClassSpreadsheet savedSpreadsheet = classSpreadsheetRepository.save(classSpreadsheetToUpdate);
+        refreshAfterDiff(existingClass, !Objects.equals(previousMaxValues, mergedMaxValues), diff, changedRecords);
+        return savedSpreadsheet;
     }
 
     @Transactional
@@ -532,55 +633,187 @@ public class ClassSpreadsheetService {
             throw new RuntimeException("No spreadsheet found for class " + existingClass.getClassName() + " to replace.");
         }
         ClassSpreadsheet spreadsheetToReplace = existingSpreadsheets.get(0);
-
-        // Delete old grade records. Clearing the collection and relying on orphanRemoval=true is cleaner.
-        if (spreadsheetToReplace.getGradeRecords() != null) {
-            gradeRecordRepository.deleteAll(spreadsheetToReplace.getGradeRecords()); // Explicitly delete
-            spreadsheetToReplace.getGradeRecords().clear(); // Clear the collection
-        } else {
-            spreadsheetToReplace.setGradeRecords(new ArrayList<>());
+        String contentHash = contentHash(file);
+        if (isAlreadyImported(spreadsheetToReplace, contentHash)) {
+            return spreadsheetToReplace;
         }
-        // Flush to ensure deletes are processed before new inserts, if necessary,
-        // especially if student numbers could be re-used immediately (though less likely with UUIDs or sequences for IDs).
-        // classSpreadsheetRepository.flush(); // If issues persist with constraints
 
-        List<Map<String, String>> newRecordsMap = parseClassRecord(file);
-        Map<String, Integer> newMaxAssessmentValues = getMaxAssessmentValue(file);
+        ParsedSpreadsheet parsed = parseSpreadsheet(file);
+        List<Map<String, String>> newRecordsMap = parsed.getRecords();
+        Map<String, Integer> newMaxAssessmentValues = parsed.getMaxAssessmentValues();
 
         spreadsheetToReplace.setFileName(file.getOriginalFilename());
         // spreadsheetToReplace.setClassName(extractFileName(file.getOriginalFilename())); // ClassName of ClassSpreadsheet entity, not ClassEntity
+        Map<String, Integer> previousMaxValues = spreadsheetToReplace.getAssessmentMaxValues();
         spreadsheetToReplace.setAssessmentMaxValues(newMaxAssessmentValues);
         // uploadedBy should be the same teacher
 
-        List<GradeRecordsEntity> newGradeRecordsList = new ArrayList<>();
-        Set<StudentEntity> studentsInClass = new HashSet<>();
+        // Records of students no longer in the file are deleted; the rest are only written if they changed
+        GradeRecordDiff diff = GradeRecordDiff.compute(storedRecords(spreadsheetToReplace), newRecordsMap, GradeRecordDiff.Mode.REPLACE);
+        List<GradeRecordsEntity> changedRecords = applyDiff(spreadsheetToReplace, diff);
+        spreadsheetToReplace.setContentHash(contentHash);
 
-        for (Map<String, String> recordMap : newRecordsMap) {
-            String studentNumber = recordMap.get("Student Number");
-            String studentFirstName = recordMap.get("First Name");
-            String studentLastName = recordMap.get("Last Name");
+        existingClass.setStudents(studentsOf(spreadsheetToReplace.getGradeRecords()));
+        existingClass.setUpdatedAt(new Date());
+        classRepository.save(existingClass);
 
-            if (studentNumber == null || studentNumber.trim().isEmpty()) {
-                logger.warn("Skipping record in replace due to missing student number: {}", recordMap);
-                continue;
-            }
+        ClassSpreadsheet savedSpreadsheet = classSpreadsheetRepository.save(spreadsheetToReplace);
+        refreshAfterDiff(existingClass, !Objects.equals(previousMaxValues, newMaxAssessmentValues), diff, changedRecords);
+        return savedSpreadsheet;
+    }
+
+    /**
+     * Link a spreadsheet to the cloud spreadsheet it was imported from, so the sync keeps it up to date.
+     *
+     * @param sourceSheet   The sheet the records come from, or null for the first sheet
+     * @param sourceVersion The source's version as of the import; null makes the first sync pull
+     * @param nextSyncAt    When the first sync is due
+     */
+    @Transactional
+    public void linkSource(Long spreadsheetId, String sourceUrl, String sourceSheet, String sourceVersion, Date nextSyncAt) {
+        classSpreadsheetRepository.linkSource(spreadsheetId, sourceUrl, sourceSheet, sourceVersion, new Date(), nextSyncAt);
+    }
+
+    /**
+     * Take a due sync of a linked spreadsheet by moving it to its next time.
+     *
+     * @return false if another poller took it first
+     */
+    @Transactional
+    public boolean claimSync(Long spreadsheetId, Date dueAt, Date nextSyncAt) {
+        return classSpreadsheetRepository.claimSync(spreadsheetId, dueAt, nextSyncAt) == 1;
+    }
 
-            GradeRecordsEntity newGradeRecord = createGradeRecordWithStudentAssociation(
-                    studentNumber, studentFirstName, studentLastName, spreadsheetToReplace, recordMap
-            );
-            newGradeRecordsList.add(newGradeRecord);
-            if (newGradeRecord.getStudent() != null) {
-                studentsInClass.add(newGradeRecord.getStudent());
+    /**
+     * Bring a linked spreadsheet up to date with a newer version of its cloud source. As with a replacing
+     * upload, records of students no longer in the source are deleted and the rest are only written if
+     * they changed.
+     *
+     * @param parsed  The source sheet as read at that version
+     * @param version The source's version, stored so the next sync can tell whether it changed again
+     * @return Whether any record or max value changed
+     */
+    @Transactional
+    public boolean syncFromSource(Long spreadsheetId, ParsedSpreadsheet parsed, String version) {
+        ClassSpreadsheet spreadsheet = classSpreadsheetRepository.findById(spreadsheetId)
+                .orElseThrow(() -> new RuntimeException("Class spreadsheet not found"));
+        // An emptied or renamed-away sheet would otherwise delete the whole class record
+        if (parsed.getRecords().isEmpty()) {
+            throw new RuntimeException("The source of spreadsheet " + spreadsheetId + " has no student rows; not syncing");
+        }
+
+        // Google sheets have no max value row, so the stored max values are kept when the source has none
+        Map<String, Integer> previousMaxValues = spreadsheet.getAssessmentMaxValues();
+        Map<String, Integer> maxValues = parsed.getMaxAssessmentValues().isEmpty() && previousMaxValues != null
+                ? previousMaxValues : parsed.getMaxAssessmentValues();
+        boolean maxValuesChanged = !Objects.equals(previousMaxValues, maxValues);
+        spreadsheet.setAssessmentMaxValues(maxValues);
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(storedRecords(spreadsheet), parsed.getRecords(), GradeRecordDiff.Mode.REPLACE);
+        List<GradeRecordsEntity> changedRecords = applyDiff(spreadsheet, diff);
+        boolean changed = maxValuesChanged || !changedRecords.isEmpty() || !diff.getDeletes().isEmpty();
+
+        spreadsheet.setSourceVersion(version);
+        spreadsheet.setLastSyncedAt(new Date());
+        ClassEntity classEntity = spreadsheet.getClassEntity();
+        if (changed) {
+            // The records no longer match any uploaded file
+            spreadsheet.setContentHash(null);
+            if (classEntity != null) {
+                classEntity.setStudents(studentsOf(spreadsheet.getGradeRecords()));
+                classEntity.setUpdatedAt(new Date());
+                classRepository.save(classEntity);
             }
         }
-        spreadsheetToReplace.setGradeRecords(newGradeRecordsList); // Set the new list
+        classSpreadsheetRepository.save(spreadsheet);
+        if (changed) {
+            refreshAfterDiff(classEntity, maxValuesChanged, diff, changedRecords);
+        }
+        return changed;
+    }
 
-        existingClass.setStudents(studentsInClass);
-        existingClass.setUpdatedAt(new Date());
-        classRepository.save(existingClass);
+    // A re-upload of the file the spreadsheet's records already hold changes nothing
+    private boolean isAlreadyImported(ClassSpreadsheet spreadsheet, String contentHash) {
+        if (contentHash == null || !contentHash.equals(spreadsheet.getContentHash())) {
+            return false;
+        }
+        logger.info("Spreadsheet {} already holds the uploaded file {}, skipping the import", spreadsheet.getId(), contentHash);
+        ImportJob.reportPhase("unchanged");
+        return true;
+    }
 
-        return classSpreadsheetRepository.save(spreadsheetToReplace);
+    // The spreadsheet's grade records, starting an empty list if it has none
+    private static List<GradeRecordsEntity> storedRecords(ClassSpreadsheet spreadsheet) {
+        if (spreadsheet.getGradeRecords() == null) {
+            spreadsheet.setGradeRecords(new ArrayList<>());
+        }
+        return spreadsheet.getGradeRecords();
     }
 
+    private static Set<StudentEntity> studentsOf(Collection<GradeRecordsEntity> gradeRecords) {
+        Set<StudentEntity> students = new HashSet<>();
+        for (GradeRecordsEntity record : gradeRecords) {
+            if (record.getStudent() != null) {
+                students.add(record.getStudent());
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Write a re-upload's changes to a spreadsheet: delete the removed records, update the changed ones and
+     * insert the new ones, leaving unchanged records untouched.
+     *
+     * @return The inserted and updated records
+     */
+    private List<GradeRecordsEntity> applyDiff(ClassSpreadsheet spreadsheet, GradeRecordDiff diff) {
+        diff.getSkippedRows().forEach((record, reason) -> {
+            logger.warn("Skipping record {} of the upload: {}", record, reason);
+            ImportJob.reportRowError(record, reason);
+        });
+
+        if (!diff.getDeletes().isEmpty()) {
+            Set<GradeRecordsEntity> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+            deleted.addAll(diff.getDeletes());
+            storedRecords(spreadsheet).removeIf(deleted::contains);
+            gradeRecordRepository.deleteAll(diff.getDeletes());
+        }
 
+        List<GradeRecordsEntity> changed = new ArrayList<>(diff.getUpdates().size() + diff.getInserts().size());
+        diff.getUpdates().forEach((record, grades) -> {
+            record.setGrades(grades);
+            changed.add(record);
+        });
+
+        Map<String, StudentEntity> students = resolveStudents(diff.getInserts(), record -> record.get("Student Number"));
+        List<GradeRecordsEntity> inserted = new ArrayList<>(diff.getInserts().size());
+        for (Map<String, String> row : diff.getInserts()) {
+            String studentNumber = row.get("Student Number");
+            inserted.add(buildGradeRecord(studentNumber, students.get(studentNumber), spreadsheet, row));
+        }
+        saveGradeRecords(inserted);
+        storedRecords(spreadsheet).addAll(inserted);
+        changed.addAll(inserted);
+
+        logger.info("Re-upload of spreadsheet {}: {} inserted, {} updated, {} deleted, {} unchanged",
+                spreadsheet.getId(), inserted.size(), diff.getUpdates().size(), diff.getDeletes().size(), diff.getUnchanged());
+        return changed;
+    }
+
+    /**
+     * Recompute grades after a re-upload. New max values affect every record, and deleted records leave
+     * rows to drop, so those recompute the class; otherwise only the written records are recomputed.
+     */
+    private void refreshAfterDiff(ClassEntity classEntity, boolean maxValuesChanged, GradeRecordDiff diff,
+                                  List<GradeRecordsEntity> changedRecords) {
+        if (classEntity == null) {
+            return;
+        }
+        ImportJob.reportPhase("computing grades");
+        if (maxValuesChanged || !diff.getDeletes().isEmpty()) {
+            computedGradeService.refreshClass(classEntity.getClassId());
+        } else {
+            computedGradeService.refreshRecords(changedRecords);
+        }
+    }
 }
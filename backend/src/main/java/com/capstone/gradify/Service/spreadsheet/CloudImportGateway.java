@@ -0,0 +1,282 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.google.api.client.http.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Every call into a cloud spreadsheet provider goes through here, so one slow or failing provider
+ * cannot tie up the request threads or drag the other provider down with it.
+ * <p>
+ * Each provider gets:
+ * <ul>
+ *   <li>a bulkhead: at most {@code max-concurrent} calls at once, and a call that can't get in within
+ *   {@code acquire-timeout-ms} is turned away instead of queueing behind a stuck provider;</li>
+ *   <li>retries of transient failures (timeouts, refused connections, 429 and 5xx) with exponential
+ *   backoff and jitter, up to {@code max-attempts};</li>
+ *   <li>a circuit breaker that, after {@code breaker.failure-threshold} transient failures in a row,
+ *   fails calls immediately for {@code breaker.open-ms} and then lets a single trial call through.</li>
+ * </ul>
+ * A call's deadline ({@code deadline-ms}) bounds the time spent waiting for the bulkhead and between
+ * attempts; no attempt starts after it. An attempt already running is bounded by the provider's own
+ * HTTP timeouts rather than abandoned.
+ * <p>
+ * Calls must only read from the provider: a retried call runs again from the start, so an import
+ * downloads through here and saves afterwards.
+ * <p>
+ * All settings are under {@code gradify.cloud}.
+ */
+@Service
+public class CloudImportGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudImportGateway.class);
+
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final long deadlineMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+
+    private final Map<String, Provider> providers = new ConcurrentHashMap<>();
+
+    /**
+     * A call into a provider.
+     */
+    @FunctionalInterface
+    public interface CloudCall<T> {
+        T run() throws IOException, GeneralSecurityException;
+    }
+
+    /**
+     * Waits between attempts; replaced in tests so retries don't take real time.
+     */
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedIOException;
+    }
+
+    @Autowired
+    public CloudImportGateway(@Value("${gradify.cloud.max-concurrent:4}") int maxConcurrent,
+                              @Value("${gradify.cloud.acquire-timeout-ms:2000}") long acquireTimeoutMs,
+                              @Value("${gradify.cloud.deadline-ms:120000}") long deadlineMs,
+                              @Value("${gradify.cloud.max-attempts:3}") int maxAttempts,
+                              @Value("${gradify.cloud.backoff-ms:500}") long backoffMs,
+                              @Value("${gradify.cloud.max-backoff-ms:5000}") long maxBackoffMs,
+                              @Value("${gradify.cloud.breaker.failure-threshold:5}") int failureThreshold,
+                              @Value("${gradify.cloud.breaker.open-ms:30000}") long openMs) {
+        this(maxConcurrent, acquireTimeoutMs, deadlineMs, maxAttempts, backoffMs, maxBackoffMs, failureThreshold, openMs,
+                System::nanoTime, CloudImportGateway::sleep);
+    }
+
+    CloudImportGateway(int maxConcurrent, long acquireTimeoutMs, long deadlineMs, int maxAttempts, long backoffMs,
+                       long maxBackoffMs, int failureThreshold, long openMs, LongSupplier nanoClock, Sleeper sleeper) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.deadlineMs = deadlineMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = openMs;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Run a call into the given provider under its bulkhead, retry policy and circuit breaker.
+     *
+     * @throws CloudProviderUnavailableException If the provider's circuit is open, its bulkhead stays full,
+     *                                           or the deadline passes before an attempt could succeed
+     */
+    public <T> T execute(CloudSpreadsheetInterface service, CloudCall<T> call) throws IOException, GeneralSecurityException {
+        String name = ClassUtils.getUserClass(service).getSimpleName();
+        Provider provider = providers.computeIfAbsent(name, Provider::new);
+        long deadline = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+
+        Exception lastError = null;
+        for (int attempt = 1; ; attempt++) {
+            if (!provider.tryPass()) {
+                throw new CloudProviderUnavailableException(name, "temporarily unavailable after repeated failures", lastError);
+            }
+            acquire(provider, deadline);
+            long backoff = backoff(attempt);
+            try {
+                T result = call.run();
+                provider.onSuccess();
+                return result;
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                if (!isTransient(e)) {
+                    // The provider answered; a bad link or a missing permission says nothing about its health
+                    provider.onSuccess();
+                    throw e;
+                }
+                provider.onFailure();
+                lastError = e;
+                if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()
+                        || nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(backoff) >= deadline) {
+                    throw e;
+                }
+                logger.info("{} call failed (attempt {} of {}), retrying in {} ms: {}", name, attempt, maxAttempts,
+                        backoff, e.getMessage());
+            } finally {
+                provider.bulkhead.release();
+            }
+            // Without holding a permit, so waiting to retry doesn't keep other imports out
+            sleeper.sleep(backoff);
+        }
+    }
+
+    /**
+     * The state of each provider that has been called, for monitoring and load tests.
+     */
+    public List<Map<String, Object>> getProviderStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (Provider provider : providers.values()) {
+            status.add(provider.status());
+        }
+        return status;
+    }
+
+    private void acquire(Provider provider, long deadline) throws IOException {
+        long waitNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs), deadline - nanoClock.getAsLong());
+        boolean acquired;
+        try {
+            acquired = waitNanos > 0 && provider.bulkhead.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            provider.onRejected();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + provider.name);
+        }
+        if (!acquired) {
+            provider.onRejected();
+            throw new CloudProviderUnavailableException(provider.name,
+                    "busy with " + maxConcurrent + " imports, try again shortly", null);
+        }
+    }
+
+    // Exponential and capped, then jittered within its upper half so retries from many callers don't line up
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Whether a failure is likely to go away by itself: a timeout, a refused connection, or a rate
+     * limit or server error from the provider, anywhere in the cause chain.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof CloudProviderUnavailableException) {
+                return false;
+            }
+            if (e instanceof InterruptedIOException || e instanceof ConnectException) {
+                // Socket and OkHttp call timeouts are both InterruptedIOExceptions
+                return true;
+            }
+            if (e instanceof CloudProviderException providerError) {
+                return providerError.isTransient();
+            }
+            if (e instanceof HttpResponseException httpError) {
+                return httpError.getStatusCode() == 429 || httpError.getStatusCode() >= 500;
+            }
+        }
+        return false;
+    }
+
+    private enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final class Provider {
+        final String name;
+        final Semaphore bulkhead = new Semaphore(maxConcurrent, true);
+        private CircuitState state = CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private long rejected;
+
+        Provider(String name) {
+            this.name = name;
+        }
+
+        // Closed lets everything through; open nothing until open-ms passes, then one trial call
+        synchronized boolean tryPass() {
+            if (state == CircuitState.CLOSED) {
+                return true;
+            }
+            if (state == CircuitState.OPEN && nanoClock.getAsLong() - openedAt >= TimeUnit.MILLISECONDS.toNanos(openMs)) {
+                state = CircuitState.HALF_OPEN;
+                logger.info("{} circuit half-open, sending a trial call", name);
+                return true;
+            }
+            rejected++;
+            return false;
+        }
+
+        synchronized void onSuccess() {
+            if (state != CircuitState.CLOSED) {
+                logger.info("{} circuit closed", name);
+            }
+            state = CircuitState.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == CircuitState.HALF_OPEN || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+                logger.warn("{} circuit opened after {} failures in a row, failing calls for {} ms",
+                        name, consecutiveFailures, openMs);
+                state = CircuitState.OPEN;
+                openedAt = nanoClock.getAsLong();
+            }
+        }
+
+        // A trial call that never ran leaves the circuit open, with the next call as the trial
+        synchronized void onRejected() {
+            rejected++;
+            if (state == CircuitState.HALF_OPEN) {
+                state = CircuitState.OPEN;
+            }
+        }
+
+        synchronized Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("provider", name);
+            status.put("circuit", state.name());
+            status.put("consecutiveFailures", consecutiveFailures);
+            status.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+            status.put("rejected", rejected);
+            return status;
+        }
+    }
+}
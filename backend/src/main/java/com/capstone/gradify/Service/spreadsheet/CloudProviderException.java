@@ -0,0 +1,26 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * A cloud provider answered a request with an error status.
+ */
+@Getter
+public class CloudProviderException extends IOException {
+
+    private final int statusCode;
+
+    public CloudProviderException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Whether the same request may succeed later: rate limiting or a server-side error.
+     */
+    public boolean isTransient() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,20 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * A cloud import was not attempted, or not attempted again, because the provider is failing or already
+ * busy with as many imports as it is allowed. Worth retrying later.
+ */
+@Getter
+public class CloudProviderUnavailableException extends IOException {
+
+    private final String provider;
+
+    public CloudProviderUnavailableException(String provider, String message, Throwable cause) {
+        super(provider + ": " + message, cause);
+        this.provider = provider;
+    }
+}
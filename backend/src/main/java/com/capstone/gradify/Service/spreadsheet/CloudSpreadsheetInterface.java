@@ -1,13 +1,30 @@
 package com.capstone.gradify.Service.spreadsheet;
 
-import com.capstone.gradify.Entity.records.ClassSpreadsheet;
-import com.capstone.gradify.Entity.user.TeacherEntity;
-
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Optional;
 
 public interface CloudSpreadsheetInterface {
-    ClassSpreadsheet processSharedSpreadsheet(String sharedLink, TeacherEntity teacher)
+    /**
+     * Download the linked spreadsheet for an import, without saving anything. The caller closes it.
+     */
+    CloudWorkbook fetchWorkbook(String sharedLink) throws IOException, GeneralSecurityException;
+
+    /**
+     * Check whether the linked spreadsheet changed since a sync, without downloading its cells.
+     *
+     * @param knownVersion The version stored at the last sync, or null
+     * @return The current version if it differs from knownVersion, or empty if the spreadsheet is unchanged
+     */
+    Optional<String> changedVersion(String sharedLink, String knownVersion)
+            throws IOException, GeneralSecurityException;
+
+    /**
+     * Read one sheet of the linked spreadsheet for a sync.
+     *
+     * @param sheetName The sheet's name, or null for the first sheet
+     */
+    ParsedSpreadsheet fetchSheet(String sharedLink, String sheetName)
             throws IOException, GeneralSecurityException;
 
     boolean canProcessLink(String link);
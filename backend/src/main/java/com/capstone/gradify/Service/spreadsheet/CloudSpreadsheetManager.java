@@ -2,9 +2,14 @@ package com.capstone.gradify.Service.spreadsheet;
 
 import com.capstone.gradify.Entity.records.ClassSpreadsheet;
 import com.capstone.gradify.Entity.user.TeacherEntity;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
 import com.capstone.gradify.Service.spreadsheet.CloudSpreadsheetInterface;
+import io.micrometer.observation.Observation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -18,15 +23,29 @@ import java.util.Map;
 @Service
 public class CloudSpreadsheetManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(CloudSpreadsheetManager.class);
+
+    @Autowired
+    private CloudSyncService cloudSyncService;
+    @Autowired
+    private CloudImportGateway cloudImportGateway;
+    @Autowired
+    private ClassSpreadsheetService classSpreadsheetService;
+    @Autowired
+    private WorkbookImportService workbookImportService;
+
     private final List<CloudSpreadsheetInterface> cloudSpreadsheetServices;
+    private final HotPathMetrics hotPathMetrics;
 
     @Autowired
-    public CloudSpreadsheetManager(List<CloudSpreadsheetInterface> cloudSpreadsheetServices) {
+    public CloudSpreadsheetManager(List<CloudSpreadsheetInterface> cloudSpreadsheetServices, HotPathMetrics hotPathMetrics) {
         this.cloudSpreadsheetServices = cloudSpreadsheetServices;
+        this.hotPathMetrics = hotPathMetrics;
     }
 
     /**
-     * Process a spreadsheet from a shared cloud link
+     * Process a spreadsheet from a shared cloud link. The imported spreadsheet stays linked to the
+     * source and is kept up to date by {@link CloudSyncService}.
      *
      * @param sharedLink The URL or shared link to the spreadsheet
      * @param teacher    The teacher entity who is uploading the spreadsheet
@@ -37,11 +56,95 @@ public class CloudSpreadsheetManager {
      */
     public ClassSpreadsheet processSharedSpreadsheet(String sharedLink, TeacherEntity teacher)
             throws IOException, GeneralSecurityException {
+        return process(sharedLink, (workbook, version) -> {
+            ParsedSpreadsheet parsed = firstSheet(workbook);
+            if (parsed.getRecords().isEmpty()) {
+                throw new IOException("No data found in spreadsheet");
+            }
+            ClassSpreadsheet imported = classSpreadsheetService.createClassFromSheet(workbook.getFileName(),
+                    workbook.getTitle(), teacher, parsed, null);
+            link(imported.getId(), sharedLink, null, version);
+            return imported;
+        });
+    }
+
+    /**
+     * Import every sheet of a spreadsheet from a shared cloud link, each as its own class. Each imported
+     * sheet stays linked to its sheet of the source.
+     *
+     * @param sharedLink The URL or shared link to the spreadsheet
+     * @param teacher    The teacher entity who is uploading the spreadsheet
+     * @return One result per sheet; sheets that failed are reported rather than thrown
+     * @throws IOException              If the spreadsheet itself cannot be accessed
+     * @throws GeneralSecurityException If there's a security issue with credentials
+     * @throws IllegalArgumentException If no service can process the provided link
+     */
+    public List<SheetImportResult> processAllSheets(String sharedLink, TeacherEntity teacher)
+            throws IOException, GeneralSecurityException {
+        return process(sharedLink, (workbook, version) -> {
+            List<SheetImportResult> results = workbook.getFile() != null
+                    ? workbookImportService.importWorkbook(workbook.getFile(), workbook.getFileName(), null, teacher)
+                    : workbookImportService.importSheets(workbook.getFileName(), workbook.getSheetNames(),
+                            workbook.getSheets()::get, null, teacher);
+            for (SheetImportResult result : results) {
+                if (result.getStatus() == SheetImportResult.Status.IMPORTED) {
+                    link(result.getSpreadsheetId(), sharedLink, result.getSheetName(), version);
+                }
+            }
+            return results;
+        });
+    }
+
+    private ParsedSpreadsheet firstSheet(CloudWorkbook workbook) throws IOException {
+        if (workbook.getFile() != null) {
+            return classSpreadsheetService.parseSpreadsheet(workbook.getFile());
+        }
+        return workbook.getSheets().get(0);
+    }
+
+    // Read before the download, so a change made while the import runs is pulled by the first sync
+    private String currentVersion(CloudSpreadsheetInterface service, String sharedLink) {
+        try {
+            return cloudImportGateway.execute(service, () -> service.changedVersion(sharedLink, null)).orElse(null);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            logger.debug("Could not read the version of {}: {}", sharedLink, e.getMessage());
+            return null;
+        }
+    }
+
+    // The import has succeeded by now; a spreadsheet that could not be linked is only left out of syncing
+    private void link(Long spreadsheetId, String sharedLink, String sheetName, String version) {
+        try {
+            cloudSyncService.link(spreadsheetId, sharedLink, sheetName, version);
+        } catch (RuntimeException e) {
+            logger.warn("Could not link spreadsheet {} to {} for syncing", spreadsheetId, sharedLink, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CloudImport<T> {
+        T save(CloudWorkbook workbook, String version) throws IOException;
+    }
 
+    // Only the download goes through the gateway, so a retry never repeats a save and no permit is held
+    // while the import is written; the save runs once afterwards and is timed with the download per provider
+    private <T> T process(String sharedLink, CloudImport<T> cloudImport) throws IOException, GeneralSecurityException {
         // Find the appropriate service based on the link
         for (CloudSpreadsheetInterface service : cloudSpreadsheetServices) {
             if (service.canProcessLink(sharedLink)) {
-                return service.processSharedSpreadsheet(sharedLink, teacher);
+                Observation observation = hotPathMetrics.start(HotPathMetrics.CLOUD_IMPORT,
+                        "provider", ClassUtils.getUserClass(service).getSimpleName());
+                try {
+                    String version = currentVersion(service, sharedLink);
+                    try (CloudWorkbook workbook = cloudImportGateway.execute(service, () -> service.fetchWorkbook(sharedLink))) {
+                        return cloudImport.save(workbook, version);
+                    }
+                } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                    observation.error(e);
+                    throw e;
+                } finally {
+                    observation.stop();
+                }
             }
         }
 
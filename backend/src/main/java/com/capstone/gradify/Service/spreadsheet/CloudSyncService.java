@@ -0,0 +1,200 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Repository.records.ClassSpreadsheetRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Keeps spreadsheets imported from a cloud link up to date with their source.
+ * <p>
+ * Every linked spreadsheet has its own next sync time. A poll picks up the ones that are due, asks the
+ * provider whether the source changed (Drive version or Graph eTag, without downloading any cells) and
+ * only pulls and diffs the sheet when it did. Next sync times are spread with jitter, and a newly linked
+ * spreadsheet starts at a random point of the interval, so sheets linked together don't sync together.
+ * <p>
+ * Configured with {@code gradify.sync.enabled}, {@code gradify.sync.interval-minutes} (time between checks
+ * of one spreadsheet), {@code gradify.sync.jitter-percent} (how far each check may move from that),
+ * {@code gradify.sync.poll-interval-ms} (how often due spreadsheets are looked for),
+ * {@code gradify.sync.batch-size} (spreadsheets taken per poll) and {@code gradify.sync.parallelism}
+ * (worker threads, keep below the JDBC pool size).
+ */
+@Service
+public class CloudSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudSyncService.class);
+
+    @Autowired
+    private ClassSpreadsheetRepository classSpreadsheetRepository;
+    @Autowired
+    private ClassSpreadsheetService classSpreadsheetService;
+    @Autowired
+    private CloudImportGateway cloudImportGateway;
+
+    // The providers themselves rather than CloudSpreadsheetManager, which links imports through this service
+    private final List<CloudSpreadsheetInterface> cloudSpreadsheetServices;
+    private final ThreadPoolExecutor executor;
+    private final boolean enabled;
+    private final long intervalMs;
+    private final int jitterPercent;
+    private final int batchSize;
+    // Spreadsheets being synced on this instance, so a manual sync doesn't overlap a scheduled one
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public CloudSyncService(List<CloudSpreadsheetInterface> cloudSpreadsheetServices,
+                            @Value("${gradify.sync.enabled:true}") boolean enabled,
+                            @Value("${gradify.sync.interval-minutes:15}") long intervalMinutes,
+                            @Value("${gradify.sync.jitter-percent:20}") int jitterPercent,
+                            @Value("${gradify.sync.batch-size:100}") int batchSize,
+                            @Value("${gradify.sync.parallelism:2}") int parallelism) {
+        this.cloudSpreadsheetServices = cloudSpreadsheetServices;
+        this.enabled = enabled;
+        this.intervalMs = TimeUnit.MINUTES.toMillis(Math.max(1, intervalMinutes));
+        this.jitterPercent = Math.min(Math.max(0, jitterPercent), 100);
+        this.batchSize = Math.max(1, batchSize);
+        int threads = Math.max(1, parallelism);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cloud-sync-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.batchSize), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Keep an imported spreadsheet in sync with the cloud spreadsheet it came from.
+     *
+     * @param sourceSheet   The sheet the records were read from, or null for the first sheet
+     * @param sourceVersion The source's version from before the import, or null to pull on the first sync
+     */
+    public void link(Long spreadsheetId, String sourceUrl, String sourceSheet, String sourceVersion) {
+        Date firstSyncAt = new Date(System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(intervalMs));
+        classSpreadsheetService.linkSource(spreadsheetId, sourceUrl, sourceSheet, sourceVersion, firstSyncAt);
+    }
+
+    /**
+     * Start syncs of the linked spreadsheets that are due, as many as the pool has room for. Each is
+     * claimed by moving it to its next sync time first, so it is not picked up again while it runs or if
+     * it fails, and another instance polling the same database skips it.
+     */
+    @Scheduled(fixedDelayString = "${gradify.sync.poll-interval-ms:60000}",
+            initialDelayString = "${gradify.sync.poll-interval-ms:60000}")
+    public void syncDueSpreadsheets() {
+        if (!enabled) {
+            return;
+        }
+        List<ClassSpreadsheet> due = classSpreadsheetRepository
+                .findBySourceUrlIsNotNullAndNextSyncAtLessThanEqualOrderByNextSyncAtAsc(new Date(), PageRequest.of(0, batchSize));
+        int started = 0;
+        for (ClassSpreadsheet spreadsheet : due) {
+            if (executor.getQueue().remainingCapacity() == 0) {
+                // The rest stay due and are taken by a later poll
+                break;
+            }
+            Long id = spreadsheet.getId();
+            if (inFlight.contains(id) || !classSpreadsheetService.claimSync(id, spreadsheet.getNextSyncAt(), nextSyncAt())) {
+                continue;
+            }
+            inFlight.add(id);
+            try {
+                executor.execute(() -> {
+                    try {
+                        sync(spreadsheet);
+                    } catch (Exception e) {
+                        logger.warn("Sync of spreadsheet {} from {} failed: {}", id, spreadsheet.getSourceUrl(), e.getMessage(), e);
+                    } finally {
+                        inFlight.remove(id);
+                    }
+                });
+                started++;
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(id);
+                break;
+            }
+        }
+        if (started > 0) {
+            logger.debug("Started {} of {} due spreadsheet syncs", started, due.size());
+        }
+    }
+
+    /**
+     * Sync one linked spreadsheet now, outside its schedule.
+     *
+     * @return Whether the source had changes that were applied
+     * @throws IllegalArgumentException If the spreadsheet is not linked to a cloud spreadsheet
+     * @throws IllegalStateException    If the spreadsheet is already being synced
+     */
+    public boolean syncNow(Long spreadsheetId) throws IOException, GeneralSecurityException {
+        ClassSpreadsheet spreadsheet = classSpreadsheetRepository.findById(spreadsheetId)
+                .orElseThrow(() -> new RuntimeException("Class spreadsheet not found"));
+        if (spreadsheet.getSourceUrl() == null) {
+            throw new IllegalArgumentException("Spreadsheet " + spreadsheetId + " is not linked to a cloud spreadsheet");
+        }
+        if (!inFlight.add(spreadsheetId)) {
+            throw new IllegalStateException("Spreadsheet " + spreadsheetId + " is already being synced");
+        }
+        try {
+            return sync(spreadsheet);
+        } finally {
+            inFlight.remove(spreadsheetId);
+        }
+    }
+
+    private boolean sync(ClassSpreadsheet spreadsheet) throws IOException, GeneralSecurityException {
+        String sourceUrl = spreadsheet.getSourceUrl();
+        CloudSpreadsheetInterface service = serviceFor(sourceUrl);
+        Optional<String> changedVersion = cloudImportGateway.execute(service,
+                () -> service.changedVersion(sourceUrl, spreadsheet.getSourceVersion()));
+        if (changedVersion.isEmpty()) {
+            logger.debug("Spreadsheet {} is up to date with {}", spreadsheet.getId(), sourceUrl);
+            return false;
+        }
+        ParsedSpreadsheet parsed = cloudImportGateway.execute(service,
+                () -> service.fetchSheet(sourceUrl, spreadsheet.getSourceSheet()));
+        boolean changed = classSpreadsheetService.syncFromSource(spreadsheet.getId(), parsed, changedVersion.get());
+        logger.info("Synced spreadsheet {} from {}: {}", spreadsheet.getId(), sourceUrl, changed ? "updated" : "no changes");
+        return changed;
+    }
+
+    private CloudSpreadsheetInterface serviceFor(String link) {
+        for (CloudSpreadsheetInterface service : cloudSpreadsheetServices) {
+            if (service.canProcessLink(link)) {
+                return service;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported cloud spreadsheet link: " + link);
+    }
+
+    // One interval from now, moved by up to jitterPercent of it either way
+    private Date nextSyncAt() {
+        long jitter = intervalMs * jitterPercent / 100;
+        long delay = intervalMs + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0);
+        return new Date(System.currentTimeMillis() + delay);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,76 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A cloud spreadsheet downloaded for an import. Reading it does not call the provider again, so the
+ * import can be saved after the provider call has finished. Close it to delete a downloaded file.
+ * <p>
+ * Holds either a downloaded workbook file, or sheets the provider returned already read.
+ */
+public final class CloudWorkbook implements Closeable {
+
+    private final String fileName;
+    private final String title;
+    private final TempFileMultipartFile file;
+    private final List<String> sheetNames;
+    private final List<ParsedSpreadsheet> sheets;
+
+    private CloudWorkbook(String fileName, String title, TempFileMultipartFile file, List<String> sheetNames,
+                          List<ParsedSpreadsheet> sheets) {
+        this.fileName = fileName;
+        this.title = title;
+        this.file = file;
+        this.sheetNames = sheetNames;
+        this.sheets = sheets;
+    }
+
+    /**
+     * A downloaded workbook file, deleted on {@link #close()}.
+     */
+    static CloudWorkbook ofFile(String fileName, String title, TempFileMultipartFile file) {
+        return new CloudWorkbook(fileName, title, file, List.of(), List.of());
+    }
+
+    /**
+     * Sheets already read from the provider's response, in spreadsheet order.
+     */
+    static CloudWorkbook ofSheets(String fileName, String title, List<String> sheetNames, List<ParsedSpreadsheet> sheets) {
+        if (sheetNames.size() != sheets.size()) {
+            throw new IllegalArgumentException("Expected " + sheetNames.size() + " sheets, got " + sheets.size());
+        }
+        return new CloudWorkbook(fileName, title, null, List.copyOf(sheetNames), List.copyOf(sheets));
+    }
+
+    /** Stored as the file name of each spreadsheet imported from it */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /** The spreadsheet's title, the class name when only its first sheet is imported */
+    public String getTitle() {
+        return title;
+    }
+
+    /** The downloaded workbook, or null if the sheets were returned already read */
+    public TempFileMultipartFile getFile() {
+        return file;
+    }
+
+    public List<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    public List<ParsedSpreadsheet> getSheets() {
+        return sheets;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+/**
+ * Receives the records of a CSV or TSV file one at a time, as they are scanned.
+ */
+@FunctionalInterface
+public interface DelimitedRowHandler {
+
+    /**
+     * Handle the next record of the file.
+     *
+     * @param rowNum Zero-based record number, not counting blank lines
+     * @param fields The record's fields; the array is reused for the next record, so copy what you keep
+     * @param count  Number of fields in the record; entries past it are stale
+     * @return true to keep reading, false to stop before the rest of the file is read
+     */
+    boolean row(int rowNum, String[] fields, int count);
+}
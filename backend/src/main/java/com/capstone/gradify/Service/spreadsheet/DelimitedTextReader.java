@@ -0,0 +1,164 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 CSV and TSV files record by record, scanning the raw bytes.
+ * <p>
+ * Quoting follows RFC 4180: a field in double quotes may contain the delimiter, line breaks and doubled
+ * quotes. Lines may end in CRLF, LF or CR, a leading byte order mark is skipped, and blank lines are
+ * dropped the way a workbook has no row for them. Malformed quoting is read leniently instead of failing.
+ * <p>
+ * The read buffer, the field buffer and the array handed to the handler are reused for the whole file,
+ * so the only allocation per cell is its final String.
+ */
+public final class DelimitedTextReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private final byte delimiter;
+    private final DelimitedRowHandler handler;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private boolean fieldQuoted;
+    private String[] fields = new String[16];
+    private int fieldCount;
+    private int rowNum;
+
+    private boolean inQuotes;
+    private boolean quotePending; // a quote inside a quoted field: closing, or the first of a pair
+    private boolean skipLf;
+
+    private DelimitedTextReader(InputStream in, char delimiter, DelimitedRowHandler handler) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Unsupported delimiter: " + delimiter);
+        }
+        this.in = in;
+        this.delimiter = (byte) delimiter;
+        this.handler = handler;
+    }
+
+    /**
+     * Read a delimited file, passing each record to the handler.
+     *
+     * @param in        The file contents in UTF-8; not closed
+     * @param delimiter The field separator, ',' for CSV or '\t' for TSV
+     * @param handler   Receives the records until it returns false
+     * @throws IOException If the stream cannot be read
+     */
+    public static void read(InputStream in, char delimiter, DelimitedRowHandler handler) throws IOException {
+        new DelimitedTextReader(in, delimiter, handler).scan();
+    }
+
+    /**
+     * The delimiter for a file name: tab for .tsv and .tab files, otherwise comma.
+     */
+    public static char delimiterFor(String fileName) {
+        String name = fileName != null ? fileName.toLowerCase() : "";
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+    }
+
+    /**
+     * Whether a file name is one this reader handles rather than a workbook.
+     */
+    public static boolean isDelimitedFile(String fileName) {
+        String name = fileName != null ? fileName.toLowerCase() : "";
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".tab");
+    }
+
+    private void scan() throws IOException {
+        byte[] head = in.readNBytes(3);
+        boolean byteOrderMark = head.length == 3
+                && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF;
+        if (!byteOrderMark && !scan(head, head.length)) {
+            return;
+        }
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (!scan(buffer, read)) {
+                return;
+            }
+        }
+        if (fieldCount > 0 || fieldLength > 0 || fieldQuoted) {
+            endRow();
+        }
+    }
+
+    private boolean scan(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (skipLf) {
+                skipLf = false;
+                if (b == LF) {
+                    continue;
+                }
+            }
+            if (inQuotes) {
+                if (quotePending) {
+                    quotePending = false;
+                    if (b == QUOTE) {
+                        append(b);
+                        continue;
+                    }
+                    inQuotes = false;
+                    // The quoted part has ended; fall through to handle b unquoted
+                } else if (b == QUOTE) {
+                    quotePending = true;
+                    continue;
+                } else {
+                    append(b);
+                    continue;
+                }
+            }
+            if (b == delimiter) {
+                endField();
+            } else if (b == LF || b == CR) {
+                skipLf = b == CR;
+                if (!endRow()) {
+                    return false;
+                }
+            } else if (b == QUOTE && fieldLength == 0 && !fieldQuoted) {
+                inQuotes = true;
+                fieldQuoted = true;
+            } else {
+                append(b);
+            }
+        }
+        return true;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private void endField() {
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, fields.length * 2);
+        }
+        fields[fieldCount++] = fieldLength == 0 ? "" : new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        fieldLength = 0;
+        fieldQuoted = false;
+    }
+
+    private boolean endRow() {
+        if (fieldCount == 0 && fieldLength == 0 && !fieldQuoted) {
+            return true; // blank line
+        }
+        endField();
+        boolean keepReading = handler.row(rowNum++, fields, fieldCount);
+        fieldCount = 0;
+        return keepReading;
+    }
+}
@@ -0,0 +1,233 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.api.services.sheets.v4.model.CellData;
+import com.google.api.services.sheets.v4.model.GridData;
+import com.google.api.services.sheets.v4.model.RowData;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One Google Sheets API client for the whole application. The HTTP transport, the service account
+ * credentials and the client are created on first use and shared by every import; the credentials
+ * adapter refreshes the access token when it expires, so steady-state imports pay no token round trip.
+ * <p>
+ * Configured with {@code GOOGLE_SHEETS_CREDENTIALS} (service account key: a file path, {@code file:} or
+ * {@code classpath:} location), {@code gradify.google.sheets.root-url} (API root, for pointing imports at a
+ * stand-in server; when set, a missing key sends requests unauthenticated) and
+ * {@code gradify.google.sheets.timeout-ms} (connect and read timeout per request).
+ */
+@Component
+public class GoogleSheetsClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleSheetsClient.class);
+
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    // Drive metadata is only read for the file's version, so a sync can skip unchanged spreadsheets
+    private static final List<String> SCOPES = List.of(SheetsScopes.SPREADSHEETS_READONLY,
+            "https://www.googleapis.com/auth/drive.metadata.readonly");
+    private static final String DRIVE_ROOT_URL = "https://www.googleapis.com/";
+
+    // Title and formatted cell values of every sheet, which is all an import reads
+    private static final String IMPORT_FIELDS =
+            "properties.title,sheets(properties.title,data(startRow,startColumn,rowData.values.formattedValue))";
+
+    private final String credentialsPath;
+    private final String rootUrl;
+    private final int timeoutMs;
+
+    private volatile Sheets sheets;
+
+    public GoogleSheetsClient(@Value("${GOOGLE_SHEETS_CREDENTIALS:}") String credentialsPath,
+                              @Value("${gradify.google.sheets.root-url:}") String rootUrl,
+                              @Value("${gradify.google.sheets.timeout-ms:20000}") int timeoutMs) {
+        this.credentialsPath = credentialsPath;
+        this.rootUrl = rootUrl;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Fetch a spreadsheet's title and the formatted values of all its sheets in a single request.
+     */
+    public Spreadsheet fetchForImport(String spreadsheetId) throws IOException, GeneralSecurityException {
+        return sheets().spreadsheets().get(spreadsheetId)
+                .setIncludeGridData(true)
+                .setFields(IMPORT_FIELDS)
+                .execute();
+    }
+
+    /**
+     * Like {@link #fetchForImport}, but with the cell values of one sheet only.
+     */
+    public Spreadsheet fetchSheetForImport(String spreadsheetId, String sheetName) throws IOException, GeneralSecurityException {
+        // A sheet name on its own is a range covering the whole sheet
+        String range = "'" + sheetName.replace("'", "''") + "'";
+        return sheets().spreadsheets().get(spreadsheetId)
+                .setRanges(List.of(range))
+                .setIncludeGridData(true)
+                .setFields(IMPORT_FIELDS)
+                .execute();
+    }
+
+    /**
+     * The spreadsheet's Drive version, a number that increases with every change to the file. Costs one
+     * small metadata request, against downloading every cell to find out nothing changed.
+     */
+    public String fetchVersion(String spreadsheetId) throws IOException, GeneralSecurityException {
+        GenericUrl url = new GenericUrl((rootUrl.isBlank() ? DRIVE_ROOT_URL : withTrailingSlash(rootUrl))
+                + "drive/v3/files/" + spreadsheetId);
+        url.set("fields", "version");
+        url.set("supportsAllDrives", true);
+        // Same transport, credentials and timeouts as the Sheets requests
+        HttpRequest request = sheets().getRequestFactory().buildGetRequest(url);
+        request.setParser(JSON_FACTORY.createJsonObjectParser());
+        GenericJson file = request.execute().parseAs(GenericJson.class);
+        Object version = file.get("version");
+        if (version == null) {
+            throw new IOException("Drive returned no version for spreadsheet " + spreadsheetId);
+        }
+        return version.toString();
+    }
+
+    /**
+     * A sheet's formatted values as rows of cells, shaped like a values.get response: trailing empty cells
+     * and rows are dropped, and cells left of or above the returned grid are padded with blanks.
+     */
+    public static List<List<Object>> values(Sheet sheet) {
+        List<List<Object>> values = new ArrayList<>();
+        if (sheet.getData() == null) {
+            return values;
+        }
+        for (GridData grid : sheet.getData()) {
+            if (grid.getRowData() == null) {
+                continue;
+            }
+            int startRow = grid.getStartRow() != null ? grid.getStartRow() : 0;
+            int startColumn = grid.getStartColumn() != null ? grid.getStartColumn() : 0;
+            while (values.size() < startRow) {
+                values.add(new ArrayList<>());
+            }
+            for (RowData rowData : grid.getRowData()) {
+                List<Object> row = new ArrayList<>();
+                List<CellData> cells = rowData.getValues();
+                if (cells != null) {
+                    int lastValue = -1;
+                    for (int i = 0; i < cells.size(); i++) {
+                        if (cells.get(i).getFormattedValue() != null) {
+                            lastValue = i;
+                        }
+                    }
+                    for (int i = 0; i < startColumn && lastValue >= 0; i++) {
+                        row.add("");
+                    }
+                    for (int i = 0; i <= lastValue; i++) {
+                        String value = cells.get(i).getFormattedValue();
+                        row.add(value != null ? value : "");
+                    }
+                }
+                values.add(row);
+            }
+        }
+        while (!values.isEmpty() && values.get(values.size() - 1).isEmpty()) {
+            values.remove(values.size() - 1);
+        }
+        return values;
+    }
+
+    private Sheets sheets() throws IOException, GeneralSecurityException {
+        Sheets current = sheets;
+        if (current == null) {
+            synchronized (this) {
+                current = sheets;
+                if (current == null) {
+                    current = createSheets();
+                    sheets = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Not cached when it fails, so a fixed configuration is picked up by the next import
+    private Sheets createSheets() throws IOException, GeneralSecurityException {
+        HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+        HttpRequestInitializer credentials = credentialsInitializer();
+        HttpRequestInitializer requestInitializer = request -> {
+            if (credentials != null) {
+                credentials.initialize(request);
+            }
+            request.setConnectTimeout(timeoutMs);
+            request.setReadTimeout(timeoutMs);
+        };
+
+        Sheets.Builder builder = new Sheets.Builder(httpTransport, JSON_FACTORY, requestInitializer)
+                .setApplicationName("Gradify");
+        if (!rootUrl.isBlank()) {
+            builder.setRootUrl(withTrailingSlash(rootUrl));
+        }
+        logger.info("Created Google Sheets client{}", rootUrl.isBlank() ? "" : " for " + rootUrl);
+        return builder.build();
+    }
+
+    private static String withTrailingSlash(String url) {
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    private HttpRequestInitializer credentialsInitializer() throws IOException, GeneralSecurityException {
+        if (credentialsPath == null || credentialsPath.trim().isEmpty()) {
+            if (!rootUrl.isBlank()) {
+                return null;
+            }
+            throw new IOException("Google credentials path is not configured. Please set GOOGLE_SHEETS_CREDENTIALS environment variable.");
+        }
+        try (InputStream credentialsStream = getCredentialsStream()) {
+            // A service account key; the adapter fetches and refreshes its access token as requests need it
+            GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream).createScoped(SCOPES);
+            return new HttpCredentialsAdapter(credentials);
+        } catch (IOException e) {
+            logger.error("Error loading Google Sheets credentials from {}", credentialsPath, e);
+            throw new GeneralSecurityException("Failed to initialize Google Sheets API: " + e.getMessage(), e);
+        }
+    }
+
+    private InputStream getCredentialsStream() throws IOException {
+        // Handle different path formats
+        if (credentialsPath.startsWith("classpath:")) {
+            // Classpath resource
+            String resourcePath = credentialsPath.substring("classpath:".length());
+            InputStream stream = getClass().getClassLoader().getResourceAsStream(resourcePath);
+            if (stream == null) {
+                throw new IOException("Could not find credentials file in classpath: " + resourcePath);
+            }
+            return stream;
+        } else if (credentialsPath.startsWith("file:")) {
+            // File path
+            return new FileInputStream(credentialsPath.substring("file:".length()));
+        } else {
+            // Assume it's a direct file path
+            return new FileInputStream(credentialsPath);
+        }
+    }
+}
@@ -1,128 +1,103 @@
 package com.capstone.gradify.Service.spreadsheet;
 
-import com.capstone.gradify.Entity.records.ClassEntity;
-import com.capstone.gradify.Entity.records.ClassSpreadsheet;
-import com.capstone.gradify.Entity.user.TeacherEntity;
-import com.capstone.gradify.Repository.records.ClassRepository;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.HttpRequestInitializer;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.SheetsScopes;
 import com.google.api.services.sheets.v4.model.Sheet;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
-import com.google.api.services.sheets.v4.model.ValueRange;
-import com.google.auth.http.HttpCredentialsAdapter;
-import com.google.auth.oauth2.GoogleCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class GoogleSpreadsheetService implements CloudSpreadsheetInterface {
 
-    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
-    private static final List<String> SCOPES = Collections.singletonList(SheetsScopes.SPREADSHEETS_READONLY);
+    private static final Logger logger = LoggerFactory.getLogger(GoogleSpreadsheetService.class);
 
-    @Value("${GOOGLE_SHEETS_CREDENTIALS}")
-    private String googleCredentialsPath;
+    // Reported when Drive can't be asked for the version; never equal to a real one, so every sync pulls
+    private static final String UNKNOWN_VERSION = "";
 
     @Autowired
-    private ClassSpreadsheetService classSpreadsheetService;
-
-    @Autowired
-    private ClassRepository classRepository;
+    private GoogleSheetsClient googleSheetsClient;
 
     @Override
-    public ClassSpreadsheet processSharedSpreadsheet(String sharedLink, TeacherEntity teacher)
-            throws IOException, GeneralSecurityException {
-
-        // Extract spreadsheet ID from the shared link
-        String spreadsheetId = extractSpreadsheetId(sharedLink);
-        if (spreadsheetId == null) {
-            throw new IllegalArgumentException("Invalid Google Sheets URL: " + sharedLink);
-        }
-
-        // Set up Google Sheets API client
-        Sheets sheetsService = createSheetsService();
+    public CloudWorkbook fetchWorkbook(String sharedLink) throws IOException, GeneralSecurityException {
+        String spreadsheetId = requireSpreadsheetId(sharedLink);
 
-        // Get spreadsheet metadata to determine sheet names and title
-        Spreadsheet spreadsheet = sheetsService.spreadsheets().get(spreadsheetId).execute();
+        // Title and cell values come back together in one request
+        Spreadsheet spreadsheet = googleSheetsClient.fetchForImport(spreadsheetId);
         String spreadsheetName = spreadsheet.getProperties().getTitle();
 
         List<Sheet> sheets = spreadsheet.getSheets();
         if (sheets == null || sheets.isEmpty()) {
             throw new IOException("Spreadsheet has no sheets");
         }
-
-        // Process the first sheet (can be modified to process all sheets if needed)
-        String sheetName = sheets.get(0).getProperties().getTitle();
-        String range = sheetName; // This gets all data from the sheet
-
-        // Get the values from the sheet
-        ValueRange response = sheetsService.spreadsheets().values()
-                .get(spreadsheetId, range)
-                .execute();
-
-        List<List<Object>> values = response.getValues();
-        if (values == null || values.isEmpty()) {
-            throw new IOException("No data found in spreadsheet");
+        List<String> sheetNames = new ArrayList<>();
+        List<ParsedSpreadsheet> parsed = new ArrayList<>();
+        for (Sheet sheet : sheets) {
+            sheetNames.add(sheet.getProperties().getTitle());
+            parsed.add(toParsedSpreadsheet(GoogleSheetsClient.values(sheet)));
         }
+        return CloudWorkbook.ofSheets(spreadsheetName + ".sheet", cleanSpreadsheetName(spreadsheetName), sheetNames, parsed);
+    }
 
-        // Convert Google Sheets data to the format expected by ClassSpreadsheetService
-        List<Map<String, String>> records = convertToRecords(values);
-
-        // Create ClassEntity from spreadsheet data
-        ClassEntity classEntity = new ClassEntity();
-        classEntity.setTeacher(teacher);
-
-        // Extract class details from spreadsheet name
-        String cleanName = cleanSpreadsheetName(spreadsheetName);
-        String[] parts = cleanName.split("-");
+    @Override
+    public Optional<String> changedVersion(String sharedLink, String knownVersion)
+            throws IOException, GeneralSecurityException {
+        String spreadsheetId = requireSpreadsheetId(sharedLink);
+        String version;
+        try {
+            version = googleSheetsClient.fetchVersion(spreadsheetId);
+        } catch (IOException e) {
+            // e.g. the Drive API is not enabled for the service account; pulling and diffing still writes nothing if unchanged
+            logger.debug("Could not read the Drive version of {}: {}", spreadsheetId, e.getMessage());
+            return Optional.of(UNKNOWN_VERSION);
+        }
+        return version.equals(knownVersion) ? Optional.empty() : Optional.of(version);
+    }
 
-        if (parts.length >= 2) {
-            classEntity.setClassName(parts[0].trim());
-            classEntity.setSection(parts[1].trim());
-        } else {
-            classEntity.setClassName(cleanName);
+    @Override
+    public ParsedSpreadsheet fetchSheet(String sharedLink, String sheetName) throws IOException, GeneralSecurityException {
+        String spreadsheetId = requireSpreadsheetId(sharedLink);
+        Spreadsheet spreadsheet = sheetName != null
+                ? googleSheetsClient.fetchSheetForImport(spreadsheetId, sheetName)
+                : googleSheetsClient.fetchForImport(spreadsheetId);
+        List<Sheet> sheets = spreadsheet.getSheets();
+        if (sheets == null || sheets.isEmpty()) {
+            throw new IOException("Spreadsheet has no sheets");
+        }
+        if (sheetName == null) {
+            return toParsedSpreadsheet(GoogleSheetsClient.values(sheets.get(0)));
         }
+        for (Sheet sheet : sheets) {
+            if (sheetName.equals(sheet.getProperties().getTitle())) {
+                return toParsedSpreadsheet(GoogleSheetsClient.values(sheet));
+            }
+        }
+        throw new IOException("Spreadsheet has no sheet named '" + sheetName + "'");
+    }
 
-        // Generate class code
-        classEntity.setClassCode(classSpreadsheetService.generateRandomClassCode());
-
-        // Set other ClassEntity properties
-        Date now = new Date();
-        classEntity.setCreatedAt(now);
-        classEntity.setUpdatedAt(now);
-        classEntity.setSemester(classSpreadsheetService.determineCurrentSemester());
-        classEntity.setSchoolYear(classSpreadsheetService.determineCurrentSchoolYear());
-
-        // Save the ClassEntity
-        classEntity = classRepository.save(classEntity);
-
-        // Create and save the ClassSpreadsheet
-        return classSpreadsheetService.saveRecord(
-                spreadsheetName + ".sheet",
-                teacher,
-                records,
-                classEntity,
-                Collections.emptyMap());
+    // Google sheets have no max value row, the same as the single-sheet import
+    private ParsedSpreadsheet toParsedSpreadsheet(List<List<Object>> values) {
+        if (values.isEmpty()) {
+            return new ParsedSpreadsheet(Collections.emptyList(), Collections.emptyMap(), Collections.emptyList(),
+                    List.of("The sheet is empty"));
+        }
+        List<String> headers = new ArrayList<>();
+        for (Object header : values.get(0)) {
+            headers.add(header.toString().trim());
+        }
+        return new ParsedSpreadsheet(headers, Collections.emptyMap(), convertToRecords(values), List.of());
     }
 
     private String cleanSpreadsheetName(String name) {
@@ -153,6 +128,14 @@ public class GoogleSpreadsheetService implements CloudSpreadsheetInterface {
         return false;
     }
 
+    private String requireSpreadsheetId(String sharedLink) {
+        String spreadsheetId = extractSpreadsheetId(sharedLink);
+        if (spreadsheetId == null) {
+            throw new IllegalArgumentException("Invalid Google Sheets URL: " + sharedLink);
+        }
+        return spreadsheetId;
+    }
+
     private String extractSpreadsheetId(String sharedLink) {
         String[] patterns = {
                 "^https?://docs\\.google\\.com/spreadsheets/d/([a-zA-Z0-9-_]+).*",
@@ -171,60 +154,6 @@ public class GoogleSpreadsheetService implements CloudSpreadsheetInterface {
         return null;
     }
 
-    private Sheets createSheetsService() throws IOException, GeneralSecurityException {
-        try {
-            HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
-            // Load credentials from the file path
-            InputStream credentialsStream = getCredentialsStream();
-
-            // Create credentials - this should be a service account key file
-            GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream)
-                    .createScoped(SCOPES);
-
-            // Refresh the credentials to ensure they're valid
-            credentials.refreshIfExpired();
-
-            HttpRequestInitializer requestInitializer = new HttpCredentialsAdapter(credentials);
-
-            return new Sheets.Builder(httpTransport, JSON_FACTORY, requestInitializer)
-                    .setApplicationName("Gradify")
-                    .build();
-
-        } catch (Exception e) {
-            // Log the detailed error for debugging
-            System.err.println("Error creating Google Sheets service: " + e.getMessage());
-            e.printStackTrace();
-
-            // Re-throw with a more descriptive message
-            throw new GeneralSecurityException("Failed to initialize Google Sheets API: " + e.getMessage(), e);
-        }
-    }
-
-    private InputStream getCredentialsStream() throws IOException {
-        if (googleCredentialsPath == null || googleCredentialsPath.trim().isEmpty()) {
-            throw new IOException("Google credentials path is not configured. Please set GOOGLE_SHEETS_CREDENTIALS environment variable.");
-        }
-
-        // Handle different path formats
-        if (googleCredentialsPath.startsWith("classpath:")) {
-            // Classpath resource
-            String resourcePath = googleCredentialsPath.substring("classpath:".length());
-            InputStream stream = getClass().getClassLoader().getResourceAsStream(resourcePath);
-            if (stream == null) {
-                throw new IOException("Could not find credentials file in classpath: " + resourcePath);
-            }
-            return stream;
-        } else if (googleCredentialsPath.startsWith("file:")) {
-            // File path
-            String filePath = googleCredentialsPath.substring("file:".length());
-            return new FileInputStream(filePath);
-        } else {
-            // Assume it's a direct file path
-            return new FileInputStream(googleCredentialsPath);
-        }
-    }
-
     private List<Map<String, String>> convertToRecords(List<List<Object>> values) {
         List<Map<String, String>> records = new ArrayList<>();
 
@@ -0,0 +1,141 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+
+import java.util.*;
+
+/**
+ * The changes a re-uploaded sheet makes to a spreadsheet's stored grade records, matched by student number:
+ * rows to insert, records whose grades change, and records to delete. Records whose grades would come out
+ * the same are left alone, so a re-upload with a few edited cells writes only those rows.
+ */
+public final class GradeRecordDiff {
+
+    public enum Mode {
+        /** The sheet is the whole class: new rows are inserted, changed rows overwritten and missing rows deleted */
+        REPLACE,
+        /** The sheet's non-blank cells are written over the stored grades; nothing is deleted */
+        MERGE,
+        /** The sheet's rows overwrite stored rows or are inserted; stored rows missing from the sheet are kept */
+        UPSERT
+    }
+
+    private static final String STUDENT_NUMBER = "Student Number";
+
+    private final List<Map<String, String>> inserts = new ArrayList<>();
+    private final Map<GradeRecordsEntity, Map<String, String>> updates = new LinkedHashMap<>();
+    private final List<GradeRecordsEntity> deletes = new ArrayList<>();
+    private final List<GradeRecordsEntity> kept = new ArrayList<>();
+    private final SortedMap<Integer, String> skippedRows = new TreeMap<>();
+    private int unchanged;
+
+    private GradeRecordDiff() {
+    }
+
+    /**
+     * Compare a sheet's rows with the stored records of its spreadsheet.
+     *
+     * @param stored The spreadsheet's current grade records
+     * @param rows   The uploaded student rows, in sheet order
+     * @param mode   How the sheet relates to the stored records
+     * @return The changes to apply
+     */
+    public static GradeRecordDiff compute(Collection<GradeRecordsEntity> stored, List<Map<String, String>> rows, Mode mode) {
+        GradeRecordDiff diff = new GradeRecordDiff();
+
+        // Rows for the same student combine the way they did when every row was written in turn:
+        // merged one after the other, otherwise the last row wins
+        Map<String, Map<String, String>> rowsByNumber = new LinkedHashMap<>();
+        Map<String, Integer> recordByNumber = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> row = rows.get(i);
+            String studentNumber = row.get(STUDENT_NUMBER);
+            if (studentNumber == null || studentNumber.trim().isEmpty()) {
+                diff.skippedRows.put(i + 1, "missing student number");
+                continue;
+            }
+            Map<String, String> earlier = rowsByNumber.put(studentNumber, row);
+            Integer previous = recordByNumber.put(studentNumber, i + 1);
+            if (earlier != null && mode == Mode.MERGE) {
+                rowsByNumber.put(studentNumber, merge(earlier, row));
+            } else if (previous != null) {
+                diff.skippedRows.put(previous, "student number " + studentNumber + " appears again in record " + (i + 1) + ", which is used instead");
+            }
+        }
+
+        Set<String> matched = new HashSet<>();
+        for (GradeRecordsEntity record : stored) {
+            String studentNumber = record.getStudentNumber();
+            Map<String, String> row = studentNumber != null ? rowsByNumber.get(studentNumber) : null;
+            if (row == null || !matched.add(studentNumber)) {
+                // Not in the sheet, or a second stored record for the same student
+                if (mode == Mode.REPLACE) {
+                    diff.deletes.add(record);
+                } else {
+                    diff.kept.add(record);
+                }
+                continue;
+            }
+
+            diff.kept.add(record);
+            Map<String, String> current = record.getGrades() != null ? record.getGrades() : Collections.emptyMap();
+            Map<String, String> target = mode == Mode.MERGE ? merge(current, row) : row;
+            if (current.equals(target)) {
+                diff.unchanged++;
+            } else {
+                diff.updates.put(record, target);
+            }
+        }
+
+        rowsByNumber.forEach((studentNumber, row) -> {
+            if (!matched.contains(studentNumber)) {
+                diff.inserts.add(row);
+            }
+        });
+        return diff;
+    }
+
+    private static Map<String, String> merge(Map<String, String> current, Map<String, String> row) {
+        Map<String, String> merged = new HashMap<>(current);
+        row.forEach((key, value) -> {
+            if (value != null && !value.trim().isEmpty()) {
+                merged.put(key, value);
+            }
+        });
+        return merged;
+    }
+
+    /** Rows of students without a stored record, in sheet order */
+    public List<Map<String, String>> getInserts() {
+        return inserts;
+    }
+
+    /** Stored records whose grades change, with their new grades */
+    public Map<GradeRecordsEntity, Map<String, String>> getUpdates() {
+        return updates;
+    }
+
+    /** Stored records to delete; only in {@link Mode#REPLACE} */
+    public List<GradeRecordsEntity> getDeletes() {
+        return deletes;
+    }
+
+    /** Stored records that stay, changed or not */
+    public List<GradeRecordsEntity> getKept() {
+        return kept;
+    }
+
+    /** Rows that were not applied, by one-based record number, with the reason */
+    public SortedMap<Integer, String> getSkippedRows() {
+        return skippedRows;
+    }
+
+    /** Matched records whose grades are already what the sheet says */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public boolean isEmpty() {
+        return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+    }
+}
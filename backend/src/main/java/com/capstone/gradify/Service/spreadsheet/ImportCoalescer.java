@@ -0,0 +1,65 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Lets only one import of the same file into the same target run at a time. Requests that arrive while an
+ * identical import is in flight wait for it instead of parsing and saving the file again.
+ * <p>
+ * A waiter does not share the first import's result, whose entities belong to another session. Once that
+ * import has committed, the waiter runs its own task, which finds the stored content hash and returns the
+ * existing spreadsheet without importing. If the first import fails, its waiters fail with the same error.
+ */
+@Component
+public class ImportCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportCoalescer.class);
+
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run an import unless an identical one is already running, in which case wait for that one first.
+     * Must be called outside a transaction, so the waiter sees what the first import committed.
+     *
+     * @param key  Identifies the import, e.g. the target and the file's content hash
+     * @param task The import; it should return early when its file has already been imported
+     * @return The task's result
+     */
+    public <T> T run(String key, Callable<T> task) throws Exception {
+        while (true) {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                try {
+                    T result = task.call();
+                    mine.complete(null);
+                    return result;
+                } catch (Exception | Error e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, mine);
+                }
+            }
+
+            logger.debug("Waiting for the identical import {} already in progress", key);
+            try {
+                running.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw (Exception) e.getCause();
+            }
+            // The first import has finished; loop to run this one, which should now find it stored
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * State of one spreadsheet import running in the background: its phase, row progress, row errors,
+ * parser warnings and, once finished, its result or failure message.
+ * <p>
+ * The import code reports progress through the static methods, which apply to the job bound to the
+ * current worker thread and do nothing when the import runs synchronously on a request thread.
+ */
+public final class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    // Further row errors are only counted
+    private static final int MAX_ROW_ERRORS = 200;
+    private static final ThreadLocal<ImportJob> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+    private final String type;
+    private final Integer teacherId;
+    private final Instant createdAt = Instant.now();
+    private final List<String> rowErrors = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    private Status status = Status.QUEUED;
+    private String phase = "queued";
+    private int rowsProcessed;
+    private int rowsTotal;
+    private int droppedRowErrors;
+    private Map<String, Object> result;
+    private String error;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Consumer<ImportJob> listener = job -> { };
+
+    ImportJob(String id, String type, Integer teacherId) {
+        this.id = id;
+        this.type = type;
+        this.teacherId = teacherId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Integer getTeacherId() {
+        return teacherId;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    synchronized void setListener(Consumer<ImportJob> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * A consistent copy of the job's state, as returned by the status endpoint.
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("jobId", id);
+        snapshot.put("type", type);
+        snapshot.put("status", status);
+        snapshot.put("phase", phase);
+        snapshot.put("rowsProcessed", rowsProcessed);
+        snapshot.put("rowsTotal", rowsTotal);
+        snapshot.put("rowErrors", new ArrayList<>(rowErrors));
+        snapshot.put("rowErrorCount", rowErrors.size() + droppedRowErrors);
+        snapshot.put("warnings", new ArrayList<>(warnings));
+        snapshot.put("result", result);
+        snapshot.put("error", error);
+        snapshot.put("createdAt", createdAt);
+        snapshot.put("startedAt", startedAt);
+        snapshot.put("finishedAt", finishedAt);
+        return snapshot;
+    }
+
+    void start() {
+        synchronized (this) {
+            status = Status.RUNNING;
+            phase = "starting";
+            startedAt = Instant.now();
+        }
+        notifyListener();
+    }
+
+    void succeed(Map<String, Object> result) {
+        synchronized (this) {
+            status = Status.SUCCEEDED;
+            phase = "done";
+            this.result = result;
+            finishedAt = Instant.now();
+        }
+        notifyListener();
+    }
+
+    void fail(String error) {
+        synchronized (this) {
+            status = Status.FAILED;
+            phase = "failed";
+            this.error = error;
+            finishedAt = Instant.now();
+        }
+        notifyListener();
+    }
+
+    private void notifyListener() {
+        Consumer<ImportJob> current;
+        synchronized (this) {
+            current = listener;
+        }
+        current.accept(this);
+    }
+
+    static void bind(ImportJob job) {
+        CURRENT.set(job);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Enter a new phase of the import on the current thread's job, e.g. "parsing" or "saving".
+     */
+    public static void reportPhase(String phase) {
+        ImportJob job = CURRENT.get();
+        if (job == null) return;
+        synchronized (job) {
+            job.phase = phase;
+        }
+        job.notifyListener();
+    }
+
+    /**
+     * Record how many of the sheet's rows have been processed by the current thread's job.
+     */
+    public static void reportRows(int processed, int total) {
+        ImportJob job = CURRENT.get();
+        if (job == null) return;
+        synchronized (job) {
+            job.rowsProcessed = processed;
+            job.rowsTotal = total;
+        }
+        job.notifyListener();
+    }
+
+    /**
+     * Record a student row the current thread's job had to skip.
+     *
+     * @param record  One-based position of the row among the sheet's student rows
+     * @param message Why the row was skipped
+     */
+    public static void reportRowError(int record, String message) {
+        ImportJob job = CURRENT.get();
+        if (job == null) return;
+        synchronized (job) {
+            if (job.rowErrors.size() < MAX_ROW_ERRORS) {
+                job.rowErrors.add("Record " + record + ": " + message);
+            } else {
+                job.droppedRowErrors++;
+            }
+        }
+    }
+
+    /**
+     * Record parser diagnostics for the current thread's job.
+     */
+    public static void reportWarnings(List<String> warnings) {
+        ImportJob job = CURRENT.get();
+        if (job == null || warnings.isEmpty()) return;
+        synchronized (job) {
+            job.warnings.addAll(warnings);
+        }
+    }
+}
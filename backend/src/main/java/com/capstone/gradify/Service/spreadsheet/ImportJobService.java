@@ -0,0 +1,158 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Runs spreadsheet imports in the background on a bounded worker pool, so the request that submits
+ * one returns a job ID right away instead of holding a servlet thread while the file is parsed and saved.
+ * Jobs are kept in memory and can be polled or followed as server-sent events until they expire.
+ * <p>
+ * Configured with {@code gradify.import.workers} (imports running at once),
+ * {@code gradify.import.queue-capacity} (imports waiting before new ones are refused),
+ * {@code gradify.import.job-ttl-minutes} (how long finished jobs stay queryable) and
+ * {@code gradify.import.sse-timeout-ms} (how long an event stream stays open).
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Duration jobTtl;
+    private final long sseTimeoutMs;
+
+    public ImportJobService(@Value("${gradify.import.workers:2}") int workers,
+                            @Value("${gradify.import.queue-capacity:50}") int queueCapacity,
+                            @Value("${gradify.import.job-ttl-minutes:30}") long jobTtlMinutes,
+                            @Value("${gradify.import.sse-timeout-ms:300000}") long sseTimeoutMs) {
+        this.jobTtl = Duration.ofMinutes(jobTtlMinutes);
+        this.sseTimeoutMs = sseTimeoutMs;
+        int threads = Math.max(1, workers);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "spreadsheet-import-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // A full queue refuses the import rather than running it on the request thread
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue an import.
+     *
+     * @param type      What kind of import this is, e.g. "upload"
+     * @param teacherId The teacher who submitted it
+     * @param task      The import; its return value becomes the job's result
+     * @return The queued job
+     * @throws RejectedExecutionException If the queue is full
+     */
+    public ImportJob submit(String type, Integer teacherId, Callable<Map<String, Object>> task) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, teacherId);
+        job.setListener(this::publish);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        logger.debug("Queued {} import job {} for teacher {}", type, job.getId(), teacherId);
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * An event stream of the job's snapshots: one now, one per progress update, and a final "complete"
+     * event after which the stream is closed.
+     */
+    public SseEmitter subscribe(ImportJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> jobEmitters = emitters.computeIfAbsent(job.getId(), id -> new CopyOnWriteArrayList<>());
+        jobEmitters.add(emitter);
+        emitter.onCompletion(() -> jobEmitters.remove(emitter));
+        emitter.onTimeout(() -> jobEmitters.remove(emitter));
+        emitter.onError(e -> jobEmitters.remove(emitter));
+        // The job may have finished before this subscription was registered
+        send(job, emitter);
+        return emitter;
+    }
+
+    private void run(ImportJob job, Callable<Map<String, Object>> task) {
+        ImportJob.bind(job);
+        job.start();
+        try {
+            job.succeed(task.call());
+            logger.debug("Import job {} finished", job.getId());
+        } catch (Exception e) {
+            logger.error("Import job {} failed", job.getId(), e);
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            ImportJob.unbind();
+        }
+    }
+
+    private void publish(ImportJob job) {
+        List<SseEmitter> jobEmitters = emitters.get(job.getId());
+        if (jobEmitters == null) return;
+        for (SseEmitter emitter : jobEmitters) {
+            send(job, emitter);
+        }
+        if (job.isFinished()) {
+            emitters.remove(job.getId());
+        }
+    }
+
+    private void send(ImportJob job, SseEmitter emitter) {
+        try {
+            boolean finished = job.isFinished();
+            emitter.send(SseEmitter.event().name(finished ? "complete" : "progress").data(job.snapshot()));
+            if (finished) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the emitter's callbacks unregister it
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Forget finished jobs once they are older than the configured TTL.
+     */
+    @Scheduled(fixedDelayString = "${gradify.import.cleanup-interval-ms:60000}")
+    public void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(jobTtl);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
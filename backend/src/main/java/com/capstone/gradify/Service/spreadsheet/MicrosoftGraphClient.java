@@ -0,0 +1,357 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads shared Excel files through Microsoft Graph with the client credentials flow.
+ * <p>
+ * One OkHttp client, and so one connection pool, serves every import. The access token is cached
+ * until shortly before it expires and fetched again after a 401. A download tries all known ways of
+ * resolving a sharing URL at once: the first that answers with the file wins, the others are
+ * cancelled, and the whole race is bounded by a deadline. The file is streamed to a temporary file
+ * rather than held in memory.
+ * <p>
+ * Configured with {@code microsoft.graph.client.id}, {@code microsoft.graph.client.secret},
+ * {@code microsoft.graph.tenant.id}, {@code gradify.microsoft.graph.base-url} and
+ * {@code gradify.microsoft.graph.login-url} (API and token endpoints, for pointing imports at a stand-in
+ * server), {@code gradify.microsoft.graph.timeout-ms} (connect and read timeout) and
+ * {@code gradify.microsoft.graph.download-deadline-ms} (deadline for one download).
+ */
+@Component
+public class MicrosoftGraphClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicrosoftGraphClient.class);
+
+    // A token this close to expiry is replaced rather than used
+    private static final Duration TOKEN_EXPIRY_MARGIN = Duration.ofMinutes(5);
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final String clientId;
+    private final String clientSecret;
+    private final String tenantId;
+    private final String baseUrl;
+    private final String loginUrl;
+    private final long downloadDeadlineMs;
+    private final OkHttpClient httpClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile CachedToken cachedToken;
+
+    private record CachedToken(String value, Instant refreshAt) {
+    }
+
+    private record Attempt(Call call, Response response) {
+    }
+
+    public MicrosoftGraphClient(@Value("${microsoft.graph.client.id:}") String clientId,
+                                @Value("${microsoft.graph.client.secret:}") String clientSecret,
+                                @Value("${microsoft.graph.tenant.id:}") String tenantId,
+                                @Value("${gradify.microsoft.graph.base-url:https://graph.microsoft.com/v1.0}") String baseUrl,
+                                @Value("${gradify.microsoft.graph.login-url:https://login.microsoftonline.com}") String loginUrl,
+                                @Value("${gradify.microsoft.graph.timeout-ms:20000}") long timeoutMs,
+                                @Value("${gradify.microsoft.graph.download-deadline-ms:60000}") long downloadDeadlineMs) {
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.tenantId = tenantId;
+        this.baseUrl = stripTrailingSlash(baseUrl);
+        this.loginUrl = stripTrailingSlash(loginUrl);
+        this.downloadDeadlineMs = downloadDeadlineMs;
+        this.httpClient = new OkHttpClient.Builder()
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(downloadDeadlineMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Download a shared file into a temporary file. Call {@link TempFileMultipartFile#delete()} once it
+     * has been processed.
+     *
+     * @param sharingUrl The OneDrive or SharePoint sharing link
+     * @param fileName   The original file name to report for the download
+     * @throws IOException If no download method succeeds before the deadline
+     */
+    public TempFileMultipartFile downloadSharedFile(String sharingUrl, String fileName) throws IOException {
+        String accessToken = getAccessToken();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(downloadDeadlineMs);
+
+        Attempt winner = race(sharingUrl, accessToken, deadline);
+        Path tempFile = Files.createTempFile("gradify-graph-", ".download");
+        try (Response response = winner.response(); ResponseBody body = response.body();
+             InputStream in = body.byteStream()) {
+            long bytes = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Downloaded {} bytes from {}", bytes, response.request().url().host());
+            return TempFileMultipartFile.of(tempFile, fileName, XLSX_CONTENT_TYPE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Check whether a shared file changed, by its drive item's eTag. The known eTag is sent as
+     * If-None-Match, so an unchanged file costs a 304 with no body.
+     *
+     * @param knownETag The eTag stored at the last sync, or null
+     * @return The current eTag if it differs from knownETag, or empty if the file is unchanged
+     */
+    public Optional<String> changedETag(String sharingUrl, String knownETag) throws IOException {
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(sharingUrl.getBytes(StandardCharsets.UTF_8));
+        Request.Builder request = authorized(baseUrl + "/shares/u!" + encoded + "/driveItem?$select=eTag", getAccessToken())
+                .newBuilder();
+        if (knownETag != null) {
+            request.header("If-None-Match", knownETag);
+        }
+
+        try (Response response = httpClient.newCall(request.build()).execute()) {
+            if (response.code() == 304) {
+                return Optional.empty();
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                if (response.code() == 401) {
+                    cachedToken = null;
+                }
+                throw new CloudProviderException(response.code(), "Drive item lookup returned " + response.code());
+            }
+            String eTag = mapper.readTree(response.body().string()).path("eTag").asText(null);
+            if (eTag == null) {
+                throw new IOException("Drive item has no eTag");
+            }
+            // Not every endpoint honours If-None-Match
+            return eTag.equals(knownETag) ? Optional.empty() : Optional.of(eTag);
+        }
+    }
+
+    /**
+     * Start every download method and return the first response that carries the file.
+     */
+    private Attempt race(String sharingUrl, String accessToken, long deadline) throws IOException {
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(sharingUrl.getBytes(StandardCharsets.UTF_8));
+        String paddedEncoded = Base64.getUrlEncoder().encodeToString(sharingUrl.getBytes(StandardCharsets.UTF_8));
+
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        CompletableFuture<Attempt> winner = new CompletableFuture<>();
+        List<CompletableFuture<Attempt>> attempts = List.of(
+                // The documented form of a sharing URL: "u!" and unpadded base64url
+                send(calls, authorized(baseUrl + "/shares/u!" + encoded + "/driveItem/content", accessToken)),
+                // Padded base64url without the prefix, which some tenants still resolve
+                send(calls, authorized(baseUrl + "/shares/" + paddedEncoded + "/driveItem/content", accessToken)),
+                // The drive item's pre-authenticated download URL
+                send(calls, authorized(baseUrl + "/shares/u!" + encoded + "/driveItem", accessToken))
+                        .thenCompose(info -> {
+                            String downloadUrl = downloadUrl(info);
+                            if (winner.isDone()) {
+                                throw new CancellationException("Another download method already won");
+                            }
+                            return send(calls, new Request.Builder().url(downloadUrl).build());
+                        }));
+
+        AtomicInteger failed = new AtomicInteger();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        for (CompletableFuture<Attempt> attempt : attempts) {
+            attempt.whenComplete((result, error) -> {
+                if (error == null && winner.complete(result)) {
+                    return;
+                }
+                if (result != null) {
+                    result.response().close();
+                }
+                if (error != null) {
+                    logger.debug("Download method failed: {}", error.getMessage());
+                    errors.add(error instanceof CompletionException ? error.getCause() : error);
+                }
+                if (failed.incrementAndGet() == attempts.size()) {
+                    winner.completeExceptionally(new IOException("All download methods failed for SharePoint file",
+                            retryableFirst(errors)));
+                }
+            });
+        }
+
+        try {
+            Attempt result = winner.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            cancelAllBut(calls, result.call());
+            return result;
+        } catch (TimeoutException e) {
+            abandon(winner, calls, e);
+            throw new CloudProviderException(504, "Download of the shared file did not finish within " + downloadDeadlineMs + " ms");
+        } catch (InterruptedException e) {
+            abandon(winner, calls, e);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading the shared file", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+        }
+    }
+
+    // A method that failed for a passing reason means trying again later may succeed, whatever the others said
+    private static Throwable retryableFirst(List<Throwable> errors) {
+        for (Throwable error : errors) {
+            if (CloudImportGateway.isTransient(error)) {
+                return error;
+            }
+        }
+        return errors.isEmpty() ? null : errors.get(errors.size() - 1);
+    }
+
+    // Completes with the response if it was successful, otherwise fails with the status
+    private CompletableFuture<Attempt> send(List<Call> calls, Request request) {
+        CompletableFuture<Attempt> future = new CompletableFuture<>();
+        Call call = httpClient.newCall(request);
+        calls.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    future.complete(new Attempt(call, response));
+                    return;
+                }
+                if (response.code() == 401) {
+                    // Revoked or rotated credentials; don't keep using the token
+                    cachedToken = null;
+                }
+                response.close();
+                future.completeExceptionally(new CloudProviderException(response.code(),
+                        request.url().encodedPath() + " returned " + response.code()));
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private String downloadUrl(Attempt info) {
+        try (Response response = info.response()) {
+            JsonNode fileInfo = mapper.readTree(response.body().string());
+            if (!fileInfo.has("@microsoft.graph.downloadUrl")) {
+                throw new IllegalStateException("Drive item has no download URL");
+            }
+            return fileInfo.get("@microsoft.graph.downloadUrl").asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read drive item: " + e.getMessage(), e);
+        }
+    }
+
+    // A response that still arrives is closed instead of used
+    private static void abandon(CompletableFuture<Attempt> winner, List<Call> calls, Exception reason) {
+        winner.completeExceptionally(reason);
+        winner.thenAccept(late -> late.response().close());
+        cancelAllBut(calls, null);
+    }
+
+    private static void cancelAllBut(List<Call> calls, Call keep) {
+        for (Call call : calls) {
+            if (call != keep) {
+                call.cancel();
+            }
+        }
+    }
+
+    private static Request authorized(String url, String accessToken) {
+        return new Request.Builder()
+                .url(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .build();
+    }
+
+    /**
+     * An access token for Microsoft Graph, from the cache while it is comfortably valid.
+     */
+    public String getAccessToken() throws IOException {
+        CachedToken token = cachedToken;
+        if (token != null && Instant.now().isBefore(token.refreshAt())) {
+            return token.value();
+        }
+        synchronized (this) {
+            token = cachedToken;
+            if (token == null || !Instant.now().isBefore(token.refreshAt())) {
+                token = requestToken();
+                cachedToken = token;
+            }
+            return token.value();
+        }
+    }
+
+    private CachedToken requestToken() throws IOException {
+        if (clientId.isEmpty() || clientSecret.isEmpty() || tenantId.isEmpty()) {
+            throw new IOException("Microsoft Graph credentials not configured. Please set:\n" +
+                    "- microsoft.graph.client.id\n" +
+                    "- microsoft.graph.client.secret\n" +
+                    "- microsoft.graph.tenant.id");
+        }
+
+        RequestBody formBody = new FormBody.Builder()
+                .add("grant_type", "client_credentials")
+                .add("client_id", clientId)
+                .add("client_secret", clientSecret)
+                .add("scope", "https://graph.microsoft.com/.default")
+                .build();
+        Request request = new Request.Builder()
+                .url(loginUrl + "/" + tenantId + "/oauth2/v2.0/token")
+                .post(formBody)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                logger.error("Microsoft Graph token request failed with {}: {}", response.code(), responseBody);
+                throw new CloudProviderException(response.code(),
+                        "Failed to get access token: " + response.code() + " - " + response.message());
+            }
+            JsonNode jsonNode = mapper.readTree(responseBody);
+            if (!jsonNode.has("access_token")) {
+                throw new IOException("Access token not found in response");
+            }
+            long expiresIn = jsonNode.path("expires_in").asLong(3600);
+            Instant refreshAt = Instant.now().plusSeconds(expiresIn).minus(TOKEN_EXPIRY_MARGIN);
+            logger.debug("Obtained a Microsoft Graph access token valid for {} s", expiresIn);
+            return new CachedToken(jsonNode.get("access_token").asText(), refreshAt);
+        }
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+}
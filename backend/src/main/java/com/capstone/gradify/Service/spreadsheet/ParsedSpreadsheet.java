@@ -0,0 +1,27 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything read from one class record upload in a single pass: the header row, the max value of
+ * each assessment column, one grade map per student row, and notes about anything the parser had to
+ * ignore or guess.
+ */
+@Getter
+public class ParsedSpreadsheet {
+    private final List<String> headers;
+    private final Map<String, Integer> maxAssessmentValues;
+    private final List<Map<String, String>> records;
+    private final List<String> diagnostics;
+
+    public ParsedSpreadsheet(List<String> headers, Map<String, Integer> maxAssessmentValues,
+                             List<Map<String, String>> records, List<String> diagnostics) {
+        this.headers = headers;
+        this.maxAssessmentValues = maxAssessmentValues;
+        this.records = records;
+        this.diagnostics = diagnostics;
+    }
+}
@@ -0,0 +1,121 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Detached value of one spreadsheet cell, produced both by the streaming XLSX reader and from POI
+ * {@link Cell} objects, so class record parsing behaves the same whichever reader produced the row.
+ * Type checks mirror POI's: formula cells report {@link CellType#FORMULA} and reading a string from a
+ * numeric cell throws.
+ */
+public final class SheetCell {
+
+    private final int column;
+    private final CellType type;
+    // Cached result type of a formula cell, otherwise the same as type
+    private final CellType resultType;
+    private final String text;
+    private final double number;
+    private final boolean bool;
+
+    private SheetCell(int column, CellType type, CellType resultType, String text, double number, boolean bool) {
+        this.column = column;
+        this.type = type;
+        this.resultType = resultType;
+        this.text = text;
+        this.number = number;
+        this.bool = bool;
+    }
+
+    public static SheetCell blank(int column) {
+        return new SheetCell(column, CellType.BLANK, CellType.BLANK, "", 0, false);
+    }
+
+    public static SheetCell string(int column, String text) {
+        return new SheetCell(column, CellType.STRING, CellType.STRING, text, 0, false);
+    }
+
+    public static SheetCell numeric(int column, double number) {
+        return new SheetCell(column, CellType.NUMERIC, CellType.NUMERIC, null, number, false);
+    }
+
+    public static SheetCell bool(int column, boolean bool) {
+        return new SheetCell(column, CellType.BOOLEAN, CellType.BOOLEAN, null, 0, bool);
+    }
+
+    public static SheetCell error(int column) {
+        return new SheetCell(column, CellType.ERROR, CellType.ERROR, null, 0, false);
+    }
+
+    /**
+     * A formula cell with its cached result, of which only a string result is ever read.
+     */
+    public static SheetCell formula(int column, CellType resultType, String cachedText) {
+        return new SheetCell(column, CellType.FORMULA, resultType, cachedText, 0, false);
+    }
+
+    /**
+     * Copy a POI cell.
+     */
+    public static SheetCell of(Cell cell) {
+        int column = cell.getColumnIndex();
+        switch (cell.getCellType()) {
+            case STRING:
+                return string(column, cell.getStringCellValue());
+            case NUMERIC:
+                return numeric(column, cell.getNumericCellValue());
+            case BOOLEAN:
+                return bool(column, cell.getBooleanCellValue());
+            case ERROR:
+                return error(column);
+            case FORMULA:
+                CellType resultType = cell.getCachedFormulaResultType();
+                return formula(column, resultType, resultType == CellType.STRING ? cell.getStringCellValue() : null);
+            default:
+                return blank(column);
+        }
+    }
+
+    public int getColumnIndex() {
+        return column;
+    }
+
+    public CellType getCellType() {
+        return type;
+    }
+
+    /**
+     * The cell text, with POI's rules: blank cells give "", formula cells their cached string result,
+     * and any other type throws {@link IllegalStateException}.
+     */
+    public String getStringCellValue() {
+        switch (type) {
+            case BLANK:
+                return "";
+            case STRING:
+                return text;
+            case FORMULA:
+                if (resultType == CellType.STRING) {
+                    return text;
+                }
+                throw new IllegalStateException("Cannot get a STRING value from a " + resultType + " formula cell");
+            default:
+                throw new IllegalStateException("Cannot get a STRING value from a " + type + " cell");
+        }
+    }
+
+    public double getNumericCellValue() {
+        if (type != CellType.NUMERIC) {
+            throw new IllegalStateException("Cannot get a NUMERIC value from a " + type + " cell");
+        }
+        return number;
+    }
+
+    public boolean getBooleanCellValue() {
+        if (type != CellType.BOOLEAN) {
+            throw new IllegalStateException("Cannot get a BOOLEAN value from a " + type + " cell");
+        }
+        return bool;
+    }
+}
@@ -0,0 +1,68 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.capstone.gradify.Entity.records.ClassEntity;
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * What became of one sheet of a multi-sheet import: the class created from it, or why none was.
+ * Holds IDs rather than entities so it can outlive the session that saved the sheet.
+ */
+@Getter
+public class SheetImportResult {
+
+    public enum Status {
+        IMPORTED,
+        /** The teacher already created a class from this sheet of the same file */
+        DUPLICATE,
+        /** The sheet has no student rows, e.g. an instructions or summary tab */
+        SKIPPED,
+        FAILED,
+        /** The sheet was still being committed when the import's deadline passed; it may or may not have been imported */
+        UNKNOWN
+    }
+
+    private final String sheetName;
+    private final Status status;
+    private final Long spreadsheetId;
+    private final Integer classId;
+    private final String className;
+    private final int records;
+    private final List<String> diagnostics;
+    private final String error;
+
+    private SheetImportResult(String sheetName, Status status, ClassSpreadsheet spreadsheet,
+                              List<String> diagnostics, String error) {
+        ClassEntity classEntity = spreadsheet != null ? spreadsheet.getClassEntity() : null;
+        this.sheetName = sheetName;
+        this.status = status;
+        this.spreadsheetId = spreadsheet != null ? spreadsheet.getId() : null;
+        this.classId = classEntity != null ? classEntity.getClassId() : null;
+        this.className = classEntity != null ? classEntity.getClassName() : null;
+        this.records = spreadsheet != null && spreadsheet.getGradeRecords() != null ? spreadsheet.getGradeRecords().size() : 0;
+        this.diagnostics = diagnostics;
+        this.error = error;
+    }
+
+    static SheetImportResult imported(String sheetName, ClassSpreadsheet spreadsheet, List<String> diagnostics) {
+        return new SheetImportResult(sheetName, Status.IMPORTED, spreadsheet, diagnostics, null);
+    }
+
+    static SheetImportResult duplicate(String sheetName, ClassSpreadsheet spreadsheet) {
+        return new SheetImportResult(sheetName, Status.DUPLICATE, spreadsheet, List.of(), null);
+    }
+
+    static SheetImportResult skipped(String sheetName, List<String> diagnostics, String reason) {
+        return new SheetImportResult(sheetName, Status.SKIPPED, null, diagnostics, reason);
+    }
+
+    static SheetImportResult failed(String sheetName, String error) {
+        return new SheetImportResult(sheetName, Status.FAILED, null, List.of(), error);
+    }
+
+    static SheetImportResult unknown(String sheetName, String error) {
+        return new SheetImportResult(sheetName, Status.UNKNOWN, null, List.of(), error);
+    }
+}
@@ -0,0 +1,300 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the first sheet of an uploaded workbook row by row.
+ * <p>
+ * .xlsx files are streamed with the XSSF SAX event model from a temporary file, so heap use depends on
+ * the widest row and the shared string table rather than the whole workbook, and reading stops as soon
+ * as the handler has what it needs. Legacy .xls files go through the POI DOM as before.
+ */
+public final class SheetReader {
+
+    private SheetReader() {
+    }
+
+    /**
+     * Read the first sheet of a workbook, passing each physical row to the handler.
+     *
+     * @param in      The workbook contents, .xlsx or .xls; not closed
+     * @param handler Receives the rows until it returns false
+     * @throws IOException If the workbook cannot be read
+     */
+    public static void readFirstSheet(InputStream in, SheetRowHandler handler) throws IOException {
+        InputStream stream = FileMagic.prepareToCheckMagic(in);
+        if (FileMagic.valueOf(stream) == FileMagic.OOXML) {
+            Path tempFile = Files.createTempFile("gradify-upload-", ".xlsx");
+            try {
+                Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                readXlsx(tempFile, handler);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } else {
+            readWithWorkbook(stream, handler);
+        }
+    }
+
+    /**
+     * Read the first sheet of a workbook that is already on disk; an .xlsx file is streamed in place
+     * instead of being copied first.
+     */
+    public static void readFirstSheet(Path file, SheetRowHandler handler) throws IOException {
+        if (FileMagic.valueOf(file.toFile()) == FileMagic.OOXML) {
+            readXlsx(file, handler);
+        } else {
+            try (InputStream in = Files.newInputStream(file)) {
+                readWithWorkbook(FileMagic.prepareToCheckMagic(in), handler);
+            }
+        }
+    }
+
+    /**
+     * Stream the first sheet of an .xlsx file with the SAX event model.
+     */
+    public static void readXlsx(Path file, SheetRowHandler handler) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Could not open workbook: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            // Without phonetic runs, like XSSFRichTextString.getString() in the DOM model
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Sheet index (0) is out of range (no sheets)");
+            }
+            try (InputStream sheet = sheets.next()) {
+                parseSheetXml(sheet, sharedStrings, handler);
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Could not read workbook: " + e.getMessage(), e);
+        } finally {
+            // Read-only packages are discarded with revert(); close() would try to save them
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Parse one sheet's XML part, resolving shared strings from the given table.
+     */
+    static void parseSheetXml(InputStream sheet, ReadOnlySharedStringsTable sharedStrings, SheetRowHandler handler) throws IOException {
+        try {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new SheetContentHandler(sharedStrings, handler));
+            parser.parse(new InputSource(sheet));
+        } catch (StopReading e) {
+            // The handler has all the rows it needs
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read workbook: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readWithWorkbook(InputStream in, SheetRowHandler handler) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(in)) {
+            readSheet(workbook.getSheetAt(0), handler);
+        }
+    }
+
+    /**
+     * Pass the rows of a sheet loaded in the POI DOM to the handler.
+     */
+    static void readSheet(Sheet sheet, SheetRowHandler handler) {
+        for (Row row : sheet) {
+            List<SheetCell> cells = new ArrayList<>(Math.max(0, row.getLastCellNum()));
+            for (Cell cell : row) {
+                cells.add(SheetCell.of(cell));
+            }
+            if (!handler.row(new SheetRow(row.getRowNum(), cells))) {
+                return;
+            }
+        }
+    }
+
+    private static final class StopReading extends SAXException {
+        private StopReading() {
+            super("Stopped by row handler");
+        }
+    }
+
+    /**
+     * Turns the sheet XML into rows of {@link SheetCell}s, typed the way XSSFCell types them.
+     */
+    private static final class SheetContentHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final SheetRowHandler handler;
+
+        private List<SheetCell> cells;
+        private int rowNum = -1;
+        private int nextColumn;
+
+        private int column;
+        private String cellType;
+        private boolean hasFormula;
+        private boolean hasValue;
+        private boolean hasInlineString;
+        private final StringBuilder value = new StringBuilder();
+        private final StringBuilder inlineString = new StringBuilder();
+
+        private boolean inValue;
+        private boolean inInlineString;
+        private boolean inInlineText;
+        private boolean inPhoneticRun;
+
+        private SheetContentHandler(ReadOnlySharedStringsTable sharedStrings, SheetRowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    cells = new ArrayList<>();
+                    nextColumn = 0;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? new CellReference(ref).getCol() : nextColumn;
+                    String t = attributes.getValue("t");
+                    cellType = t != null ? t : "n";
+                    hasFormula = false;
+                    hasValue = false;
+                    hasInlineString = false;
+                    value.setLength(0);
+                    inlineString.setLength(0);
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "v":
+                    inValue = true;
+                    hasValue = true;
+                    break;
+                case "is":
+                    inInlineString = true;
+                    hasInlineString = true;
+                    break;
+                case "rPh":
+                    inPhoneticRun = true;
+                    break;
+                case "t":
+                    inInlineText = inInlineString && !inPhoneticRun;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            } else if (inInlineText) {
+                inlineString.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                    inValue = false;
+                    break;
+                case "t":
+                    inInlineText = false;
+                    break;
+                case "rPh":
+                    inPhoneticRun = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    break;
+                case "c":
+                    cells.add(buildCell());
+                    nextColumn = column + 1;
+                    break;
+                case "row":
+                    if (!handler.row(new SheetRow(rowNum, cells))) {
+                        throw new StopReading();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private SheetCell buildCell() {
+            if (hasFormula) {
+                // Only a string result is ever read from a formula cell
+                CellType resultType = switch (cellType) {
+                    case "str", "s", "inlineStr" -> CellType.STRING;
+                    case "b" -> CellType.BOOLEAN;
+                    case "e" -> CellType.ERROR;
+                    default -> CellType.NUMERIC;
+                };
+                return SheetCell.formula(column, resultType, resultType == CellType.STRING ? stringValue() : null);
+            }
+            switch (cellType) {
+                case "s":
+                case "inlineStr":
+                case "str":
+                    return SheetCell.string(column, stringValue());
+                case "b":
+                    return SheetCell.bool(column, hasValue && "1".equals(value.toString()));
+                case "e":
+                    return SheetCell.error(column);
+                default:
+                    if (!hasValue) {
+                        return SheetCell.blank(column);
+                    }
+                    // An empty <v/> reads as 0, as in XSSFCell
+                    return SheetCell.numeric(column, value.length() == 0 ? 0.0 : Double.parseDouble(value.toString()));
+            }
+        }
+
+        private String stringValue() {
+            if ("s".equals(cellType)) {
+                return hasValue ? sharedStrings.getItemAt(Integer.parseInt(value.toString().trim())).getString() : "";
+            }
+            if (hasInlineString) {
+                return inlineString.toString();
+            }
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import java.util.List;
+
+/**
+ * One physical row of a sheet: its cells in file order plus lookup by column index.
+ */
+public final class SheetRow {
+
+    private final int rowNum;
+    private final List<SheetCell> cells;
+    private final SheetCell[] byColumn;
+
+    public SheetRow(int rowNum, List<SheetCell> cells) {
+        this.rowNum = rowNum;
+        this.cells = cells;
+        int width = 0;
+        for (SheetCell cell : cells) {
+            width = Math.max(width, cell.getColumnIndex() + 1);
+        }
+        this.byColumn = new SheetCell[width];
+        for (SheetCell cell : cells) {
+            byColumn[cell.getColumnIndex()] = cell;
+        }
+    }
+
+    /**
+     * Zero-based row number in the sheet.
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * The cells present in the row, in file order.
+     */
+    public List<SheetCell> getCells() {
+        return cells;
+    }
+
+    /**
+     * The cell at a zero-based column, or null if the row has none there.
+     */
+    public SheetCell getCell(int column) {
+        return column >= 0 && column < byColumn.length ? byColumn[column] : null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+/**
+ * Receives the rows of a sheet one at a time, as they are read.
+ */
+@FunctionalInterface
+public interface SheetRowHandler {
+
+    /**
+     * Handle the next physical row of the sheet.
+     *
+     * @param row The row
+     * @return true to keep reading, false to stop before the rest of the sheet is read
+     */
+    boolean row(SheetRow row);
+}
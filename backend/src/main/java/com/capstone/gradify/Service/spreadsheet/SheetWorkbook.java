@@ -0,0 +1,141 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A workbook whose sheets are read one at a time, possibly from several threads at once.
+ * <p>
+ * An .xlsx file is kept in a temporary file and its shared string table is loaded once; each read opens
+ * its own package on the file and streams just that sheet with the SAX event model. A legacy .xls file
+ * is loaded into the POI DOM, which is not thread-safe, so its sheets are read one after another.
+ */
+final class SheetWorkbook implements Closeable {
+
+    private final Path xlsxFile;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final Workbook workbook;
+    private final List<String> sheetNames;
+
+    private SheetWorkbook(Path xlsxFile, ReadOnlySharedStringsTable sharedStrings, Workbook workbook, List<String> sheetNames) {
+        this.xlsxFile = xlsxFile;
+        this.sharedStrings = sharedStrings;
+        this.workbook = workbook;
+        this.sheetNames = Collections.unmodifiableList(sheetNames);
+    }
+
+    /**
+     * Open a workbook for reading its sheets. Close it to remove the temporary file.
+     *
+     * @param in The workbook contents, .xlsx or .xls; not closed
+     */
+    static SheetWorkbook open(InputStream in) throws IOException {
+        InputStream stream = FileMagic.prepareToCheckMagic(in);
+        if (FileMagic.valueOf(stream) != FileMagic.OOXML) {
+            Workbook workbook = WorkbookFactory.create(stream);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                names.add(workbook.getSheetName(i));
+            }
+            return new SheetWorkbook(null, null, workbook, names);
+        }
+
+        Path tempFile = Files.createTempFile("gradify-upload-", ".xlsx");
+        boolean opened = false;
+        try {
+            Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            OPCPackage pkg = openPackage(tempFile);
+            try {
+                ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+                List<String> names = new ArrayList<>();
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+                while (sheets.hasNext()) {
+                    sheets.next().close();
+                    names.add(sheets.getSheetName());
+                }
+                opened = true;
+                return new SheetWorkbook(tempFile, sharedStrings, null, names);
+            } catch (OpenXML4JException | SAXException e) {
+                throw new IOException("Could not read workbook: " + e.getMessage(), e);
+            } finally {
+                pkg.revert();
+            }
+        } finally {
+            if (!opened) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /** The sheet names in workbook order */
+    List<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    /**
+     * Pass the rows of one sheet to the handler.
+     *
+     * @param index Zero-based position of the sheet in {@link #getSheetNames()}
+     */
+    void readSheet(int index, SheetRowHandler handler) throws IOException {
+        if (index < 0 || index >= sheetNames.size()) {
+            throw new IllegalArgumentException("Sheet index (" + index + ") is out of range (0.." + (sheetNames.size() - 1) + ")");
+        }
+        if (workbook != null) {
+            synchronized (workbook) {
+                SheetReader.readSheet(workbook.getSheetAt(index), handler);
+            }
+            return;
+        }
+
+        OPCPackage pkg = openPackage(xlsxFile);
+        try {
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            for (int i = 0; i < index; i++) {
+                sheets.next().close();
+            }
+            try (InputStream sheet = sheets.next()) {
+                SheetReader.parseSheetXml(sheet, sharedStrings, handler);
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException("Could not read workbook: " + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static OPCPackage openPackage(Path file) throws IOException {
+        try {
+            return OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Could not open workbook: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (workbook != null) {
+            workbook.close();
+        }
+        if (xlsxFile != null) {
+            Files.deleteIfExists(xlsxFile);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An in-process cloud provider for load-testing imports and syncs offline. Handles {@code stub://} links
+ * and generates class records instead of fetching them, after a configurable delay and with a configurable
+ * share of transient failures, so the gateway's bulkheads, retries and circuit breaker can be exercised
+ * without Google or Microsoft.
+ * <p>
+ * Only registered with {@code gradify.cloud.stub.enabled=true}. Defaults come from
+ * {@code gradify.cloud.stub.latency-ms}, {@code failure-rate} (0 to 1), {@code students} and {@code sheets};
+ * a link can override them, e.g. {@code stub://math-101?students=40&latency-ms=200&failure-rate=0.1}.
+ * The generated grades are the same for the same link, and a link with {@code change-every-ms} reports
+ * a new version, with new grades, once per period.
+ */
+@Service
+@ConditionalOnProperty(name = "gradify.cloud.stub.enabled", havingValue = "true")
+public class StubSpreadsheetService implements CloudSpreadsheetInterface {
+
+    private static final String SCHEME = "stub://";
+    private static final int ASSESSMENTS = 5;
+    private static final int MAX_SCORE = 50;
+
+    private final long latencyMs;
+    private final double failureRate;
+    private final int students;
+    private final int sheets;
+
+    public StubSpreadsheetService(@Value("${gradify.cloud.stub.latency-ms:100}") long latencyMs,
+                                  @Value("${gradify.cloud.stub.failure-rate:0}") double failureRate,
+                                  @Value("${gradify.cloud.stub.students:30}") int students,
+                                  @Value("${gradify.cloud.stub.sheets:3}") int sheets) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+        this.students = students;
+        this.sheets = sheets;
+    }
+
+    @Override
+    public CloudWorkbook fetchWorkbook(String sharedLink) throws IOException {
+        StubLink link = fetch(sharedLink);
+        List<String> sheetNames = new ArrayList<>();
+        List<ParsedSpreadsheet> parsed = new ArrayList<>();
+        for (int i = 1; i <= link.intParam("sheets", sheets); i++) {
+            sheetNames.add(link.name + " - Section " + i);
+            parsed.add(generate(link, sheetNames.get(i - 1)));
+        }
+        return CloudWorkbook.ofSheets(link.name + ".stub", link.name, sheetNames, parsed);
+    }
+
+    @Override
+    public Optional<String> changedVersion(String sharedLink, String knownVersion) throws IOException {
+        String version = fetch(sharedLink).version();
+        return version.equals(knownVersion) ? Optional.empty() : Optional.of(version);
+    }
+
+    @Override
+    public ParsedSpreadsheet fetchSheet(String sharedLink, String sheetName) throws IOException {
+        StubLink link = fetch(sharedLink);
+        return generate(link, sheetName != null ? sheetName : link.name);
+    }
+
+    @Override
+    public boolean canProcessLink(String link) {
+        return link != null && link.startsWith(SCHEME);
+    }
+
+    // Every call to the stub pays the latency and may fail, like a request to a real provider
+    private StubLink fetch(String sharedLink) throws IOException {
+        StubLink link = StubLink.parse(sharedLink);
+        long latency = link.longParam("latency-ms", latencyMs);
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while calling the stub provider");
+            }
+        }
+        if (ThreadLocalRandom.current().nextDouble() < link.doubleParam("failure-rate", failureRate)) {
+            throw new CloudProviderException(503, "Stub provider failure for " + sharedLink);
+        }
+        return link;
+    }
+
+    private ParsedSpreadsheet generate(StubLink link, String sheetName) {
+        List<String> headers = new ArrayList<>(List.of("Student Number", "First Name", "Last Name"));
+        Map<String, Integer> maxValues = new LinkedHashMap<>();
+        for (int i = 1; i <= ASSESSMENTS; i++) {
+            headers.add("Quiz " + i);
+            maxValues.put("Quiz " + i, MAX_SCORE);
+        }
+
+        // Students are shared by every sheet of a link; grades differ per sheet and version
+        Random random = new Random((link.name + "/" + sheetName + "/" + link.version()).hashCode());
+        List<Map<String, String>> records = new ArrayList<>();
+        for (int i = 1; i <= link.intParam("students", students); i++) {
+            Map<String, String> record = new HashMap<>();
+            record.put("Student Number", String.format("STUB-%s-%04d", link.name, i));
+            record.put("First Name", "Student");
+            record.put("Last Name", link.name + " " + i);
+            for (int q = 1; q <= ASSESSMENTS; q++) {
+                record.put("Quiz " + q, String.valueOf(random.nextInt(MAX_SCORE + 1)));
+            }
+            records.add(record);
+        }
+        return new ParsedSpreadsheet(headers, maxValues, records, List.of());
+    }
+
+    private static final class StubLink {
+        final String name;
+        final Map<String, String> params = new HashMap<>();
+
+        private StubLink(String name) {
+            this.name = name;
+        }
+
+        static StubLink parse(String sharedLink) {
+            URI uri = URI.create(sharedLink);
+            String name = uri.getAuthority() != null ? uri.getAuthority() : "stub";
+            StubLink link = new StubLink(name);
+            if (uri.getQuery() != null) {
+                for (String pair : uri.getQuery().split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        link.params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                    }
+                }
+            }
+            return link;
+        }
+
+        String version() {
+            long changeEveryMs = longParam("change-every-ms", 0);
+            return changeEveryMs > 0 ? String.valueOf(System.currentTimeMillis() / changeEveryMs) : "1";
+        }
+
+        int intParam(String key, int defaultValue) {
+            return params.containsKey(key) ? Integer.parseInt(params.get(key)) : defaultValue;
+        }
+
+        long longParam(String key, long defaultValue) {
+            return params.containsKey(key) ? Long.parseLong(params.get(key)) : defaultValue;
+        }
+
+        double doubleParam(String key, double defaultValue) {
+            return params.containsKey(key) ? Double.parseDouble(params.get(key)) : defaultValue;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An uploaded file kept in a temporary file of our own, so it can be processed after the request that
+ * carried it has finished and the servlet container has cleaned up its multipart parts.
+ */
+public final class TempFileMultipartFile implements MultipartFile {
+
+    private final Path path;
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+
+    private TempFileMultipartFile(Path path, String name, String originalFilename, String contentType, long size) {
+        this.path = path;
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    /**
+     * Move or copy an upload into a new temporary file. Call {@link #delete()} once it has been processed.
+     */
+    public static TempFileMultipartFile copyOf(MultipartFile file) throws IOException {
+        Path path = Files.createTempFile("gradify-import-", ".upload");
+        try {
+            // For disk-backed parts this is a rename rather than a copy
+            file.transferTo(path);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new TempFileMultipartFile(path, file.getName(), file.getOriginalFilename(), file.getContentType(),
+                Files.size(path));
+    }
+
+    /**
+     * Take over a temporary file that already holds the contents, e.g. a streamed download.
+     * Call {@link #delete()} once it has been processed.
+     */
+    public static TempFileMultipartFile of(Path path, String originalFilename, String contentType) throws IOException {
+        return new TempFileMultipartFile(path, "file", originalFilename, contentType, Files.size(path));
+    }
+
+    /** The temporary file, for readers that can work on a file directly */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Remove the temporary file.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,259 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.user.TeacherEntity;
+import com.capstone.gradify.Service.metrics.HotPathMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Imports every sheet of a workbook as its own class, so a department's workbook with one tab per
+ * section goes in with one request. Sheets are parsed and then saved in parallel on a bounded pool,
+ * each in its own transaction; a sheet that fails is reported and does not affect the others.
+ * <p>
+ * Configured with {@code gradify.import.sheet-parallelism} (worker threads, keep below the JDBC pool size)
+ * and {@code gradify.import.sheet-timeout-ms} (deadline for all sheets of one import).
+ * <p>
+ * A sheet saved past the deadline is rolled back rather than committed, so a sheet reported as failed
+ * was not imported. Saves are never interrupted; one still committing when the deadline passes gets a
+ * short grace period, and is reported as {@link SheetImportResult.Status#UNKNOWN} if it outlasts that.
+ */
+@Service
+public class WorkbookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkbookImportService.class);
+
+    // How long past the deadline to wait for a save that is already committing or rolling back
+    private static final long SAVE_GRACE_MS = 10_000;
+
+    @Autowired
+    private ClassSpreadsheetService classSpreadsheetService;
+    @Autowired
+    private HotPathMetrics hotPathMetrics;
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMs;
+
+    /**
+     * Reads one sheet of a workbook; called from the pool's threads.
+     */
+    @FunctionalInterface
+    public interface SheetSource {
+        ParsedSpreadsheet parse(int index) throws Exception;
+    }
+
+    public WorkbookImportService(PlatformTransactionManager transactionManager,
+                                 @Value("${gradify.import.sheet-parallelism:4}") int parallelism,
+                                 @Value("${gradify.import.sheet-timeout-ms:120000}") long timeoutMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMs = timeoutMs;
+        int threads = Math.max(1, parallelism);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sheet-import-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // When the queue is full the request thread does the work itself instead of failing
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 64), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Import every sheet of an uploaded workbook. A CSV or TSV file is a workbook with a single sheet
+     * named after the file.
+     *
+     * @param file        The uploaded workbook
+     * @param fileName    Stored as each sheet's spreadsheet file name
+     * @param contentHash The file's content hash, used to skip sheets already imported from the same file; may be null
+     * @param teacher     The teacher the classes are created for
+     * @return One result per sheet, in workbook order
+     * @throws IOException If the workbook itself cannot be opened
+     */
+    public List<SheetImportResult> importWorkbook(MultipartFile file, String fileName, String contentHash,
+                                                  TeacherEntity teacher) throws IOException {
+        ImportJob.reportPhase("parsing");
+        String format = ClassSpreadsheetService.fileFormat(file.getOriginalFilename());
+        if (DelimitedTextReader.isDelimitedFile(file.getOriginalFilename())) {
+            String sheetName = classSpreadsheetService.extractFileName(file.getOriginalFilename());
+            return importSheets(fileName, List.of(sheetName), index -> classSpreadsheetService.parseSpreadsheet(file),
+                    contentHash, teacher);
+        }
+
+        try (InputStream in = file.getInputStream(); SheetWorkbook workbook = SheetWorkbook.open(in)) {
+            return importSheets(fileName, workbook.getSheetNames(), index -> hotPathMetrics.timeChecked(
+                    HotPathMetrics.SPREADSHEET_PARSE, () -> {
+                        ClassRecordSheet sheet = new ClassRecordSheet(false);
+                        workbook.readSheet(index, sheet);
+                        return sheet.toParsedSpreadsheet();
+                    }, "format", format), contentHash, teacher);
+        }
+    }
+
+    /**
+     * Parse the given sheets in parallel, create the students they share once, then save each sheet
+     * that has student rows as a new class in parallel.
+     *
+     * @param fileName    Stored as each sheet's spreadsheet file name
+     * @param sheetNames  The sheets, in workbook order
+     * @param source      Reads a sheet by its index in sheetNames
+     * @param contentHash The source file's content hash, or null to import every sheet even if it was before
+     * @param teacher     The teacher the classes are created for
+     * @return One result per sheet, in workbook order
+     */
+    public List<SheetImportResult> importSheets(String fileName, List<String> sheetNames, SheetSource source,
+                                                String contentHash, TeacherEntity teacher) {
+        int sheetCount = sheetNames.size();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        SheetImportResult[] results = new SheetImportResult[sheetCount];
+
+        List<Future<ParsedSpreadsheet>> parses = new ArrayList<>(sheetCount);
+        for (int i = 0; i < sheetCount; i++) {
+            int index = i;
+            parses.add(executor.submit(() -> source.parse(index)));
+        }
+        ParsedSpreadsheet[] parsed = new ParsedSpreadsheet[sheetCount];
+        List<Map<String, String>> allRecords = new ArrayList<>();
+        for (int i = 0; i < sheetCount; i++) {
+            String sheetName = sheetNames.get(i);
+            try {
+                parsed[i] = await(parses.get(i), deadline);
+            } catch (Exception e) {
+                results[i] = failure(sheetName, "Could not read sheet", e);
+                continue;
+            }
+            if (parsed[i].getRecords().stream().allMatch(record -> isBlank(ClassSpreadsheetService.studentNumberOf(record)))) {
+                results[i] = SheetImportResult.skipped(sheetName, parsed[i].getDiagnostics(), "No rows with a student number");
+                parsed[i] = null;
+                continue;
+            }
+            allRecords.addAll(parsed[i].getRecords());
+        }
+
+        // A student in several sections would otherwise get a placeholder from each sheet saved at the same time
+        ImportJob.reportPhase("matching students");
+        classSpreadsheetService.ensureStudents(allRecords);
+
+        // Progress counts sheets rather than rows from here on
+        ImportJob.reportPhase("saving sheets");
+        List<Future<SheetImportResult>> saves = new ArrayList<>(sheetCount);
+        for (int i = 0; i < sheetCount; i++) {
+            if (parsed[i] == null) {
+                saves.add(null);
+                continue;
+            }
+            String sheetName = sheetNames.get(i);
+            ParsedSpreadsheet sheet = parsed[i];
+            String sheetHash = contentHash != null ? classSpreadsheetService.sheetContentHash(contentHash, sheetName) : null;
+            saves.add(executor.submit(() -> {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new TimeoutException();
+                }
+                return transactionTemplate.execute(status -> {
+                    SheetImportResult result = saveSheet(fileName, sheetName, sheet, sheetHash, teacher);
+                    // Past the deadline the caller may already be reporting the sheet as failed
+                    if (System.nanoTime() - deadline >= 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return result;
+                });
+            }));
+        }
+        int done = 0;
+        for (int i = 0; i < sheetCount; i++) {
+            if (saves.get(i) != null) {
+                results[i] = awaitSave(sheetNames.get(i), saves.get(i), deadline);
+            }
+            ImportJob.reportRows(++done, sheetCount);
+        }
+        return List.of(results);
+    }
+
+    private SheetImportResult saveSheet(String fileName, String sheetName, ParsedSpreadsheet parsed, String sheetHash,
+                                        TeacherEntity teacher) {
+        if (sheetHash != null) {
+            Optional<ClassSpreadsheet> existing = classSpreadsheetService.findImportedUpload(teacher, sheetHash);
+            if (existing.isPresent()) {
+                return SheetImportResult.duplicate(sheetName, existing.get());
+            }
+        }
+        ClassSpreadsheet spreadsheet = classSpreadsheetService.createClassFromSheet(fileName, sheetName, teacher, parsed, sheetHash);
+        return SheetImportResult.imported(sheetName, spreadsheet, parsed.getDiagnostics());
+    }
+
+    // Unlike a parse, a save is not cancelled on timeout: interrupting it could leave the outcome of its commit unknown
+    private static SheetImportResult awaitSave(String sheetName, Future<SheetImportResult> save, long deadline) {
+        try {
+            SheetImportResult result;
+            try {
+                result = save.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                result = save.get(SAVE_GRACE_MS, TimeUnit.MILLISECONDS);
+            }
+            // Null when the save finished past the deadline and was rolled back
+            return result != null ? result : failure(sheetName, "Could not save sheet", new TimeoutException());
+        } catch (TimeoutException e) {
+            logger.warn("Sheet '{}' was still saving {} ms after the import deadline", sheetName, SAVE_GRACE_MS);
+            ImportJob.reportWarnings(List.of("Sheet '" + sheetName + "': still saving when the import timed out, "
+                    + "check the class list to see whether it was imported"));
+            return SheetImportResult.unknown(sheetName, "timed out while saving");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SheetImportResult.unknown(sheetName, "interrupted while saving");
+        } catch (ExecutionException e) {
+            return failure(sheetName, "Could not save sheet", e.getCause() instanceof Exception cause ? cause : e);
+        }
+    }
+
+    private static <T> T await(Future<T> future, long deadline) throws Exception {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static SheetImportResult failure(String sheetName, String what, Exception e) {
+        String message = e instanceof TimeoutException ? "timed out" : e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        logger.warn("{} '{}': {}", what, sheetName, message, e);
+        ImportJob.reportWarnings(List.of("Sheet '" + sheetName + "': " + message));
+        return SheetImportResult.failed(sheetName, message);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
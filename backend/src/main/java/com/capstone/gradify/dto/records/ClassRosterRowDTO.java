@@ -0,0 +1,23 @@
+package com.capstone.gradify.dto.records;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of a class roster: a grade record joined with its student and computed grade.
+ * Student fields are null when no student has the record's student number.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassRosterRowDTO {
+    private Long gradeRecordId;
+    private String studentNumber;
+    private String firstName;
+    private String lastName;
+    private Integer userId;
+    private Double percentage;
+    private String letterGrade;
+    private String status;
+}
@@ -0,0 +1,25 @@
+package com.capstone.gradify.dto.records;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One row of a gradebook export: a grade record's scores joined with its student and computed grade.
+ * Student fields are null when no student has the record's student number.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradebookRowDTO {
+    private Long gradeRecordId;
+    private String studentNumber;
+    private String firstName;
+    private String lastName;
+    private Map<String, String> grades;
+    private Double percentage;
+    private String letterGrade;
+    private String status;
+}
@@ -0,0 +1,19 @@
+package com.capstone.gradify.dto.records;
+
+import com.capstone.gradify.Service.RecordsService;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All teacher dashboard metrics, computed together in one pass over the teacher's classes.
+ */
+@Data
+public class TeacherDashboardDTO {
+    private int studentCount;
+    private int atRiskCount;
+    private int topPerformerCount;
+    private Map<String, Integer> gradeDistribution;
+    private List<RecordsService.TeacherAssessmentPerformance> classPerformance;
+}
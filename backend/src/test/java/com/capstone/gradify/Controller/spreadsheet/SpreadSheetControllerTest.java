@@ -0,0 +1,121 @@
+package com.capstone.gradify.Controller.spreadsheet;
+
+import com.capstone.gradify.Entity.records.ClassEntity;
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.user.TeacherEntity;
+import com.capstone.gradify.Repository.records.GradeRecordRepository;
+import com.capstone.gradify.Repository.user.TeacherRepository;
+import com.capstone.gradify.Service.RecordsService;
+import com.capstone.gradify.Service.spreadsheet.ClassSpreadsheetService;
+import com.capstone.gradify.Service.spreadsheet.ImportCoalescer;
+import com.capstone.gradify.Service.spreadsheet.ImportJob;
+import com.capstone.gradify.Service.spreadsheet.ImportJobService;
+import org.hibernate.collection.spi.PersistentBag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpreadSheetControllerTest {
+
+    private static final int TEACHER_ID = 7;
+    private static final int CLASS_ID = 3;
+    private static final long SPREADSHEET_ID = 11L;
+    private static final String HASH = "same-file";
+
+    private final ClassSpreadsheetService classSpreadsheetService = mock(ClassSpreadsheetService.class);
+    private final TeacherRepository teacherRepository = mock(TeacherRepository.class);
+    private final GradeRecordRepository gradeRecordRepository = mock(GradeRecordRepository.class);
+    private final ImportJobService importJobService = new ImportJobService(1, 10, 30, 1000);
+    private final TeacherEntity teacher = new TeacherEntity();
+    private SpreadSheetController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        controller = new SpreadSheetController(classSpreadsheetService, mock(RecordsService.class));
+        ReflectionTestUtils.setField(controller, "teacherRepository", teacherRepository);
+        ReflectionTestUtils.setField(controller, "gradeRecordRepository", gradeRecordRepository);
+        ReflectionTestUtils.setField(controller, "importJobService", importJobService);
+        ReflectionTestUtils.setField(controller, "importCoalescer", new ImportCoalescer());
+
+        teacher.setUserId(TEACHER_ID);
+        when(teacherRepository.findById(TEACHER_ID)).thenReturn(Optional.of(teacher));
+        when(classSpreadsheetService.contentHash(any())).thenReturn(HASH);
+        when(gradeRecordRepository.countByClassRecord_Id(SPREADSHEET_ID)).thenReturn(30L);
+    }
+
+    @AfterEach
+    void shutdown() {
+        importJobService.shutdown();
+    }
+
+    @Test
+    void asyncReuploadOfAnImportedFileReportsTheDuplicate() throws Exception {
+        when(classSpreadsheetService.findImportedUpload(teacher, HASH)).thenReturn(Optional.of(detachedSpreadsheet()));
+
+        ResponseEntity<?> response = controller.uploadSpreadsheet(file(), TEACHER_ID, true, false);
+
+        Map<String, Object> result = awaitResult(response);
+        assertEquals(SPREADSHEET_ID, result.get("spreadsheetId"));
+        assertEquals(CLASS_ID, result.get("classId"));
+        assertEquals(30L, result.get("records"));
+        assertEquals(true, result.get("duplicate"));
+    }
+
+    @Test
+    void asyncReuploadOfAnUnchangedUpdateSucceeds() throws Exception {
+        ClassSpreadsheet spreadsheet = detachedSpreadsheet();
+        when(classSpreadsheetService.getClassSpreadSheetByClassId(CLASS_ID)).thenReturn(List.of(spreadsheet));
+        when(classSpreadsheetService.updateSpreadsheet(eq(SPREADSHEET_ID), any(MultipartFile.class), eq(teacher), eq(HASH)))
+                .thenReturn(spreadsheet);
+
+        ResponseEntity<?> response = controller.updateSpreadsheet(CLASS_ID, file(), TEACHER_ID, true);
+
+        Map<String, Object> result = awaitResult(response);
+        assertEquals(SPREADSHEET_ID, result.get("spreadsheetId"));
+        assertEquals(30L, result.get("records"));
+    }
+
+    // Like a spreadsheet returned from outside its session: its grade records were never loaded and can't be
+    private static ClassSpreadsheet detachedSpreadsheet() {
+        ClassEntity classEntity = new ClassEntity();
+        classEntity.setClassId(CLASS_ID);
+        classEntity.setClassName("Math 101");
+        ClassSpreadsheet spreadsheet = new ClassSpreadsheet();
+        spreadsheet.setId(SPREADSHEET_ID);
+        spreadsheet.setClassEntity(classEntity);
+        spreadsheet.setGradeRecords(new PersistentBag<>());
+        return spreadsheet;
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "Math 101 - A.csv", "text/csv", "Student Number,Quiz 1\nS1,10\n".getBytes());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> awaitResult(ResponseEntity<?> response) throws InterruptedException {
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        String jobId = (String) ((Map<String, Object>) response.getBody()).get("jobId");
+        ImportJob job = importJobService.getJob(jobId).orElseThrow();
+        for (int i = 0; i < 500 && !job.isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        Map<String, Object> snapshot = job.snapshot();
+        assertEquals(ImportJob.Status.SUCCEEDED, snapshot.get("status"), () -> String.valueOf(snapshot.get("error")));
+        return (Map<String, Object>) snapshot.get("result");
+    }
+}
@@ -0,0 +1,88 @@
+package com.capstone.gradify.Service.grading;
+
+import com.capstone.gradify.Entity.records.ClassSpreadsheet;
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeMatrixTest {
+
+    private static final String SCHEME = "[{\"name\":\"Quizzes\",\"weight\":50},{\"name\":\"Final Exam\",\"weight\":50}]";
+
+    private final GradingSchemeCompiler compiler = new GradingSchemeCompiler();
+
+    @Test
+    void gradesMatchAFreshBindingWhateverTheKeyOrder() {
+        CompiledGradingScheme scheme = compiler.compile(SCHEME);
+        ClassSpreadsheet spreadsheet = spreadsheet(Map.of("Q1", 10, "Final Exam", 100));
+
+        // The scheme's cached binding for this header set now has Final Exam first
+        GradeMatrix.of(List.of(record(spreadsheet, "Final Exam", "50", "Q1", "10", "Student Number", "S1")))
+                .percentages(scheme);
+
+        GradeRecordsEntity first = record(spreadsheet, "Student Number", "S1", "Q1", "10", "Final Exam", "50");
+        GradeRecordsEntity second = record(spreadsheet, "Q1", "5", "Student Number", "S2", "Final Exam", "100");
+        double[] percentages = GradeMatrix.of(List.of(first, second)).percentages(scheme);
+
+        assertEquals(freshGrade(first), percentages[0], 1e-9);
+        assertEquals(freshGrade(second), percentages[1], 1e-9);
+        assertEquals(75.0, percentages[0], 1e-9);
+        assertEquals(75.0, percentages[1], 1e-9);
+    }
+
+    @Test
+    void partialRowsAreReadByColumnName() {
+        CompiledGradingScheme scheme = compiler.compile(SCHEME);
+        ClassSpreadsheet spreadsheet = spreadsheet(Map.of("Q1", 10, "Q2", 10, "Final Exam", 100));
+
+        // Warm the binding of the partial row's key set in a different order
+        GradeMatrix.of(List.of(record(spreadsheet, "Final Exam", "0", "Q1", "0"))).percentages(scheme);
+
+        GradeMatrix matrix = GradeMatrix.of(List.of(
+                record(spreadsheet, "Q1", "10", "Q2", "0", "Final Exam", "100"),
+                record(spreadsheet, "Q1", "10", "Final Exam", "50")));
+        double[] percentages = matrix.percentages(scheme);
+
+        assertEquals(75.0, percentages[0], 1e-9);
+        assertEquals(75.0, percentages[1], 1e-9);
+    }
+
+    @Test
+    void noSchemeGivesZeros() {
+        GradeMatrix matrix = GradeMatrix.of(List.of(record(spreadsheet(Map.of()), "Q1", "10")));
+
+        assertArrayEquals(new double[]{0}, matrix.percentages(null));
+    }
+
+    // Graded with a scheme compiled on its own, so no binding has been cached for it yet
+    private static double freshGrade(GradeRecordsEntity record) {
+        CompiledGradingScheme scheme = new GradingSchemeCompiler().compile(SCHEME);
+        HeaderCategoryBinding binding = scheme.bindingFor(record.getGrades().keySet());
+        return binding.grade(binding.values(record.getGrades()),
+                binding.maxValues(record.getClassRecord().getAssessmentMaxValues()));
+    }
+
+    private static ClassSpreadsheet spreadsheet(Map<String, Integer> maxValues) {
+        ClassSpreadsheet spreadsheet = new ClassSpreadsheet();
+        spreadsheet.setAssessmentMaxValues(maxValues);
+        return spreadsheet;
+    }
+
+    // Grades kept in the given key order, as rows loaded from JSONB are
+    private static GradeRecordsEntity record(ClassSpreadsheet spreadsheet, String... keysAndValues) {
+        Map<String, String> grades = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            grades.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        GradeRecordsEntity record = new GradeRecordsEntity();
+        record.setStudentNumber(grades.get("Student Number"));
+        record.setClassRecord(spreadsheet);
+        record.setGrades(grades);
+        return record;
+    }
+}
@@ -0,0 +1,125 @@
+package com.capstone.gradify.Service.grading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentileCalculatorTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void emptyInputSummarizesToEmpty() {
+        assertSame(ScoreSummary.EMPTY, PercentileCalculator.summarize(new double[0], 0));
+        assertEquals(0.0, PercentileCalculator.percentile(new double[4], 0, 0.5));
+        assertEquals(0.0, PercentileCalculator.topAverage(new double[0], 0, 0));
+        assertEquals(0.0, PercentileCalculator.bottomAverage(new double[0], 0, 0));
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        ScoreSummary summary = PercentileCalculator.summarize(new double[]{42.5}, 1);
+
+        assertEquals(1, summary.getCount());
+        assertEquals(42.5, summary.getMean(), EPSILON);
+        assertEquals(42.5, summary.getFirstQuartile(), EPSILON);
+        assertEquals(42.5, summary.getMedian(), EPSILON);
+        assertEquals(42.5, summary.getThirdQuartile(), EPSILON);
+        assertEquals(42.5, summary.getBottomQuartileAverage(), EPSILON);
+        // The top quarter is the scores past ceil(size * 0.75), none of them for a single score
+        assertEquals(0.0, summary.getTopQuartileAverage(), EPSILON);
+    }
+
+    @Test
+    void allEqualValuesAreEveryStatistic() {
+        double[] scores = new double[101];
+        Arrays.fill(scores, 7.0);
+
+        ScoreSummary summary = PercentileCalculator.summarize(scores, scores.length);
+
+        assertEquals(7.0, summary.getMean(), EPSILON);
+        assertEquals(7.0, summary.getFirstQuartile(), EPSILON);
+        assertEquals(7.0, summary.getMedian(), EPSILON);
+        assertEquals(7.0, summary.getThirdQuartile(), EPSILON);
+        assertEquals(7.0, summary.getBottomQuartileAverage(), EPSILON);
+        assertEquals(7.0, summary.getTopQuartileAverage(), EPSILON);
+    }
+
+    @Test
+    void quartilesInterpolateBetweenRanksAndAveragesUseCeilingQuarters() {
+        double[] scores = {8, 3, 5, 1, 7, 2, 6, 4};
+
+        ScoreSummary summary = PercentileCalculator.summarize(scores, scores.length);
+
+        assertEquals(4.5, summary.getMean(), EPSILON);
+        assertEquals(2.75, summary.getFirstQuartile(), EPSILON);
+        assertEquals(4.5, summary.getMedian(), EPSILON);
+        assertEquals(6.25, summary.getThirdQuartile(), EPSILON);
+        // Bottom ceil(8 * 0.25) = 2 scores, top 8 - ceil(8 * 0.75) = 2 scores
+        assertEquals(1.5, summary.getBottomQuartileAverage(), EPSILON);
+        assertEquals(7.5, summary.getTopQuartileAverage(), EPSILON);
+    }
+
+    @Test
+    void onlyTheFirstSizeElementsAreRead() {
+        double[] scores = {3, 1, 2, 1000, -1000};
+
+        assertEquals(2.0, PercentileCalculator.median(scores, 3), EPSILON);
+    }
+
+    @Test
+    void percentileMatchesSortedReference() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int size = 1 + random.nextInt(300);
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                // Few distinct values, so ties are common
+                scores[i] = random.nextInt(20);
+            }
+            double[] sorted = scores.clone();
+            Arrays.sort(sorted);
+
+            for (double p : new double[]{0, 0.1, 0.25, 0.5, 0.75, 0.9, 1}) {
+                assertEquals(referencePercentile(sorted, p), PercentileCalculator.percentile(scores.clone(), size, p),
+                        EPSILON, "p=" + p + " size=" + size);
+            }
+            int k = random.nextInt(size + 1);
+            assertEquals(average(sorted, 0, k), PercentileCalculator.bottomAverage(scores.clone(), size, k), EPSILON);
+            assertEquals(average(sorted, k, size), PercentileCalculator.topAverage(scores.clone(), size, k), EPSILON);
+        }
+    }
+
+    @Test
+    void selectHandlesSortedAndReverseSortedInput() {
+        int size = 100_000;
+        double[] ascending = new double[size];
+        double[] descending = new double[size];
+        for (int i = 0; i < size; i++) {
+            ascending[i] = i;
+            descending[i] = size - 1 - i;
+        }
+
+        assertEquals(12_345, PercentileCalculator.select(ascending, 0, size, 12_345), EPSILON);
+        assertEquals(12_345, PercentileCalculator.select(descending, 0, size, 12_345), EPSILON);
+    }
+
+    private static double referencePercentile(double[] sorted, double p) {
+        double position = p * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    private static double average(double[] sorted, int from, int to) {
+        if (from >= to) return 0.0;
+        double total = 0.0;
+        for (int i = from; i < to; i++) {
+            total += sorted[i];
+        }
+        return total / (to - from);
+    }
+}
@@ -0,0 +1,127 @@
+package com.capstone.gradify.Service.grading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void emptySketchSummarizesToEmpty() {
+        QuantileSketch sketch = new QuantileSketch(0, 100, 100);
+
+        assertEquals(0, sketch.count());
+        assertEquals(0.0, sketch.mean());
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(0.0, sketch.bottomAverage(10));
+        assertEquals(0.0, sketch.topAverage(10));
+        assertSame(ScoreSummary.EMPTY, sketch.summarize());
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        QuantileSketch sketch = new QuantileSketch(0, 100, 100);
+        sketch.add(63.2);
+
+        ScoreSummary summary = sketch.summarize();
+
+        assertEquals(1, summary.getCount());
+        assertEquals(63.2, summary.getMean(), 1e-9);
+        assertEquals(63.2, summary.getFirstQuartile(), 1e-9);
+        assertEquals(63.2, summary.getMedian(), 1e-9);
+        assertEquals(63.2, summary.getThirdQuartile(), 1e-9);
+        assertEquals(63.2, summary.getBottomQuartileAverage(), 1e-9);
+        // Same quarter definitions as PercentileCalculator: no scores past ceil(1 * 0.75)
+        assertEquals(0.0, summary.getTopQuartileAverage(), 1e-9);
+    }
+
+    @Test
+    void allEqualValuesAreEveryStatistic() {
+        QuantileSketch sketch = new QuantileSketch(0, 100, 100);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(25.0);
+        }
+
+        ScoreSummary summary = sketch.summarize();
+
+        assertEquals(25.0, summary.getFirstQuartile(), 1e-9);
+        assertEquals(25.0, summary.getMedian(), 1e-9);
+        assertEquals(25.0, summary.getThirdQuartile(), 1e-9);
+        assertEquals(25.0, summary.getBottomQuartileAverage(), 1e-9);
+        assertEquals(25.0, summary.getTopQuartileAverage(), 1e-9);
+    }
+
+    @Test
+    void staysWithinOneBinOfTheExactSummary() {
+        int bins = 1000;
+        double binWidth = 100.0 / bins;
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            int size = 1000 + random.nextInt(50_000);
+            double[] scores = new double[size];
+            QuantileSketch sketch = new QuantileSketch(0, 100, bins);
+            for (int i = 0; i < size; i++) {
+                // Skewed towards high scores, like most grade distributions
+                scores[i] = 100 * Math.sqrt(random.nextDouble());
+                sketch.add(scores[i]);
+            }
+
+            ScoreSummary exact = PercentileCalculator.summarize(scores, size);
+            ScoreSummary approximate = sketch.summarize();
+
+            assertEquals(exact.getCount(), approximate.getCount());
+            assertEquals(exact.getMean(), approximate.getMean(), 1e-6);
+            assertEquals(exact.getFirstQuartile(), approximate.getFirstQuartile(), binWidth);
+            assertEquals(exact.getMedian(), approximate.getMedian(), binWidth);
+            assertEquals(exact.getThirdQuartile(), approximate.getThirdQuartile(), binWidth);
+            assertEquals(exact.getBottomQuartileAverage(), approximate.getBottomQuartileAverage(), binWidth);
+            assertEquals(exact.getTopQuartileAverage(), approximate.getTopQuartileAverage(), binWidth);
+        }
+    }
+
+    @Test
+    void outOfRangeValuesKeepExactExtremesAndMean() {
+        QuantileSketch sketch = new QuantileSketch(0, 100, 10);
+        sketch.add(-20);
+        sketch.add(50);
+        sketch.add(130);
+
+        assertEquals(3, sketch.count());
+        assertEquals(160.0 / 3, sketch.mean(), 1e-9);
+        assertEquals(-20.0, sketch.bottomAverage(1), 1e-9);
+        assertEquals(130.0, sketch.topAverage(1), 1e-9);
+        assertEquals(-20.0, sketch.quantile(0), 1e-9);
+        assertEquals(130.0, sketch.quantile(1), 1e-9);
+    }
+
+    @Test
+    void mergeMatchesOneSketchOfEveryValue() {
+        QuantileSketch left = new QuantileSketch(0, 100, 200);
+        QuantileSketch right = new QuantileSketch(0, 100, 200);
+        QuantileSketch all = new QuantileSketch(0, 100, 200);
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextDouble() * 100;
+            (i % 3 == 0 ? left : right).add(value);
+            all.add(value);
+        }
+
+        left.merge(right);
+
+        assertEquals(all.count(), left.count());
+        assertEquals(all.mean(), left.mean(), 1e-9);
+        for (double p : new double[]{0, 0.25, 0.5, 0.75, 1}) {
+            assertEquals(all.quantile(p), left.quantile(p), 1e-9);
+        }
+    }
+
+    @Test
+    void rejectsInvalidRangesAndMismatchedMerges() {
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(10, 10, 5));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0, 100, 0));
+        QuantileSketch sketch = new QuantileSketch(0, 100, 10);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0, 100, 20)));
+    }
+}
@@ -0,0 +1,305 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CloudImportGatewayTest {
+
+    private static final long BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 400;
+    private static final long OPEN_MS = 30_000;
+
+    // Only moves when a retry waits or a test moves it, so deadlines and the breaker's open time are exact
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private final FakeProvider provider = new FakeProvider();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdown() {
+        background.shutdownNow();
+    }
+
+    @Test
+    void retriesTransientFailuresWithExponentialBackoff() throws Exception {
+        CloudImportGateway gateway = gateway(4, 60_000, 3, 100);
+
+        String result = gateway.execute(provider, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ConnectException("refused");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, sleeps.size());
+        assertBetween(BACKOFF_MS / 2, BACKOFF_MS, sleeps.get(0));
+        assertBetween(BACKOFF_MS, 2 * BACKOFF_MS, sleeps.get(1));
+    }
+
+    @Test
+    void backoffIsCappedAndGivesUpAfterMaxAttempts() {
+        CloudImportGateway gateway = gateway(4, 60_000, 6, 100);
+
+        CloudProviderException error = assertThrows(CloudProviderException.class, () -> gateway.execute(provider, () -> {
+            calls.incrementAndGet();
+            throw new CloudProviderException(503, "unavailable");
+        }));
+
+        assertEquals(503, error.getStatusCode());
+        assertEquals(6, calls.get());
+        long[] ceilings = {100, 200, 400, 400, 400};
+        assertEquals(ceilings.length, sleeps.size());
+        for (int i = 0; i < ceilings.length; i++) {
+            assertBetween(ceilings[i] / 2, ceilings[i], sleeps.get(i));
+        }
+    }
+
+    @Test
+    void doesNotRetryAfterTheDeadline() {
+        // The second backoff is at least 100 ms and the first wait at least 50, so it would end past 150
+        CloudImportGateway gateway = gateway(4, 150, 5, 100);
+
+        assertThrows(ConnectException.class, () -> gateway.execute(provider, () -> {
+            calls.incrementAndGet();
+            throw new ConnectException("refused");
+        }));
+
+        assertEquals(2, calls.get());
+        assertEquals(1, sleeps.size());
+    }
+
+    @Test
+    void doesNotRetryOrCountNonTransientFailures() {
+        CloudImportGateway gateway = gateway(4, 60_000, 3, 1);
+
+        assertThrows(CloudProviderException.class, () -> gateway.execute(provider, () -> {
+            calls.incrementAndGet();
+            throw new CloudProviderException(404, "not found");
+        }));
+        assertThrows(IllegalArgumentException.class, () -> gateway.execute(provider, () -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("bad link");
+        }));
+
+        assertEquals(2, calls.get());
+        assertTrue(sleeps.isEmpty());
+        assertEquals("CLOSED", status(gateway).get("circuit"));
+        assertEquals(0, status(gateway).get("consecutiveFailures"));
+    }
+
+    @Test
+    void breakerOpensAfterThresholdAndFailsFast() {
+        CloudImportGateway gateway = gateway(4, 60_000, 1, 2);
+        failTransiently(gateway);
+        assertEquals("CLOSED", status(gateway).get("circuit"));
+        failTransiently(gateway);
+        assertEquals("OPEN", status(gateway).get("circuit"));
+
+        CloudProviderUnavailableException error = assertThrows(CloudProviderUnavailableException.class,
+                () -> gateway.execute(provider, () -> calls.incrementAndGet()));
+
+        assertEquals("FakeProvider", error.getProvider());
+        assertEquals(2, calls.get());
+        assertEquals(1L, status(gateway).get("rejected"));
+    }
+
+    @Test
+    void breakerStaysOpenUntilOpenTimePasses() {
+        CloudImportGateway gateway = gateway(4, 60_000, 1, 1);
+        failTransiently(gateway);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MS) - 1);
+
+        assertThrows(CloudProviderUnavailableException.class, () -> gateway.execute(provider, () -> calls.incrementAndGet()));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void successfulTrialCallClosesTheBreaker() throws Exception {
+        CloudImportGateway gateway = gateway(4, 60_000, 1, 1);
+        failTransiently(gateway);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MS));
+
+        assertEquals("trial", gateway.execute(provider, () -> "trial"));
+        assertEquals("CLOSED", status(gateway).get("circuit"));
+        assertEquals("next", gateway.execute(provider, () -> "next"));
+    }
+
+    @Test
+    void failedTrialCallReopensTheBreaker() {
+        CloudImportGateway gateway = gateway(4, 60_000, 1, 5);
+        for (int i = 0; i < 5; i++) {
+            failTransiently(gateway);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MS));
+
+        // A single failure is enough while half-open, below the threshold of five
+        failTransiently(gateway);
+
+        assertEquals("OPEN", status(gateway).get("circuit"));
+        assertThrows(CloudProviderUnavailableException.class, () -> gateway.execute(provider, () -> calls.incrementAndGet()));
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    void onlyOneTrialCallWhileHalfOpen() throws Exception {
+        CloudImportGateway gateway = gateway(4, 60_000, 1, 1);
+        failTransiently(gateway);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MS));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> trial = background.submit(() -> gateway.execute(provider, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "trial";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals("HALF_OPEN", status(gateway).get("circuit"));
+        assertThrows(CloudProviderUnavailableException.class, () -> gateway.execute(provider, () -> "second"));
+
+        release.countDown();
+        assertEquals("trial", trial.get(5, TimeUnit.SECONDS));
+        assertEquals("CLOSED", status(gateway).get("circuit"));
+    }
+
+    @Test
+    void bulkheadTurnsAwayCallsWhenFull() throws Exception {
+        CloudImportGateway gateway = gateway(1, 60_000, 3, 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> running = background.submit(() -> gateway.execute(provider, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "first";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CloudProviderUnavailableException error = assertThrows(CloudProviderUnavailableException.class,
+                () -> gateway.execute(provider, () -> calls.incrementAndGet()));
+
+        assertTrue(error.getMessage().contains("busy"));
+        assertEquals(0, calls.get());
+        assertTrue(sleeps.isEmpty());
+        Map<String, Object> status = status(gateway);
+        assertEquals(1, status.get("inFlight"));
+        assertEquals(1L, status.get("rejected"));
+        // Being turned away says nothing about the provider's health
+        assertEquals("CLOSED", status.get("circuit"));
+        assertEquals(0, status.get("consecutiveFailures"));
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", gateway.execute(provider, () -> "second"));
+        assertEquals(0, status(gateway).get("inFlight"));
+    }
+
+    @Test
+    void permitIsReleasedWhileWaitingToRetry() throws Exception {
+        CloudImportGateway[] holder = new CloudImportGateway[1];
+        List<Integer> inFlightWhileSleeping = new ArrayList<>();
+        CloudImportGateway gateway = new CloudImportGateway(1, 50, 60_000, 2, BACKOFF_MS, MAX_BACKOFF_MS, 5, OPEN_MS,
+                clock::get, millis -> inFlightWhileSleeping.add((Integer) status(holder[0]).get("inFlight")));
+        holder[0] = gateway;
+
+        gateway.execute(provider, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ConnectException("refused");
+            }
+            return "ok";
+        });
+
+        assertEquals(List.of(0), inFlightWhileSleeping);
+    }
+
+    @Test
+    void classifiesTransientFailures() {
+        assertTrue(CloudImportGateway.isTransient(new CloudProviderException(429, "rate limited")));
+        assertTrue(CloudImportGateway.isTransient(new CloudProviderException(502, "bad gateway")));
+        assertTrue(CloudImportGateway.isTransient(new SocketTimeoutException("read timed out")));
+        assertTrue(CloudImportGateway.isTransient(new IOException("wrapped", new ConnectException("refused"))));
+        assertFalse(CloudImportGateway.isTransient(new CloudProviderException(403, "forbidden")));
+        assertFalse(CloudImportGateway.isTransient(new IOException("corrupt file")));
+        assertFalse(CloudImportGateway.isTransient(
+                new CloudProviderUnavailableException("FakeProvider", "busy", new ConnectException("refused"))));
+    }
+
+    private CloudImportGateway gateway(int maxConcurrent, long deadlineMs, int maxAttempts, int failureThreshold) {
+        return new CloudImportGateway(maxConcurrent, 50, deadlineMs, maxAttempts, BACKOFF_MS, MAX_BACKOFF_MS,
+                failureThreshold, OPEN_MS, clock::get, millis -> {
+                    sleeps.add(millis);
+                    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+                });
+    }
+
+    private void failTransiently(CloudImportGateway gateway) {
+        assertThrows(ConnectException.class, () -> gateway.execute(provider, () -> {
+            calls.incrementAndGet();
+            throw new ConnectException("refused");
+        }));
+    }
+
+    private static Map<String, Object> status(CloudImportGateway gateway) {
+        List<Map<String, Object>> status = gateway.getProviderStatus();
+        assertEquals(1, status.size());
+        return status.get(0);
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " is not between " + min + " and " + max);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FakeProvider implements CloudSpreadsheetInterface {
+
+        @Override
+        public CloudWorkbook fetchWorkbook(String sharedLink) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<String> changedVersion(String sharedLink, String knownVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ParsedSpreadsheet fetchSheet(String sharedLink, String sheetName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean canProcessLink(String link) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimitedTextReaderTest {
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3")), read("a,b,c\n1,2,3\n", ','));
+    }
+
+    @Test
+    void quotedFieldsKeepDelimitersAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("Cruz, Ben", "line one\nline two", "x\r\ny"), List.of("next")),
+                read("\"Cruz, Ben\",\"line one\nline two\",\"x\r\ny\"\nnext\n", ','));
+    }
+
+    @Test
+    void doubledQuotesAreEscapedQuotes() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"", "")), read("\"say \"\"hi\"\"\",\"\"\"\",\"\"\n", ','));
+    }
+
+    @Test
+    void quotesInsideAnUnquotedFieldAreKept() throws IOException {
+        assertEquals(List.of(List.of("5\" tall", "ok")), read("5\" tall,ok\n", ','));
+    }
+
+    @Test
+    void acceptsCrlfLfAndCrLineEndings() throws IOException {
+        List<List<String>> expected = List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"), List.of("g", "h"));
+
+        assertEquals(expected, read("a,b\r\nc,d\ne,f\rg,h\r\n", ','));
+    }
+
+    @Test
+    void trailingDelimiterEndsWithAnEmptyField() throws IOException {
+        assertEquals(List.of(List.of("a", "b", ""), List.of("", "", "")), read("a,b,\r\n,,\r\n", ','));
+    }
+
+    @Test
+    void lastRowWithoutLineBreakIsRead() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b", "")), read("a\nb,", ','));
+    }
+
+    @Test
+    void blankLinesAreDropped() throws IOException {
+        List<int[]> rowNums = new ArrayList<>();
+        DelimitedTextReader.read(stream("\n\na\r\n\r\nb\n\n"), ',', (rowNum, fields, count) -> {
+            rowNums.add(new int[]{rowNum, count});
+            return true;
+        });
+
+        assertEquals(2, rowNums.size());
+        assertArrayEquals(new int[]{0, 1}, rowNums.get(0));
+        assertArrayEquals(new int[]{1, 1}, rowNums.get(1));
+    }
+
+    @Test
+    void emptyQuotedFieldIsARowNotABlankLine() throws IOException {
+        assertEquals(List.of(List.of("")), read("\"\"\n", ','));
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        assertEquals(List.of(List.of("Student Number", "Quiz 1")), read("\uFEFFStudent Number,Quiz 1\r\n", ','));
+    }
+
+    @Test
+    void shortFilesAreReadWithoutByteOrderMark() throws IOException {
+        assertEquals(List.of(List.of("a")), read("a", ','));
+        assertEquals(List.of(List.of("a", "")), read("a,", ','));
+        assertEquals(List.of(), read("", ','));
+    }
+
+    @Test
+    void readsTabSeparatedValues() throws IOException {
+        assertEquals(List.of(List.of("a,b", "c\td")), read("a,b\t\"c\td\"\n", '\t'));
+        assertEquals('\t', DelimitedTextReader.delimiterFor("Grades.TSV"));
+        assertEquals('\t', DelimitedTextReader.delimiterFor("grades.tab"));
+        assertEquals(',', DelimitedTextReader.delimiterFor("grades.csv"));
+    }
+
+    @Test
+    void multiByteCharactersSurviveBufferBoundaries() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<List<String>> expected = new ArrayList<>();
+        // Long enough to cross several 64 KB reads at every byte offset of a 3-byte character
+        for (int i = 0; i < 20_000; i++) {
+            String name = "Peña " + "é".repeat(i % 7) + "€" + i;
+            text.append(name).append(",\"").append(i).append(", ñ\"\n");
+            expected.add(List.of(name, i + ", ñ"));
+        }
+
+        assertEquals(expected, read(text.toString(), ','));
+    }
+
+    @Test
+    void stopsWhenTheHandlerSaysSo() throws IOException {
+        List<String> firstFields = new ArrayList<>();
+        DelimitedTextReader.read(stream("a\nb\nc\n"), ',', (rowNum, fields, count) -> {
+            firstFields.add(fields[0]);
+            return rowNum < 1;
+        });
+
+        assertEquals(List.of("a", "b"), firstFields);
+    }
+
+    @Test
+    void rejectsUnsupportedDelimiters() {
+        assertThrows(IllegalArgumentException.class, () -> DelimitedTextReader.read(stream("a"), '"', (r, f, c) -> true));
+        assertThrows(IllegalArgumentException.class, () -> DelimitedTextReader.read(stream("a"), '\n', (r, f, c) -> true));
+    }
+
+    @Test
+    void headerOnlyFileHasHeadersAndNoRecords() throws IOException {
+        ClassRecordSheet sheet = new ClassRecordSheet(false);
+        DelimitedTextReader.read(stream("Student Number,First Name,Quiz 1\r\n"), ',', sheet);
+
+        ParsedSpreadsheet parsed = sheet.toParsedSpreadsheet();
+
+        assertEquals(List.of("Student Number", "First Name", "Quiz 1"), parsed.getHeaders());
+        assertTrue(parsed.getRecords().isEmpty());
+        assertTrue(parsed.getMaxAssessmentValues().isEmpty());
+        assertTrue(parsed.getDiagnostics().stream().anyMatch(note -> note.contains("no max value row")));
+    }
+
+    @Test
+    void classRecordFromCsv() throws IOException {
+        ClassRecordSheet sheet = new ClassRecordSheet(false);
+        DelimitedTextReader.read(stream("Student Number,Name,Quiz 1,Quiz 2\n,,20,n/a\n2023-0001,\"Reyes, Ana\",18,\n"), ',', sheet);
+
+        assertEquals(Map.of("Quiz 1", 20), sheet.getMaxAssessmentValues());
+        assertEquals(List.of(Map.of("Student Number", "2023-0001", "Name", "Reyes, Ana", "Quiz 1", "18", "Quiz 2", "")),
+                sheet.getRecords());
+    }
+
+    private static List<List<String>> read(String text, char delimiter) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        DelimitedTextReader.read(stream(text), delimiter, (rowNum, fields, count) -> {
+            rows.add(new ArrayList<>(Arrays.asList(fields).subList(0, count)));
+            return true;
+        });
+        return rows;
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,181 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import com.capstone.gradify.Entity.records.GradeRecordsEntity;
+import com.capstone.gradify.Service.spreadsheet.GradeRecordDiff.Mode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeRecordDiffTest {
+
+    @Test
+    void replaceInsertsUpdatesAndDeletes() {
+        GradeRecordsEntity same = record(1, "S1", "Quiz 1", "10");
+        GradeRecordsEntity changed = record(2, "S2", "Quiz 1", "5");
+        GradeRecordsEntity missing = record(3, "S3", "Quiz 1", "7");
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(same, changed, missing), rows(
+                row("S1", "Quiz 1", "10"),
+                row("S2", "Quiz 1", "6"),
+                row("S4", "Quiz 1", "9")), Mode.REPLACE);
+
+        assertEquals(List.of(row("S4", "Quiz 1", "9")), diff.getInserts());
+        assertEquals(Map.of(changed, row("S2", "Quiz 1", "6")), diff.getUpdates());
+        assertEquals(List.of(missing), diff.getDeletes());
+        assertEquals(List.of(same, changed), diff.getKept());
+        assertEquals(1, diff.getUnchanged());
+        assertFalse(diff.isEmpty());
+    }
+
+    @Test
+    void replaceOverwritesWholeRowsIncludingBlanks() {
+        GradeRecordsEntity stored = record(1, "S1", "Quiz 1", "10", "Quiz 2", "8");
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(stored), rows(row("S1", "Quiz 1", "", "Quiz 3", "4")), Mode.REPLACE);
+
+        assertEquals(Map.of(stored, row("S1", "Quiz 1", "", "Quiz 3", "4")), diff.getUpdates());
+    }
+
+    @Test
+    void upsertKeepsStoredRecordsMissingFromTheSheet() {
+        GradeRecordsEntity changed = record(1, "S1", "Quiz 1", "10");
+        GradeRecordsEntity missing = record(2, "S2", "Quiz 1", "7");
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(changed, missing), rows(
+                row("S1", "Quiz 1", ""),
+                row("S3", "Quiz 1", "9")), Mode.UPSERT);
+
+        assertEquals(List.of(row("S3", "Quiz 1", "9")), diff.getInserts());
+        // The row replaces the stored grades, blank cells included
+        assertEquals(Map.of(changed, row("S1", "Quiz 1", "")), diff.getUpdates());
+        assertTrue(diff.getDeletes().isEmpty());
+        assertEquals(List.of(changed, missing), diff.getKept());
+    }
+
+    @Test
+    void mergeWritesOnlyNonBlankCells() {
+        GradeRecordsEntity stored = record(1, "S1", "Quiz 1", "10", "Quiz 2", "8");
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(stored), rows(row("S1", "Quiz 1", " ", "Quiz 2", "9", "Quiz 3", "4")), Mode.MERGE);
+
+        assertEquals(Map.of(stored, row("S1", "Quiz 1", "10", "Quiz 2", "9", "Quiz 3", "4")), diff.getUpdates());
+        assertTrue(diff.getDeletes().isEmpty());
+    }
+
+    @Test
+    void mergeOfBlankCellsIsUnchanged() {
+        GradeRecordsEntity stored = record(1, "S1", "Quiz 1", "10");
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(stored), rows(row("S1", "Quiz 1", "")), Mode.MERGE);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getUnchanged());
+        assertEquals(List.of(stored), diff.getKept());
+    }
+
+    @Test
+    void identicalSheetIsEmptyInEveryMode() {
+        for (Mode mode : Mode.values()) {
+            GradeRecordsEntity stored = record(1, "S1", "Quiz 1", "10", "Quiz 2", "8");
+
+            GradeRecordDiff diff = GradeRecordDiff.compute(List.of(stored), rows(row("S1", "Quiz 2", "8", "Quiz 1", "10")), mode);
+
+            assertTrue(diff.isEmpty(), mode.name());
+            assertEquals(1, diff.getUnchanged(), mode.name());
+        }
+    }
+
+    @Test
+    void rowsWithoutStudentNumberAreSkipped() {
+        Map<String, String> blankNumber = row(" ", "Quiz 1", "1");
+        Map<String, String> noNumber = new HashMap<>(Map.of("Quiz 1", "2"));
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(), rows(blankNumber, row("S1", "Quiz 1", "3"), noNumber), Mode.UPSERT);
+
+        assertEquals(List.of(row("S1", "Quiz 1", "3")), diff.getInserts());
+        assertEquals(List.of(1, 3), new ArrayList<>(diff.getSkippedRows().keySet()));
+        assertEquals("missing student number", diff.getSkippedRows().get(1));
+    }
+
+    @Test
+    void laterDuplicateRowWinsOutsideMerge() {
+        for (Mode mode : List.of(Mode.REPLACE, Mode.UPSERT)) {
+            GradeRecordDiff diff = GradeRecordDiff.compute(List.of(), rows(
+                    row("S1", "Quiz 1", "1", "Quiz 2", "2"),
+                    row("S1", "Quiz 1", "5")), mode);
+
+            assertEquals(List.of(row("S1", "Quiz 1", "5")), diff.getInserts(), mode.name());
+            assertTrue(diff.getSkippedRows().get(1).contains("appears again in record 2"), mode.name());
+        }
+    }
+
+    @Test
+    void duplicateRowsCombineInMerge() {
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(), rows(
+                row("S1", "Quiz 1", "1", "Quiz 2", "2"),
+                row("S1", "Quiz 1", "5", "Quiz 2", "")), Mode.MERGE);
+
+        assertEquals(List.of(row("S1", "Quiz 1", "5", "Quiz 2", "2")), diff.getInserts());
+        assertTrue(diff.getSkippedRows().isEmpty());
+    }
+
+    @Test
+    void secondStoredRecordOfAStudentIsDeletedOnlyOnReplace() {
+        GradeRecordsEntity first = record(1, "S1", "Quiz 1", "10");
+        GradeRecordsEntity second = record(2, "S1", "Quiz 1", "3");
+        GradeRecordsEntity noNumber = record(3, null, "Quiz 1", "4");
+
+        GradeRecordDiff replace = GradeRecordDiff.compute(List.of(first, second, noNumber), rows(row("S1", "Quiz 1", "10")), Mode.REPLACE);
+        GradeRecordDiff upsert = GradeRecordDiff.compute(List.of(first, second, noNumber), rows(row("S1", "Quiz 1", "10")), Mode.UPSERT);
+
+        assertEquals(List.of(second, noNumber), replace.getDeletes());
+        assertEquals(List.of(first), replace.getKept());
+        assertTrue(upsert.getDeletes().isEmpty());
+        assertEquals(List.of(first, second, noNumber), upsert.getKept());
+    }
+
+    @Test
+    void storedRecordWithoutGradesIsUpdated() {
+        GradeRecordsEntity stored = record(1, "S1");
+        stored.setGrades(null);
+
+        GradeRecordDiff diff = GradeRecordDiff.compute(List.of(stored), rows(row("S1", "Quiz 1", "7")), Mode.MERGE);
+
+        assertEquals(Map.of(stored, row("S1", "Quiz 1", "7")), diff.getUpdates());
+    }
+
+    private static GradeRecordsEntity record(long id, String studentNumber, String... grades) {
+        GradeRecordsEntity record = new GradeRecordsEntity();
+        record.setId(id);
+        record.setStudentNumber(studentNumber);
+        Map<String, String> map = new HashMap<>();
+        if (studentNumber != null) {
+            map.put("Student Number", studentNumber);
+        }
+        for (int i = 0; i < grades.length; i += 2) {
+            map.put(grades[i], grades[i + 1]);
+        }
+        record.setGrades(map);
+        return record;
+    }
+
+    private static Map<String, String> row(String studentNumber, String... grades) {
+        Map<String, String> row = new HashMap<>();
+        row.put("Student Number", studentNumber);
+        for (int i = 0; i < grades.length; i += 2) {
+            row.put(grades[i], grades[i + 1]);
+        }
+        return row;
+    }
+
+    @SafeVarargs
+    private static List<Map<String, String>> rows(Map<String, String>... rows) {
+        return Arrays.asList(rows);
+    }
+}
@@ -0,0 +1,280 @@
+package com.capstone.gradify.Service.spreadsheet;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The streaming reader must produce exactly what the POI DOM parsing it replaced did. The reference
+ * below is that DOM code, unchanged; every fixture is written as .xlsx (shared strings), SXSSF (inline
+ * strings) and .xls, then parsed both ways.
+ */
+class SheetReaderEquivalenceTest {
+
+    enum Format { XLSX, SXSSF, XLS }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void plainClassRecord(Format format) throws IOException {
+        assertSameAsDom(format, workbook -> {
+            Sheet sheet = workbook.createSheet("Class");
+            row(sheet, 0, "Student Number", "First Name", "Last Name", "Quiz 1", "Quiz 2", "Passed");
+            row(sheet, 1, "", "", "", 20, 30.5, "n/a");
+            row(sheet, 2, "2023-0001", "Ana", "Reyes", 18, 27.25, true);
+            row(sheet, 3, "2023-0002", "Ben", "Cruz", 0, 30, false);
+            row(sheet, 4, 20230003, "Cy", "Lim", 19.999, -1, "yes");
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void mergedHeadersAndCells(Format format) throws IOException {
+        assertSameAsDom(format, workbook -> {
+            Sheet sheet = workbook.createSheet("Class");
+            CellStyle centered = workbook.createCellStyle();
+            Row header = row(sheet, 0, "Student Number", "Name", "", "Quiz 1", "Quiz 2");
+            header.getCell(1).setCellStyle(centered);
+            header.getCell(2).setCellStyle(centered);
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 1, 2));
+            row(sheet, 1, "", "", "", 10, 10);
+            row(sheet, 2, "2023-0001", "Ana Reyes", "", 9, 8);
+            // A score merged across both quizzes, only the first cell holds it
+            Row merged = row(sheet, 3, "2023-0002", "Ben Cruz", "", 7);
+            merged.createCell(4).setCellStyle(centered);
+            sheet.addMergedRegion(new CellRangeAddress(3, 3, 3, 4));
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void formulasWithCachedResults(Format format) throws IOException {
+        assertSameAsDom(format, workbook -> {
+            Sheet sheet = workbook.createSheet("Class");
+            row(sheet, 0, "Student Number", "Quiz 1", "Quiz 2", "Total", "Remark", "Max Check");
+            Row max = row(sheet, 1, "", 10, 20);
+            // A formula max value is not treated as an assessment by either reader
+            max.createCell(3).setCellFormula("B2+C2");
+            for (int r = 2; r < 6; r++) {
+                Row row = row(sheet, r, "2023-000" + r, r * 2, r * 3);
+                row.createCell(3).setCellFormula("B" + (r + 1) + "+C" + (r + 1));
+                row.createCell(4).setCellFormula("IF(D" + (r + 1) + ">15,\"ok\",\"low\")");
+                row.createCell(5).setCellFormula("D" + (r + 1) + ">D2");
+            }
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void blanksGapsAndExtraCells(Format format) throws IOException {
+        assertSameAsDom(format, workbook -> {
+            Sheet sheet = workbook.createSheet("Class");
+            CellStyle bordered = workbook.createCellStyle();
+            row(sheet, 0, "Student Number", "Quiz 1", "", "Quiz 3");
+            Row max = row(sheet, 1, "", 10);
+            max.createCell(3).setCellValue(10);
+            // Missing cells, a styled blank and an empty string
+            Row sparse = row(sheet, 2, "2023-0001");
+            sparse.createCell(2).setCellStyle(bordered);
+            sparse.createCell(3).setCellValue("");
+            // An entirely empty row, a skipped row number and cells past the last header
+            sheet.createRow(3);
+            Row far = row(sheet, 6, "2023-0002", 4, "x", 5, "past", 99);
+            far.createCell(20).setCellValue("far right");
+            row(sheet, 7);
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void dates(Format format) throws IOException {
+        assertSameAsDom(format, workbook -> {
+            Sheet sheet = workbook.createSheet("Class");
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            row(sheet, 0, "Student Number", "Submitted", "Score");
+            row(sheet, 1, "", "", 100);
+            for (int r = 2; r < 5; r++) {
+                Row row = row(sheet, r, "2023-000" + r);
+                Cell submitted = row.createCell(1);
+                submitted.setCellValue(LocalDate.of(2024, 1 + r, 10 + r));
+                submitted.setCellStyle(dateStyle);
+                row.createCell(2).setCellValue(80 + r);
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(Format.class)
+    void randomClassRecords(Format format) throws IOException {
+        Random random = new Random(format.ordinal() + 17);
+        for (int round = 0; round < 25; round++) {
+            long seed = random.nextLong();
+            assertSameAsDom(format, workbook -> fillRandomly(workbook, new Random(seed)));
+        }
+    }
+
+    private static void fillRandomly(Workbook workbook, Random random) {
+        Sheet sheet = workbook.createSheet("Class");
+        CellStyle styled = workbook.createCellStyle();
+        int columns = 1 + random.nextInt(12);
+        Row header = sheet.createRow(0);
+        for (int c = 0; c < columns; c++) {
+            header.createCell(c).setCellValue(random.nextInt(8) == 0 ? "" : "Column " + random.nextInt(columns + 2));
+        }
+        int rows = random.nextInt(40);
+        int rowNum = 1;
+        for (int r = 0; r < rows; r++) {
+            Row row = sheet.createRow(rowNum);
+            rowNum += 1 + (random.nextInt(10) == 0 ? random.nextInt(3) : 0);
+            int width = columns + (random.nextInt(6) == 0 ? random.nextInt(3) : 0);
+            for (int c = 0; c < width; c++) {
+                switch (random.nextInt(8)) {
+                    case 0 -> { } // missing
+                    case 1 -> row.createCell(c).setCellStyle(styled);
+                    case 2 -> row.createCell(c).setCellValue("text " + random.nextInt(100));
+                    case 3 -> row.createCell(c).setCellValue(random.nextBoolean());
+                    case 4 -> row.createCell(c).setCellValue(random.nextInt(100));
+                    case 5 -> row.createCell(c).setCellValue(Math.round(random.nextDouble() * 10_000) / 100.0);
+                    case 6 -> row.createCell(c).setCellValue(random.nextDouble() * 1e7 - 5e6);
+                    default -> row.createCell(c).setCellValue("");
+                }
+            }
+        }
+    }
+
+    private static Row row(Sheet sheet, int rowNum, Object... values) {
+        Row row = sheet.createRow(rowNum);
+        for (int c = 0; c < values.length; c++) {
+            Cell cell = row.createCell(c);
+            if (values[c] instanceof String text) {
+                cell.setCellValue(text);
+            } else if (values[c] instanceof Boolean bool) {
+                cell.setCellValue(bool);
+            } else {
+                cell.setCellValue(((Number) values[c]).doubleValue());
+            }
+        }
+        return row;
+    }
+
+    private static void assertSameAsDom(Format format, Consumer<Workbook> fixture) throws IOException {
+        byte[] bytes = write(format, fixture);
+
+        ClassRecordSheet streamed = new ClassRecordSheet(false);
+        SheetReader.readFirstSheet(new ByteArrayInputStream(bytes), streamed);
+        ClassRecordSheet headersOnly = new ClassRecordSheet(true);
+        SheetReader.readFirstSheet(new ByteArrayInputStream(bytes), headersOnly);
+
+        assertEquals(domRecords(bytes), streamed.getRecords(), format + " records");
+        Map<String, Integer> domMaxValues = domMaxAssessmentValues(bytes);
+        assertEquals(domMaxValues, streamed.getMaxAssessmentValues(), format + " max values");
+        assertEquals(domMaxValues, headersOnly.getMaxAssessmentValues(), format + " max values, header rows only");
+    }
+
+    private static byte[] write(Format format, Consumer<Workbook> fixture) throws IOException {
+        Workbook workbook = switch (format) {
+            case XLSX -> new XSSFWorkbook();
+            case SXSSF -> new SXSSFWorkbook(100);
+            case XLS -> new HSSFWorkbook();
+        };
+        try (workbook) {
+            fixture.accept(workbook);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    // The DOM parsing of parseClassRecord before the streaming reader, unchanged
+
+    private static List<Map<String, String>> domRecords(byte[] bytes) throws IOException {
+        List<Map<String, String>> records = new ArrayList<>();
+        Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(bytes));
+        Sheet sheet = workbook.getSheetAt(0);
+
+        Iterator<Row> rowIterator = sheet.iterator();
+        List<String> headers = new ArrayList<>();
+        if (rowIterator.hasNext()) {
+            Row headerRow = rowIterator.next();
+            for (Cell cell : headerRow) {
+                headers.add(cell.getStringCellValue());
+            }
+        }
+        if (rowIterator.hasNext()) {
+            rowIterator.next();
+        }
+        while (rowIterator.hasNext()) {
+            Row row = rowIterator.next();
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < headers.size(); i++) {
+                record.put(headers.get(i), domCellValue(row.getCell(i)));
+            }
+            records.add(record);
+        }
+        workbook.close();
+        return records;
+    }
+
+    private static Map<String, Integer> domMaxAssessmentValues(byte[] bytes) throws IOException {
+        Map<String, Integer> maxAssessmentValues = new HashMap<>();
+        Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(bytes));
+        Sheet sheet = workbook.getSheetAt(0);
+
+        Iterator<Row> rowIterator = sheet.iterator();
+        List<String> headers = new ArrayList<>();
+        if (rowIterator.hasNext()) {
+            Row headerRow = rowIterator.next();
+            for (Cell cell : headerRow) {
+                headers.add(cell.getStringCellValue());
+            }
+        }
+        if (rowIterator.hasNext()) {
+            Row maxValueRow = rowIterator.next();
+            for (int i = 0; i < headers.size(); i++) {
+                Cell cell = maxValueRow.getCell(i);
+                if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+                    maxAssessmentValues.put(headers.get(i), (int) cell.getNumericCellValue());
+                }
+            }
+        }
+        workbook.close();
+        return maxAssessmentValues;
+    }
+
+    private static String domCellValue(Cell cell) {
+        if (cell == null) {
+            return "";
+        }
+        return switch (cell.getCellType()) {
+            case STRING -> cell.getStringCellValue();
+            case NUMERIC -> String.valueOf(cell.getNumericCellValue());
+            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
+            default -> "";
+        };
+    }
+}
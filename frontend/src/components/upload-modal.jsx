@@ -35,8 +35,10 @@ export function UploadModal({
   const acceptedTypes = [
     "application/vnd.ms-excel",
     "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+    "text/csv",
+    "text/tab-separated-values",
   ];
-  const acceptedExtensions = [".xls", ".xlsx"];
+  const acceptedExtensions = [".xls", ".xlsx", ".csv", ".tsv"];
 
   const validateFile = (file) => {
     const fileExtension = file.name
@@ -45,7 +47,7 @@ export function UploadModal({
 
     if (!acceptedExtensions.includes(fileExtension)) {
       setError(
-        `Invalid file type. Please upload an Excel file (${acceptedExtensions.join(
+        `Invalid file type. Please upload a spreadsheet file (${acceptedExtensions.join(
           ", "
         )})`
       );
@@ -205,7 +207,7 @@ export function UploadModal({
                   : "Drag & drop your Excel file here"}
               </p>
               <p className="text-xs text-muted-foreground mb-4">
-                or click to browse (.xls, .xlsx files only)
+                or click to browse (.xls, .xlsx, .csv, .tsv files)
               </p>
               <Button
                 type="button"